@@ -0,0 +1,485 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import huffman.bench.Workload;
+
+/**
+ * Workloads class. Stages of the codec measured by huffman.bench.CodecBenchmark. It is placed in the default
+ * package, as the codec classes are, while JMH does not accept benchmarks in the default package.
+ * Operate through static method "create".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Workloads {
+	private static final int CHUNK_SIZE = 1<<16;
+
+	/**
+	 * Static method. Creates the workload of the given name.
+	 * @param name: String, one of histogram, tree, treeBuilder, treeWrite, treeParse, treeParser, encode, decode,
+	 * referenceEncode, referenceDecode, contextEncode, contextDecode.
+	 * @return Workload, the workload, not yet set up.
+	 * @throws Exception in case the name is unknown.
+	 */
+	public static Workload create(String name) throws Exception {
+		switch(name) {
+			case "histogram":
+				return new HistogramWorkload();
+			case "tree":
+				return new TreeWorkload();
+			case "treeBuilder":
+				return new TreeBuilderWorkload();
+			case "treeWrite":
+				return new TreeWriteWorkload();
+			case "treeParse":
+				return new TreeParseWorkload();
+			case "treeParser":
+				return new TreeParserWorkload();
+			case "encode":
+				return new EncodeWorkload();
+			case "decode":
+				return new DecodeWorkload();
+			case "referenceEncode":
+				return new ReferenceEncodeWorkload();
+			case "referenceDecode":
+				return new ReferenceDecodeWorkload();
+			case "contextEncode":
+				return new ContextEncodeWorkload();
+			case "contextDecode":
+				return new ContextDecodeWorkload();
+			default:
+				throw new Exception("Unknown workload: "+name);
+		}
+	}
+
+	/**
+	 * Static method. Counts every symbol of the data, EOF once.
+	 * @param data: byte[], the data.
+	 * @return long[], frequency of every symbol.
+	 */
+	static long[] frequencies(byte[] data) {
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		for(byte b: data) {
+			frequencies[b&0xFF]++;
+		}
+		frequencies[CodeTable.EOF] = 1;
+		return frequencies;
+	}
+
+	/**
+	 * Static method. Builds the order-1 model the data is encoded with, as Encode -context does.
+	 * @param data: byte[], the data.
+	 * @return ContextModel, code tables of the data.
+	 * @throws Exception in case the model cannot be built.
+	 */
+	static ContextModel model(byte[] data) throws Exception {
+		long[][] frequencies = new long[ContextModel.CONTEXTS][CodeTable.SYMBOLS];
+		int context = ContextModel.INITIAL_CONTEXT;
+		for(byte b: data) {
+			frequencies[context][b&0xFF]++;
+			context = b&0xFF;
+		}
+		frequencies[context][CodeTable.EOF] = 1;
+		return ContextModel.build(frequencies, 0);
+	}
+
+	/**
+	 * Static method. Builds the table the data is encoded with, as Encode does.
+	 * @param data: byte[], the data.
+	 * @return CodeTable, canonical codewords of the data.
+	 * @throws Exception in case the lengths do not describe a prefix code.
+	 */
+	static CodeTable table(byte[] data) throws Exception {
+		return CodeTable.canonical(CodeLengthBuilder.build(frequencies(data), CodeTable.MAX_CODE_LENGTH));
+	}
+
+	/**
+	 * Counting of byte values of a file by Histogram, from the page cache.
+	 */
+	static class HistogramWorkload implements Workload, AutoCloseable {
+		private Path file;
+		private long size;
+
+		@Override
+		public void setup(byte[] data) throws IOException {
+			file = Files.createTempFile("histogram", ".bin");
+			Files.write(file, data);
+			size = data.length;
+		}
+
+		@Override
+		public Object run() throws IOException {
+			return Histogram.count(file.toString(), ForkJoinPool.commonPool());
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return size;
+		}
+
+		@Override
+		public void close() throws IOException {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Construction of the canonical code from the frequencies of the corpus.
+	 */
+	static class TreeWorkload implements Workload {
+		private long[] frequencies;
+		private long size;
+
+		@Override
+		public void setup(byte[] data) {
+			frequencies = frequencies(data);
+			size = data.length;
+		}
+
+		@Override
+		public Object run() throws Exception {
+			return CodeTable.canonical(CodeLengthBuilder.build(frequencies, CodeTable.MAX_CODE_LENGTH)).toTree();
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return size;
+		}
+	}
+
+	/**
+	 * Building of the tree of a file by TreeBuilder.buildTree, from the page cache, as Encode does.
+	 */
+	static class TreeBuilderWorkload implements Workload, AutoCloseable {
+		private Path file;
+		private long size;
+
+		@Override
+		public void setup(byte[] data) throws IOException {
+			file = Files.createTempFile("treeBuilder", ".bin");
+			Files.write(file, data);
+			size = data.length;
+		}
+
+		@Override
+		public Object run() throws Exception {
+			return new TreeBuilder(file.toString()).buildTree();
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return size;
+		}
+
+		@Override
+		public void close() throws IOException {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Serialization of the tree of the corpus into the nested .tree format.
+	 */
+	static class TreeWriteWorkload implements Workload {
+		private TreeNode tree;
+		private long size;
+
+		@Override
+		public void setup(byte[] data) throws Exception {
+			tree = table(data).toTree();
+			size = tree.generateOutputContent().length;
+		}
+
+		@Override
+		public Object run() {
+			return tree.generateOutputContent();
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return size;
+		}
+	}
+
+	/**
+	 * Parsing of the nested .tree file of the corpus by TreeRebuilder.
+	 */
+	static class TreeParseWorkload implements Workload {
+		private byte[] content;
+
+		@Override
+		public void setup(byte[] data) throws Exception {
+			content = table(data).toTree().generateOutputContent();
+		}
+
+		@Override
+		public Object run() throws Exception {
+			TreeRebuilder rebuilder = new TreeRebuilder();
+			for(byte b: content) {
+				rebuilder.nextByte(b);
+			}
+			return rebuilder.getTree();
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return content.length;
+		}
+	}
+
+	/**
+	 * Parsing of the nested .tree file of the corpus by TreeParser.
+	 */
+	static class TreeParserWorkload implements Workload {
+		private byte[] content;
+
+		@Override
+		public void setup(byte[] data) throws Exception {
+			content = table(data).getCodeTree().toTreeFile();
+		}
+
+		@Override
+		public Object run() throws Exception {
+			return TreeParser.parse(content);
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return content.length;
+		}
+	}
+
+	/**
+	 * Encoding of the corpus in chunks by TableEncoder.
+	 */
+	static class EncodeWorkload implements Workload {
+		private byte[] data;
+		private CodeTable table;
+
+		@Override
+		public void setup(byte[] data) throws Exception {
+			this.data = data;
+			table = table(data);
+		}
+
+		@Override
+		public Object run() throws Exception {
+			TableEncoder enc = new TableEncoder(table);
+			long written = 0;
+			for(int off = 0; off<data.length; off += CHUNK_SIZE) {
+				enc.encode(data, off, Math.min(CHUNK_SIZE, data.length-off));
+				written += enc.getOutputLength();
+			}
+			enc.flush();
+			return written+enc.getOutputLength();
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return data.length;
+		}
+	}
+
+	/**
+	 * Decoding of the encoded corpus in chunks by TableDecoder. Throughput is counted in decoded bytes.
+	 */
+	static class DecodeWorkload implements Workload {
+		private byte[] encoded;
+		private TableDecoder dec;
+		private long size;
+
+		@Override
+		public void setup(byte[] data) throws Exception {
+			CodeTable table = table(data);
+			TableEncoder enc = new TableEncoder(table);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			for(int off = 0; off<data.length; off += CHUNK_SIZE) {
+				enc.encode(data, off, Math.min(CHUNK_SIZE, data.length-off));
+				out.write(enc.getOutput(), 0, enc.getOutputLength());
+			}
+			enc.flush();
+			out.write(enc.getOutput(), 0, enc.getOutputLength());
+			encoded = out.toByteArray();
+			dec = new TableDecoder(table);
+			size = data.length;
+		}
+
+		@Override
+		public Object run() throws Exception {
+			dec.reset();
+			long read = 0;
+			for(int off = 0; off<encoded.length && !dec.isFinished(); off += CHUNK_SIZE) {
+				dec.decode(encoded, off, Math.min(CHUNK_SIZE, encoded.length-off));
+				read += dec.getOutputLength();
+			}
+			if(read!=size) {
+				throw new Exception("Decoded "+read+" bytes instead of "+size+".");
+			}
+			return read;
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return size;
+		}
+	}
+
+	/**
+	 * Encoding of the corpus a byte at a time by the reference Encoder, to be compared with encode.
+	 */
+	static class ReferenceEncodeWorkload implements Workload {
+		private byte[] data;
+		private TreeNode tree;
+
+		@Override
+		public void setup(byte[] data) throws Exception {
+			this.data = data;
+			tree = table(data).toTree();
+			tree.makeAddress();
+		}
+
+		@Override
+		public Object run() {
+			Encoder enc = new Encoder(tree);
+			long checksum = 0;
+			for(byte b: data) {
+				enc.encodeByteToBuffer(b&0xFF);
+				while(enc.hasNextByte()) {
+					checksum += Encoder.parseStringAsBinaryByte(enc.getNextByte());
+				}
+			}
+			for(String last: enc.flush()) {
+				checksum += Encoder.parseStringAsBinaryByte(last);
+			}
+			return checksum;
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return data.length;
+		}
+	}
+
+	/**
+	 * Decoding of the encoded corpus in chunks by the reference Decoder, walking the tree a bit at a time,
+	 * to be compared with decode. Throughput is counted in decoded bytes.
+	 */
+	static class ReferenceDecodeWorkload implements Workload {
+		private byte[] encoded;
+		private TreeNode tree;
+		private byte[] output;
+		private long size;
+
+		@Override
+		public void setup(byte[] data) throws Exception {
+			CodeTable table = table(data);
+			TableEncoder enc = new TableEncoder(table);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			for(int off = 0; off<data.length; off += CHUNK_SIZE) {
+				enc.encode(data, off, Math.min(CHUNK_SIZE, data.length-off));
+				out.write(enc.getOutput(), 0, enc.getOutputLength());
+			}
+			enc.flush();
+			out.write(enc.getOutput(), 0, enc.getOutputLength());
+			encoded = out.toByteArray();
+			tree = table.toTree();
+			output = new byte[8*CHUNK_SIZE];
+			size = data.length;
+		}
+
+		@Override
+		public Object run() throws Exception {
+			Decoder dec = new Decoder(tree);
+			long read = 0;
+			for(int off = 0; off<encoded.length && !dec.isFinished(); off += CHUNK_SIZE) {
+				read += dec.decode(encoded, off, Math.min(CHUNK_SIZE, encoded.length-off), output, 0);
+			}
+			if(read!=size) {
+				throw new Exception("Decoded "+read+" bytes instead of "+size+".");
+			}
+			return read;
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return size;
+		}
+	}
+
+	/**
+	 * Encoding of the corpus in chunks by ContextEncoder, to be compared with encode.
+	 */
+	static class ContextEncodeWorkload implements Workload {
+		private byte[] data;
+		private ContextModel model;
+
+		@Override
+		public void setup(byte[] data) throws Exception {
+			this.data = data;
+			model = model(data);
+		}
+
+		@Override
+		public Object run() throws Exception {
+			ContextEncoder enc = new ContextEncoder(model);
+			long written = 0;
+			for(int off = 0; off<data.length; off += CHUNK_SIZE) {
+				enc.encode(data, off, Math.min(CHUNK_SIZE, data.length-off));
+				written += enc.getOutputLength();
+			}
+			enc.flush();
+			return written+enc.getOutputLength();
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return data.length;
+		}
+	}
+
+	/**
+	 * Decoding of the corpus encoded by ContextEncoder in chunks by ContextDecoder, to be compared with decode.
+	 */
+	static class ContextDecodeWorkload implements Workload {
+		private byte[] encoded;
+		private ContextDecoder dec;
+		private long size;
+
+		@Override
+		public void setup(byte[] data) throws Exception {
+			ContextModel model = model(data);
+			ContextEncoder enc = new ContextEncoder(model);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			for(int off = 0; off<data.length; off += CHUNK_SIZE) {
+				enc.encode(data, off, Math.min(CHUNK_SIZE, data.length-off));
+				out.write(enc.getOutput(), 0, enc.getOutputLength());
+			}
+			enc.flush();
+			out.write(enc.getOutput(), 0, enc.getOutputLength());
+			encoded = out.toByteArray();
+			dec = new ContextDecoder(model);
+			size = data.length;
+		}
+
+		@Override
+		public Object run() throws Exception {
+			dec.reset();
+			long read = 0;
+			for(int off = 0; off<encoded.length && !dec.isFinished(); off += CHUNK_SIZE) {
+				dec.decode(encoded, off, Math.min(CHUNK_SIZE, encoded.length-off));
+				read += dec.getOutputLength();
+			}
+			if(read!=size) {
+				throw new Exception("Decoded "+read+" bytes instead of "+size+".");
+			}
+			return read;
+		}
+
+		@Override
+		public long bytesPerOperation() {
+			return size;
+		}
+	}
+}
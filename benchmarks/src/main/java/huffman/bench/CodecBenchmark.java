@@ -0,0 +1,109 @@
+package huffman.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CodecBenchmark class. JMH benchmark of every stage of the codec over the synthetic corpora.
+ * Besides the time of an operation, the "bytes" counter reports the processed bytes per second,
+ * divide by 1048576 to get MB/s. Run with "-prof gc" to see the allocation rate of every stage.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+	/**
+	 * Stage of the codec, see Workloads.create.
+	 */
+	@Param({"histogram", "tree", "treeBuilder", "treeWrite", "treeParse", "treeParser", "encode", "decode",
+			"referenceEncode", "referenceDecode", "contextEncode", "contextDecode"})
+	public String workload;
+
+	/**
+	 * Corpus the stage runs over.
+	 */
+	@Param({"UNIFORM", "ZIPF_TEXT", "LOW_ENTROPY", "SINGLE_SYMBOL"})
+	public Corpus corpus;
+
+	/**
+	 * Size of the corpus in bytes.
+	 */
+	@Param({"16777216"})
+	public int size;
+
+	private Workload instance;
+
+	/**
+	 * Counter of processed bytes, reported by JMH as bytes per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Bytes {
+		/**
+		 * Bytes processed during the iteration.
+		 */
+		public long bytes;
+
+		/**
+		 * Clears the counter before every iteration.
+		 */
+		@Setup(Level.Iteration)
+		public void clear() {
+			bytes = 0;
+		}
+	}
+
+	/**
+	 * Generates the corpus and prepares the workload. The codec classes are in the default package,
+	 * so the workload is created reflectively through Workloads.
+	 * @throws Exception in case the workload is unknown or cannot be prepared.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		instance = (Workload) Class.forName("Workloads").getMethod("create", String.class).invoke(null, workload);
+		instance.setup(corpus.generate(size));
+	}
+
+	/**
+	 * Releases whatever the workload holds.
+	 * @throws Exception in case the workload cannot be closed.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if(instance instanceof AutoCloseable) {
+			((AutoCloseable) instance).close();
+		}
+	}
+
+	/**
+	 * The measured operation.
+	 * @param counter: Bytes, counter of processed bytes.
+	 * @return Object, result of the operation.
+	 * @throws Exception in case the operation fails.
+	 */
+	@Benchmark
+	public Object run(Bytes counter) throws Exception {
+		Object result = instance.run();
+		counter.bytes += instance.bytesPerOperation();
+		return result;
+	}
+}
@@ -0,0 +1,93 @@
+package huffman.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Corpus enum. Synthetic inputs the benchmarks are run over. Every corpus is generated from a fixed seed,
+ * so runs are comparable.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public enum Corpus {
+	/**
+	 * Uniformly random bytes, eight bits of entropy per byte.
+	 */
+	UNIFORM,
+	/**
+	 * Words of lowercase letters drawn with Zipf-distributed probabilities and separated by spaces and new lines.
+	 */
+	ZIPF_TEXT,
+	/**
+	 * Binary data of a few byte values with a strongly skewed distribution, mostly zeros.
+	 */
+	LOW_ENTROPY,
+	/**
+	 * A single byte value repeated.
+	 */
+	SINGLE_SYMBOL;
+
+	private static final long SEED = 0x48554641L;
+	private static final int WORDS = 4096;
+
+	/**
+	 * Call this method to generate the corpus.
+	 * @param size: int, number of bytes.
+	 * @return byte[], the corpus.
+	 */
+	public byte[] generate(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(SEED);
+		switch(this) {
+			case UNIFORM:
+				random.nextBytes(data);
+				break;
+			case ZIPF_TEXT:
+				zipfText(data, random);
+				break;
+			case LOW_ENTROPY:
+				for(int i = 0; i<size; i++) {
+					int r = random.nextInt(100);
+					data[i] = (byte) (r<80 ? 0 : r<90 ? 1 : r<95 ? 0xFF : r<98 ? 2 : random.nextInt(16));
+				}
+				break;
+			case SINGLE_SYMBOL:
+				Arrays.fill(data, (byte) 'a');
+				break;
+		}
+		return data;
+	}
+
+	/**
+	 * Private static method. Fills the array with words of a Zipf-distributed vocabulary.
+	 * @param data: byte[], array to be filled.
+	 * @param random: Random, source of randomness.
+	 */
+	private static void zipfText(byte[] data, Random random) {
+		byte[][] words = new byte[WORDS][];
+		for(int i = 0; i<WORDS; i++) {
+			byte[] word = new byte[1+random.nextInt(3)+Math.min(8, Integer.numberOfTrailingZeros(~i))];
+			for(int j = 0; j<word.length; j++) {
+				word[j] = (byte) ('a'+(int) Math.min(25, -Math.log(random.nextDouble())*5));
+			}
+			words[i] = word;
+		}
+		double[] cumulative = new double[WORDS];
+		double sum = 0;
+		for(int i = 0; i<WORDS; i++) {
+			sum += 1.0/(i+1);
+			cumulative[i] = sum;
+		}
+		int position = 0;
+		while(position<data.length) {
+			int index = Arrays.binarySearch(cumulative, random.nextDouble()*sum);
+			byte[] word = words[index<0 ? -index-1 : index];
+			for(int j = 0; j<word.length && position<data.length; j++) {
+				data[position++] = word[j];
+			}
+			if(position<data.length) {
+				data[position++] = (byte) (random.nextInt(12)==0 ? '\n' : ' ');
+			}
+		}
+	}
+}
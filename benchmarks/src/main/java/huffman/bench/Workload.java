@@ -0,0 +1,30 @@
+package huffman.bench;
+
+/**
+ * Workload interface. A single operation of the codec measured by CodecBenchmark.
+ * Implementations live in the default package next to the codec classes, see Workloads.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public interface Workload {
+
+	/**
+	 * Call this method once before measuring to prepare everything the operation needs.
+	 * @param data: byte[], the corpus the operation works on.
+	 * @throws Exception in case the corpus cannot be processed.
+	 */
+	void setup(byte[] data) throws Exception;
+
+	/**
+	 * The measured operation.
+	 * @return Object, result of the operation, consumed by the benchmark so it cannot be optimised away.
+	 * @throws Exception in case the operation fails.
+	 */
+	Object run() throws Exception;
+
+	/**
+	 * Getter.
+	 * @return long, number of bytes one operation processes, used to compute MB/s.
+	 */
+	long bytesPerOperation();
+}
@@ -0,0 +1,282 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * AdaptiveModelTest class. Checks that AdaptiveModel, which finds the leader of a block through its block index,
+ * updates the tree exactly as the linear scan for the leader it replaced, keeps the sibling property after every
+ * update, and that AdaptiveEncoder and AdaptiveDecoder round-trip data however it is split into chunks.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class AdaptiveModelTest {
+	private static final int TRIALS = 60;
+	private static final int UPDATES = 3000;
+
+	/**
+	 * Random streams of uniform, skewed and round-robin symbols over alphabets of any size leave both models
+	 * in identical state after every update, the sibling property holding throughout.
+	 */
+	@Test
+	public void matchesLinearScan() {
+		Random random = new Random(13);
+		for(int trial = 0; trial<TRIALS; trial++) {
+			AdaptiveModel model = new AdaptiveModel();
+			ScanModel reference = new ScanModel();
+			int alphabet = 1+random.nextInt(CodeTable.SYMBOLS);
+			for(int i = 0; i<UPDATES; i++) {
+				int symbol = nextSymbol(random, trial%3, alphabet, i);
+				model.update(symbol);
+				reference.update(symbol);
+				String where = "trial "+trial+", update "+i;
+				assertEquals(reference.nyt, model.nyt, where);
+				assertArrayEquals(reference.weights, model.weights, where);
+				assertArrayEquals(reference.symbols, model.symbols, where);
+				assertArrayEquals(reference.zeros, model.zeros, where);
+				assertArrayEquals(reference.leaves, model.leaves, where);
+				checkSiblingProperty(model, where);
+			}
+		}
+	}
+
+	/**
+	 * The model is back in its initial state after reset and updates the same as a new one.
+	 */
+	@Test
+	public void resetStartsOver() {
+		Random random = new Random(14);
+		AdaptiveModel model = new AdaptiveModel();
+		for(int i = 0; i<UPDATES; i++) {
+			model.update(random.nextInt(CodeTable.SYMBOLS));
+		}
+		model.reset();
+		AdaptiveModel fresh = new AdaptiveModel();
+		for(int i = 0; i<UPDATES; i++) {
+			int symbol = nextSymbol(random, 1, 40, i);
+			model.update(symbol);
+			fresh.update(symbol);
+		}
+		assertArrayEquals(fresh.weights, model.weights);
+		assertArrayEquals(fresh.symbols, model.symbols);
+		checkSiblingProperty(model, "after reset");
+	}
+
+	/**
+	 * Data encoded in random chunks is decoded back in other random chunks, for several streams in a row
+	 * through the same encoder, which resets its model on flush.
+	 * @throws Exception in case decoding fails.
+	 */
+	@Test
+	public void roundTripsInRandomChunks() throws Exception {
+		Random random = new Random(15);
+		AdaptiveEncoder encoder = new AdaptiveEncoder();
+		for(int trial = 0; trial<TRIALS; trial++) {
+			byte[] data = new byte[random.nextInt(20000)];
+			int alphabet = 1+random.nextInt(256);
+			for(int i = 0; i<data.length; i++) {
+				data[i] = (byte) nextSymbol(random, trial%3, alphabet, i);
+			}
+			ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+			for(int off = 0; off<data.length; ) {
+				int len = Math.min(data.length-off, random.nextInt(3000));
+				encoder.encode(data, off, len);
+				encoded.write(encoder.getOutput(), 0, encoder.getOutputLength());
+				off += len;
+			}
+			encoder.flush();
+			encoded.write(encoder.getOutput(), 0, encoder.getOutputLength());
+			assertArrayEquals(data, decode(encoded.toByteArray(), random), "trial "+trial);
+		}
+	}
+
+	/**
+	 * Private static method. Decodes a stream in chunks of 0 to 99 bytes.
+	 * @param encoded: byte[], the stream.
+	 * @param random: Random, source of chunk lengths.
+	 * @return byte[], the decoded data.
+	 * @throws Exception in case the stream is corrupted or EOF is missing.
+	 */
+	private static byte[] decode(byte[] encoded, Random random) throws Exception {
+		AdaptiveDecoder decoder = new AdaptiveDecoder();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int off = 0;
+		while(off<encoded.length && !decoder.isFinished()) {
+			int len = Math.min(encoded.length-off, random.nextInt(100));
+			decoder.decode(encoded, off, len);
+			out.write(decoder.getOutput(), 0, decoder.getOutputLength());
+			off += len;
+		}
+		assertTrue(decoder.isFinished(), "EOF not decoded");
+		return out.toByteArray();
+	}
+
+	/**
+	 * Private static method.
+	 * @param random: Random, source of the symbols.
+	 * @param kind: int, 0 for uniform, 1 for geometric, 2 for round-robin symbols.
+	 * @param alphabet: int, number of symbols, 1 to 257.
+	 * @param i: int, number of the symbol in the stream.
+	 * @return int, the next symbol.
+	 */
+	private static int nextSymbol(Random random, int kind, int alphabet, int i) {
+		if(kind==0) {
+			return random.nextInt(alphabet);
+		}
+		if(kind==2) {
+			return i%alphabet;
+		}
+		int symbol = 0;
+		while(symbol<alphabet-1 && random.nextInt(3)!=0) {
+			symbol++;
+		}
+		return symbol;
+	}
+
+	/**
+	 * Private static method. Checks the sibling property of the tree: weights never decrease with the number,
+	 * siblings are numbered next to each other, every internal node weighs as much as its children and every
+	 * position is linked from its parent and, for leaves, from the leaf table.
+	 * @param model: AdaptiveModel, the model.
+	 * @param where: String, description of the state, for failure messages.
+	 */
+	private static void checkSiblingProperty(AdaptiveModel model, String where) {
+		long[] weights = model.weights;
+		assertEquals(AdaptiveModel.NYT, model.symbols[model.nyt], where);
+		assertEquals(0, weights[model.nyt], where);
+		assertEquals(-1, model.parents[AdaptiveModel.ROOT], where);
+		for(int node = model.nyt; node<=AdaptiveModel.ROOT; node++) {
+			if(node<AdaptiveModel.ROOT) {
+				assertTrue(weights[node]<=weights[node+1], where+": weight of "+node+" above the next one");
+				int parent = model.parents[node];
+				assertTrue(model.zeros[parent]==node || model.ones[parent]==node, where+": "+node+" not a child of its parent");
+			}
+			int symbol = model.symbols[node];
+			if(symbol>=0) {
+				assertEquals(node, model.leaves[symbol], where);
+			} else if(symbol==AdaptiveModel.INTERNAL) {
+				int zero = model.zeros[node];
+				int one = model.ones[node];
+				assertEquals(zero+1, one, where+": children of "+node+" not siblings");
+				assertTrue(one<node, where);
+				assertEquals(weights[zero]+weights[one], weights[node], where+": weight of "+node);
+			}
+		}
+	}
+
+	/**
+	 * ScanModel class. The FGK update AdaptiveModel used to do, finding the leader of a block by scanning
+	 * upwards from the node, kept as the reference.
+	 */
+	private static class ScanModel {
+		final long[] weights = new long[AdaptiveModel.NODES];
+		final int[] parents = new int[AdaptiveModel.NODES];
+		final int[] zeros = new int[AdaptiveModel.NODES];
+		final int[] ones = new int[AdaptiveModel.NODES];
+		final int[] symbols = new int[AdaptiveModel.NODES];
+		final int[] leaves = new int[CodeTable.SYMBOLS];
+		int nyt = AdaptiveModel.ROOT;
+
+		/**
+		 * Constructor for the ScanModel class. The tree starts as a lone NYT leaf.
+		 */
+		ScanModel() {
+			Arrays.fill(leaves, -1);
+			Arrays.fill(symbols, AdaptiveModel.INTERNAL);
+			symbols[nyt] = AdaptiveModel.NYT;
+			parents[nyt] = -1;
+			zeros[nyt] = -1;
+			ones[nyt] = -1;
+		}
+
+		/**
+		 * Call this method after a symbol has been coded.
+		 * @param symbol: int, the symbol.
+		 */
+		void update(int symbol) {
+			int node = leaves[symbol];
+			if(node<0) {
+				node = split(symbol);
+			}
+			while(true) {
+				long weight = weights[node];
+				int leader = node;
+				while(leader<AdaptiveModel.ROOT && weights[leader+1]==weight) {
+					leader++;
+				}
+				if(leader!=node && leader!=parents[node]) {
+					swap(node, leader);
+					node = leader;
+				}
+				weights[node] = weight+1;
+				if(node==AdaptiveModel.ROOT) {
+					return;
+				}
+				node = parents[node];
+			}
+		}
+
+		/**
+		 * Private method. Splits the NYT leaf into a new NYT leaf and a leaf of the symbol.
+		 * @param symbol: int, symbol seen for the first time.
+		 * @return int, number of the new leaf of the symbol.
+		 */
+		private int split(int symbol) {
+			int node = nyt;
+			int newNyt = node-2;
+			int leaf = node-1;
+			symbols[node] = AdaptiveModel.INTERNAL;
+			zeros[node] = newNyt;
+			ones[node] = leaf;
+			parents[newNyt] = node;
+			parents[leaf] = node;
+			symbols[newNyt] = AdaptiveModel.NYT;
+			zeros[newNyt] = -1;
+			ones[newNyt] = -1;
+			symbols[leaf] = symbol;
+			zeros[leaf] = -1;
+			ones[leaf] = -1;
+			leaves[symbol] = leaf;
+			nyt = newNyt;
+			return leaf;
+		}
+
+		/**
+		 * Private method. Exchanges the subtrees held at two positions of equal weight.
+		 * @param a: int, number of the first node.
+		 * @param b: int, number of the second node.
+		 */
+		private void swap(int a, int b) {
+			int symbol = symbols[a];
+			symbols[a] = symbols[b];
+			symbols[b] = symbol;
+			int zero = zeros[a];
+			zeros[a] = zeros[b];
+			zeros[b] = zero;
+			int one = ones[a];
+			ones[a] = ones[b];
+			ones[b] = one;
+			relink(a);
+			relink(b);
+		}
+
+		/**
+		 * Private method. Points the leaf table or the children of a position back at it after a swap.
+		 * @param node: int, number of the node.
+		 */
+		private void relink(int node) {
+			int symbol = symbols[node];
+			if(symbol>=0) {
+				leaves[symbol] = node;
+			} else if(symbol==AdaptiveModel.INTERNAL) {
+				parents[zeros[node]] = node;
+				parents[ones[node]] = node;
+			}
+		}
+	}
+}
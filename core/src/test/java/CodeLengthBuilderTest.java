@@ -0,0 +1,223 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CodeLengthBuilderTest class. Checks the code lengths of package-merge, CodeLengthBuilder.build(long[], int):
+ * they never exceed the limit, form a complete prefix code and cost as little as the best lengths found
+ * by exhaustive search.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class CodeLengthBuilderTest {
+	private static final int TRIALS = 300;
+	private static final int SMALL_ALPHABET = 8;
+
+	/**
+	 * Skewed frequencies over alphabets up to 257 symbols, limited to every length from the shortest possible
+	 * to the unrestricted one, stay within the limit and keep the Kraft sum at exactly 1.
+	 * @throws Exception in case the lengths cannot be built.
+	 */
+	@Test
+	public void limitedAndComplete() throws Exception {
+		Random random = new Random(9);
+		for(int trial = 0; trial<TRIALS; trial++) {
+			long[] frequencies = skewed(random, 2+random.nextInt(CodeTable.SYMBOLS-1));
+			int unrestricted = longest(CodeLengthBuilder.build(frequencies));
+			for(int maxLength = shortestLimit(occurring(frequencies)); maxLength<=unrestricted+1; maxLength++) {
+				int[] lengths = CodeLengthBuilder.build(frequencies, maxLength);
+				String where = "trial "+trial+", maxLength "+maxLength;
+				assertTrue(longest(lengths)<=maxLength, where);
+				assertTrue(kraftIsOne(lengths), where+": Kraft sum not 1");
+				for(int symbol = 0; symbol<frequencies.length; symbol++) {
+					assertEquals(frequencies[symbol]>0, lengths[symbol]>0, where);
+				}
+			}
+		}
+	}
+
+	/**
+	 * On alphabets of 2 to 8 symbols the limited lengths cost exactly as many bits as the best length vector
+	 * found by trying all of them.
+	 * @throws Exception in case the lengths cannot be built.
+	 */
+	@Test
+	public void costMatchesExhaustiveOptimum() throws Exception {
+		Random random = new Random(10);
+		for(int trial = 0; trial<TRIALS; trial++) {
+			int n = 2+random.nextInt(SMALL_ALPHABET-1);
+			long[] frequencies = trial%2==0 ? skewed(random, n) : uniform(random, n);
+			for(int maxLength = shortestLimit(n); maxLength<=n-1; maxLength++) {
+				int[] lengths = CodeLengthBuilder.build(frequencies, maxLength);
+				assertEquals(optimum(frequencies, maxLength), CodeLengthBuilder.encodedBits(frequencies, lengths),
+						"trial "+trial+", frequencies "+Arrays.toString(frequencies)+", maxLength "+maxLength);
+			}
+		}
+	}
+
+	/**
+	 * A limit below ceil(log2 n) is refused, the limit of exactly ceil(log2 n) gives a code.
+	 * @throws Exception in case the lengths cannot be built at the shortest limit.
+	 */
+	@Test
+	public void limitBelowLog2Fails() throws Exception {
+		for(int n: new int[] {2, 3, 4, 5, 17, 100, CodeTable.SYMBOLS}) {
+			long[] frequencies = skewed(new Random(n), n);
+			int shortest = shortestLimit(n);
+			for(int maxLength = 0; maxLength<shortest; maxLength++) {
+				int limit = maxLength;
+				assertThrows(Exception.class, () -> CodeLengthBuilder.build(frequencies, limit), n+" symbols in "+limit+" bits");
+			}
+			int[] lengths = CodeLengthBuilder.build(frequencies, shortest);
+			assertTrue(longest(lengths)<=shortest);
+			assertTrue(kraftIsOne(lengths));
+		}
+	}
+
+	/**
+	 * A single symbol gets a one-bit code whatever the limit, no symbols get no codes.
+	 * @throws Exception in case the lengths cannot be built.
+	 */
+	@Test
+	public void degenerateAlphabets() throws Exception {
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		assertArrayEquals(new int[CodeTable.SYMBOLS], CodeLengthBuilder.build(frequencies, 1));
+		frequencies['x'] = 42;
+		int[] lengths = CodeLengthBuilder.build(frequencies, 1);
+		assertEquals(1, lengths['x']);
+		assertEquals(1, longest(lengths));
+	}
+
+	/**
+	 * Private static method. Finds the cheapest code lengths by trying every non-decreasing length vector
+	 * for the frequencies in descending order.
+	 * @param frequencies: long[], frequency of every symbol, all of them occurring.
+	 * @param maxLength: int, the longest allowed code length.
+	 * @return long, the fewest bits any prefix code within maxLength takes.
+	 */
+	private static long optimum(long[] frequencies, int maxLength) {
+		long[] sorted = frequencies.clone();
+		Arrays.sort(sorted);
+		for(int i = 0; i<sorted.length/2; i++) {
+			long frequency = sorted[i];
+			sorted[i] = sorted[sorted.length-1-i];
+			sorted[sorted.length-1-i] = frequency;
+		}
+		return search(sorted, 0, 1, 1L<<maxLength, maxLength);
+	}
+
+	/**
+	 * Private static method. Assigns lengths from the given one upwards to the remaining symbols.
+	 * @param sorted: long[], frequencies in descending order.
+	 * @param index: int, the first symbol without a length.
+	 * @param length: int, the shortest length the symbol may get.
+	 * @param space: long, the unused code space, in units of 2^-maxLength.
+	 * @param maxLength: int, the longest allowed code length.
+	 * @return long, the fewest bits the remaining symbols take, Long.MAX_VALUE if they do not fit.
+	 */
+	private static long search(long[] sorted, int index, int length, long space, int maxLength) {
+		if(index==sorted.length) {
+			return 0;
+		}
+		long best = Long.MAX_VALUE;
+		for(int l = length; l<=maxLength; l++) {
+			long used = 1L<<(maxLength-l);
+			if(used+sorted.length-index-1>space) {
+				continue;
+			}
+			long rest = search(sorted, index+1, l, space-used, maxLength);
+			if(rest!=Long.MAX_VALUE) {
+				best = Math.min(best, rest+sorted[index]*l);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Private static method.
+	 * @param lengths: int[], code length of every symbol, zero for symbols that do not occur.
+	 * @return boolean, true if the sum of 2^-length over occurring symbols is exactly 1.
+	 */
+	private static boolean kraftIsOne(int[] lengths) {
+		int longest = longest(lengths);
+		long sum = 0;
+		for(int length: lengths) {
+			if(length>0) {
+				sum += 1L<<(longest-length);
+			}
+		}
+		return sum==1L<<longest;
+	}
+
+	/**
+	 * Private static method.
+	 * @param lengths: int[], code lengths.
+	 * @return int, the longest of them.
+	 */
+	private static int longest(int[] lengths) {
+		int longest = 0;
+		for(int length: lengths) {
+			longest = Math.max(longest, length);
+		}
+		return longest;
+	}
+
+	/**
+	 * Private static method.
+	 * @param n: int, number of occurring symbols, at least 2.
+	 * @return int, ceil(log2 n), the shortest limit n symbols fit into.
+	 */
+	private static int shortestLimit(int n) {
+		return 32-Integer.numberOfLeadingZeros(n-1);
+	}
+
+	/**
+	 * Private static method.
+	 * @param frequencies: long[], frequency of every symbol.
+	 * @return int, number of symbols with a non-zero frequency.
+	 */
+	private static int occurring(long[] frequencies) {
+		int n = 0;
+		for(long frequency: frequencies) {
+			if(frequency>0) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Private static method. Frequencies spread over many orders of magnitude, so the unrestricted code
+	 * is deep and the limit has to act.
+	 * @param random: Random, source of the frequencies.
+	 * @param n: int, number of symbols.
+	 * @return long[], n non-zero frequencies.
+	 */
+	private static long[] skewed(Random random, int n) {
+		long[] frequencies = new long[n];
+		for(int i = 0; i<n; i++) {
+			frequencies[i] = 1+(random.nextLong()>>>(1+random.nextInt(62)))%(1L<<40);
+		}
+		return frequencies;
+	}
+
+	/**
+	 * Private static method.
+	 * @param random: Random, source of the frequencies.
+	 * @param n: int, number of symbols.
+	 * @return long[], n frequencies from 1 to 10.
+	 */
+	private static long[] uniform(Random random, int n) {
+		long[] frequencies = new long[n];
+		for(int i = 0; i<n; i++) {
+			frequencies[i] = 1+random.nextInt(10);
+		}
+		return frequencies;
+	}
+}
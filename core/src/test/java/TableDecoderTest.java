@@ -0,0 +1,205 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TableDecoderTest class. Checks that TableDecoder decodes exactly what the tree-walking Decoder, kept as
+ * the reference implementation, decodes, whatever the data and however the encoded file is split into chunks.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class TableDecoderTest {
+	private static final int LENGTH = 200000;
+
+	/**
+	 * Random bytes, coded in about 8 bits each.
+	 * @throws Exception in case decoding fails.
+	 */
+	@Test
+	public void randomBytes() throws Exception {
+		byte[] data = new byte[LENGTH];
+		new Random(1).nextBytes(data);
+		checkEquivalence(data);
+	}
+
+	/**
+	 * Bytes of a geometric distribution, whose rare codewords are longer than the primary table.
+	 * @throws Exception in case decoding fails.
+	 */
+	@Test
+	public void skewedBytes() throws Exception {
+		Random random = new Random(2);
+		byte[] data = new byte[LENGTH];
+		for(int i = 0; i<data.length; i++) {
+			int symbol = 0;
+			while(symbol<255 && random.nextBoolean()) {
+				symbol++;
+			}
+			data[i] = (byte) symbol;
+		}
+		checkEquivalence(data);
+	}
+
+	/**
+	 * Bytes coded with a table of frequencies doubling from symbol to symbol, whose codewords are up to 48 bits long.
+	 * @throws Exception in case decoding fails.
+	 */
+	@Test
+	public void longCodewords() throws Exception {
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		for(int symbol = 0; symbol<48; symbol++) {
+			frequencies[symbol] = 1L<<symbol;
+		}
+		frequencies[CodeTable.EOF] = 1;
+		CodeTable table = CodeTable.canonical(CodeLengthBuilder.build(frequencies));
+		assertTrue(table.getMaxLength()>32);
+		Random random = new Random(4);
+		byte[] data = new byte[LENGTH/10];
+		for(int i = 0; i<data.length; i++) {
+			data[i] = (byte) random.nextInt(48);
+		}
+		checkEquivalence(table, data);
+	}
+
+	/**
+	 * A single byte repeated, coded in a bit each, two symbols per lookup.
+	 * @throws Exception in case decoding fails.
+	 */
+	@Test
+	public void singleSymbol() throws Exception {
+		byte[] data = new byte[LENGTH];
+		Arrays.fill(data, (byte) 'a');
+		checkEquivalence(data);
+		checkEquivalence(new byte[] {'a'});
+	}
+
+	/**
+	 * An empty file, whose tree is a single final node of EOF.
+	 * @throws Exception in case decoding fails.
+	 */
+	@Test
+	public void emptyInput() throws Exception {
+		checkEquivalence(new byte[0]);
+	}
+
+	/**
+	 * The bounded overload decodes into exactly the original length and reports a symbol beyond it as corruption.
+	 * @throws Exception in case decoding fails.
+	 */
+	@Test
+	public void boundedOutput() throws Exception {
+		byte[] data = new byte[LENGTH];
+		new Random(3).nextBytes(data);
+		CodeTable table = tableOf(data);
+		byte[] encoded = encode(table, data);
+		byte[] out = new byte[data.length];
+		TableDecoder decoder = new TableDecoder(table);
+		assertEquals(data.length, decoder.decode(encoded, 0, encoded.length, out, 0, out.length));
+		assertTrue(decoder.isFinished());
+		assertArrayEquals(data, out);
+		TableDecoder shortDecoder = new TableDecoder(table);
+		assertThrows(Exception.class, () -> shortDecoder.decode(encoded, 0, encoded.length, out, 0, out.length-1));
+	}
+
+	/**
+	 * Private static method. Encodes the data with a table of its own, see checkEquivalence(CodeTable, byte[]).
+	 * @param data: byte[], the original data.
+	 * @throws Exception in case decoding fails.
+	 */
+	private static void checkEquivalence(byte[] data) throws Exception {
+		checkEquivalence(tableOf(data), data);
+	}
+
+	/**
+	 * Private static method. Encodes the data and decodes it with both decoders, whole and in random chunks.
+	 * @param table: CodeTable, codewords to encode with.
+	 * @param data: byte[], the original data.
+	 * @throws Exception in case decoding fails.
+	 */
+	private static void checkEquivalence(CodeTable table, byte[] data) throws Exception {
+		byte[] encoded = encode(table, data);
+		byte[] reference = decodeWithDecoder(table, encoded);
+		assertArrayEquals(data, reference);
+		assertArrayEquals(reference, decodeWithTableDecoder(table, encoded, new Random(data.length)));
+		assertArrayEquals(reference, decodeWithTableDecoder(table, encoded, null));
+	}
+
+	/**
+	 * Private static method.
+	 * @param data: byte[], the original data.
+	 * @return CodeTable, canonical codewords built from the frequencies of the data, EOF occurring once.
+	 * @throws Exception in case the table cannot be built.
+	 */
+	private static CodeTable tableOf(byte[] data) throws Exception {
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		for(byte b: data) {
+			frequencies[b&0xFF]++;
+		}
+		frequencies[CodeTable.EOF] = 1;
+		return CodeTable.canonical(CodeLengthBuilder.build(frequencies));
+	}
+
+	/**
+	 * Private static method.
+	 * @param table: CodeTable, codewords to encode with.
+	 * @param data: byte[], the original data.
+	 * @return byte[], the data encoded by TableEncoder, followed by EOF.
+	 * @throws Exception in case a byte has no codeword.
+	 */
+	private static byte[] encode(CodeTable table, byte[] data) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TableEncoder encoder = new TableEncoder(table);
+		encoder.encode(data, 0, data.length);
+		out.write(encoder.getOutput(), 0, encoder.getOutputLength());
+		encoder.flush();
+		out.write(encoder.getOutput(), 0, encoder.getOutputLength());
+		return out.toByteArray();
+	}
+
+	/**
+	 * Private static method. Decodes with the reference Decoder, a byte at a time.
+	 * @param table: CodeTable, codewords the data was encoded with.
+	 * @param encoded: byte[], the encoded data.
+	 * @return byte[], the decoded data.
+	 * @throws Exception in case the encoded data is corrupted or EOF is missing.
+	 */
+	private static byte[] decodeWithDecoder(CodeTable table, byte[] encoded) throws Exception {
+		Decoder decoder = new Decoder(table.toTree());
+		byte[] out = new byte[8*encoded.length];
+		int written = 0;
+		for(int i = 0; i<encoded.length && !decoder.isFinished(); i++) {
+			written += decoder.decode(encoded, i, 1, out, written);
+		}
+		assertTrue(decoder.isFinished() || encoded.length==0, "EOF not decoded");
+		return Arrays.copyOf(out, written);
+	}
+
+	/**
+	 * Private static method. Decodes with TableDecoder.
+	 * @param table: CodeTable, codewords the data was encoded with.
+	 * @param encoded: byte[], the encoded data.
+	 * @param random: Random, source of chunk lengths between 1 and 20 bytes, null to decode all at once.
+	 * @return byte[], the decoded data.
+	 * @throws Exception in case the encoded data is corrupted or EOF is missing.
+	 */
+	private static byte[] decodeWithTableDecoder(CodeTable table, byte[] encoded, Random random) throws Exception {
+		TableDecoder decoder = new TableDecoder(table);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int position = 0;
+		do {
+			int length = random==null ? encoded.length-position : Math.min(encoded.length-position, 1+random.nextInt(20));
+			decoder.decode(encoded, position, length);
+			out.write(decoder.getOutput(), 0, decoder.getOutputLength());
+			position += length;
+		} while(position<encoded.length && !decoder.isFinished());
+		assertTrue(decoder.isFinished(), "EOF not decoded");
+		return out.toByteArray();
+	}
+}
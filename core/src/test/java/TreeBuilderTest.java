@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TreeBuilderTest class. Checks that a file encoded with the tree built by TreeBuilder is decoded back with
+ * the .tree file of that tree, as Encode -sidecar and Decode -usingTree: do, also when the final nodes of '-'
+ * and EOF are siblings, whose six hyphens the readers take with EOF first.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class TreeBuilderTest {
+	private static final byte[] HYPHEN_NEXT_TO_EOF = "aaaaabbbb-".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * The canonical tree of the file holds '-' before EOF. The written tree holds EOF first, and data encoded
+	 * with the codewords of the written tree is decoded back with the .tree file.
+	 * @throws Exception in case the tree cannot be built, written or read back.
+	 */
+	@Test
+	public void hyphenNextToEofRoundTrip() throws Exception {
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		for(byte b: HYPHEN_NEXT_TO_EOF) {
+			frequencies[b&0xFF]++;
+		}
+		frequencies[CodeTable.EOF] = 1;
+		CodeTable table = CodeTable.canonical(CodeLengthBuilder.build(frequencies));
+		assertEquals(table.getLength('-'), table.getLength(CodeTable.EOF));
+		assertTrue(table.getCode('-')<table.getCode(CodeTable.EOF));
+		CodeTree written = table.getCodeTree().forTreeFile();
+		byte[] content = written.toTreeFile();
+		assertEquals("{-a{-b{------}}}", new String(content, StandardCharsets.US_ASCII));
+		assertArrayEquals(content, table.getCodeTree().toTreeFile());
+		CodeTable encoding = written.toTable();
+		assertEquals(table.getCode('-'), encoding.getCode(CodeTable.EOF));
+		assertEquals(table.getCode(CodeTable.EOF), encoding.getCode('-'));
+		assertArrayEquals(HYPHEN_NEXT_TO_EOF, decode(CodeTable.fromTreeFile(content), encode(encoding, HYPHEN_NEXT_TO_EOF)));
+		assertArrayEquals(HYPHEN_NEXT_TO_EOF, decode(rebuild(content), encode(encoding, HYPHEN_NEXT_TO_EOF)));
+	}
+
+	/**
+	 * buildTree returns the tree its .tree file describes, so callers of the TreeNode API encoding with it
+	 * and writing it with generateOutputContent produce files that decode back.
+	 * @throws Exception in case the tree cannot be built, written or read back.
+	 */
+	@Test
+	public void buildTreeMatchesItsTreeFile() throws Exception {
+		Path file = Files.createTempFile("treeBuilder", ".txt");
+		try {
+			Files.write(file, HYPHEN_NEXT_TO_EOF);
+			TreeNode tree = new TreeBuilder(file.toString()).buildTree();
+			byte[] content = tree.generateOutputContent();
+			CodeTable encoding = CodeTable.fromTree(tree);
+			TreeNodeTest.assertCodesEqual(encoding, CodeTable.fromTreeFile(content));
+			TreeNodeTest.assertCodesEqual(encoding, rebuild(content));
+			assertArrayEquals(HYPHEN_NEXT_TO_EOF, decode(CodeTable.fromTreeFile(content), encode(encoding, HYPHEN_NEXT_TO_EOF)));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Private static method.
+	 * @param table: CodeTable, codewords to encode with.
+	 * @param data: byte[], the original data.
+	 * @return byte[], the data encoded by TableEncoder, followed by EOF.
+	 * @throws Exception in case a byte has no codeword.
+	 */
+	private static byte[] encode(CodeTable table, byte[] data) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TableEncoder encoder = new TableEncoder(table);
+		encoder.encode(data, 0, data.length);
+		out.write(encoder.getOutput(), 0, encoder.getOutputLength());
+		encoder.flush();
+		out.write(encoder.getOutput(), 0, encoder.getOutputLength());
+		return out.toByteArray();
+	}
+
+	/**
+	 * Private static method.
+	 * @param table: CodeTable, codewords the data was encoded with.
+	 * @param encoded: byte[], the encoded data.
+	 * @return byte[], the data decoded by TableDecoder up to EOF.
+	 * @throws Exception in case the encoded data is corrupted.
+	 */
+	private static byte[] decode(CodeTable table, byte[] encoded) throws Exception {
+		TableDecoder decoder = new TableDecoder(table);
+		decoder.decode(encoded, 0, encoded.length);
+		assertTrue(decoder.isFinished(), "EOF not decoded");
+		return Arrays.copyOf(decoder.getOutput(), decoder.getOutputLength());
+	}
+
+	/**
+	 * Private static method. Reads a tree the way CodeTable.fromTreeFile used to.
+	 * @param content: byte[], content of the .tree file.
+	 * @return CodeTable, the codewords.
+	 * @throws Exception in case the tree is corrupted.
+	 */
+	private static CodeTable rebuild(byte[] content) throws Exception {
+		TreeRebuilder rebuilder = new TreeRebuilder();
+		for(byte b: content) {
+			rebuilder.nextByte(b);
+		}
+		return CodeTable.fromTree(rebuilder.getTree());
+	}
+}
@@ -0,0 +1,231 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TreeNodeTest class. Checks that the serialization of trees and the assignment of addresses, done with explicit
+ * stacks, give the same results as the recursive implementation they replaced, for trees of any depth.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class TreeNodeTest {
+	private static final int CHAIN_DEPTH = 20000;
+
+	/**
+	 * Serialization equals the recursive one for trees of several distributions, and CodeTree writes the same bytes.
+	 * @throws Exception in case a tree cannot be built.
+	 */
+	@Test
+	public void serializationMatchesRecursive() throws Exception {
+		for(long[] frequencies: distributions()) {
+			CodeTable table = CodeTable.canonical(CodeLengthBuilder.build(frequencies));
+			TreeNode root = table.toTree();
+			byte[] content = root.generateOutputContent();
+			assertArrayEquals(recursiveOutput(root), content);
+			assertEquals(content.length, root.getOutputLength());
+			assertArrayEquals(content, table.getCodeTree().toTreeFile());
+		}
+	}
+
+	/**
+	 * Serialized trees are read back by TreeRebuilder as the codewords of the tree as written, which are
+	 * the codewords of the table, but for '-' and EOF exchanged when they are siblings.
+	 * @throws Exception in case a tree cannot be built or read back.
+	 */
+	@Test
+	public void roundTripThroughTreeRebuilder() throws Exception {
+		for(long[] frequencies: distributions()) {
+			CodeTable table = CodeTable.canonical(CodeLengthBuilder.build(frequencies));
+			TreeRebuilder rebuilder = new TreeRebuilder();
+			for(byte b: table.toTree().generateOutputContent()) {
+				rebuilder.nextByte(b);
+			}
+			CodeTable rebuilt = CodeTable.fromTree(rebuilder.getTree());
+			assertCodesEqual(table.getCodeTree().forTreeFile().toTable(), rebuilt);
+			assertArrayEquals(table.getLengths(), rebuilt.getLengths());
+		}
+	}
+
+	/**
+	 * Final nodes of '-' and EOF that are siblings are written with EOF first, so their six hyphens read back
+	 * as the tree written, and forTreeFile exchanges their codewords.
+	 * @throws Exception in case the tree cannot be built or read back.
+	 */
+	@Test
+	public void hyphenAndEofSiblings() throws Exception {
+		CodeTable table = CodeTable.canonical(CodeLengthBuilder.build(distributions()[4]));
+		assertEquals(table.getCode('-')^1, table.getCode(CodeTable.EOF));
+		assertEquals("{-a{-b{------}}}", new String(table.toTree().generateOutputContent(), StandardCharsets.US_ASCII));
+		CodeTable written = table.getCodeTree().forTreeFile().toTable();
+		assertEquals(table.getCode('-'), written.getCode(CodeTable.EOF));
+		assertEquals(table.getCode(CodeTable.EOF), written.getCode('-'));
+		assertEquals(table.getCode('a'), written.getCode('a'));
+	}
+
+	/**
+	 * Addresses assigned by makeAddress equal the codewords of the table.
+	 * @throws Exception in case a tree cannot be built.
+	 */
+	@Test
+	public void addressesEqualCodewords() throws Exception {
+		for(long[] frequencies: distributions()) {
+			CodeTable table = CodeTable.canonical(CodeLengthBuilder.build(frequencies));
+			TreeNode root = table.toTree();
+			root.makeAddress();
+			checkAddresses(root, table);
+		}
+	}
+
+	/**
+	 * A chain deeper than the call stack allows for recursion is serialized and addressed.
+	 */
+	@Test
+	public void deepChain() {
+		TreeNode eof = new TreeNode(-1);
+		TreeNode root = eof;
+		for(int i = 0; i<CHAIN_DEPTH; i++) {
+			TreeNode parent = new TreeNode();
+			parent.setNode1(new TreeNode(i&0xFF));
+			parent.setNode2(root);
+			root = parent;
+		}
+		root.makeAddress();
+		assertEquals("0", root.getNode1().getAddress());
+		assertEquals("1".repeat(CHAIN_DEPTH), eof.getAddress());
+		byte[] content = root.generateOutputContent();
+		assertEquals(4*CHAIN_DEPTH+4, content.length);
+		assertEquals(content.length, root.getOutputLength());
+		assertEquals('{', content[0]);
+		assertEquals("----}", new String(content, content.length-CHAIN_DEPTH-4, 5, StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Counts above the int range add up and order nodes in full, while getOccurances saturates for old callers.
+	 */
+	@Test
+	public void occurancesBeyondInt() {
+		TreeNode big = new TreeNode((int) 'a', 3L*Integer.MAX_VALUE);
+		TreeNode bigger = new TreeNode((int) 'b', 3L*Integer.MAX_VALUE+1);
+		TreeNode small = new TreeNode((int) 'c', 7);
+		assertEquals(Integer.MAX_VALUE, big.getOccurances());
+		assertEquals(7, small.getOccurances());
+		assertEquals(6L*Integer.MAX_VALUE+1, new TreeNode(big, bigger).getOccurancesLong());
+		assertEquals(1, new nodesComparator().compare(big, bigger));
+		assertEquals(-1, new nodesComparator().compare(big, small));
+	}
+
+	/**
+	 * Private static method. Frequencies of a text, of random bytes, of a Fibonacci distribution, which gives
+	 * the deepest tree for its number of symbols, of a single byte and of "aaaaabbbb-", whose final nodes
+	 * of '-' and EOF are siblings.
+	 * @return long[][], the frequencies of the 257 symbols, EOF occurring once.
+	 */
+	private static long[][] distributions() {
+		long[] text = new long[CodeTable.SYMBOLS];
+		for(byte b: "The quick brown fox jumps over the lazy dog, {-} ----.".repeat(50).getBytes(StandardCharsets.US_ASCII)) {
+			text[b&0xFF]++;
+		}
+		long[] random = new long[CodeTable.SYMBOLS];
+		Random r = new Random(22);
+		for(int i = 0; i<100000; i++) {
+			random[r.nextInt(256)]++;
+		}
+		long[] fibonacci = new long[CodeTable.SYMBOLS];
+		long a = 1;
+		long b = 1;
+		for(int symbol = 0; symbol<60; symbol++) {
+			fibonacci[symbol] = a;
+			long next = a+b;
+			a = b;
+			b = next;
+		}
+		long[] single = new long[CodeTable.SYMBOLS];
+		single['a'] = 1000;
+		long[] hyphen = new long[CodeTable.SYMBOLS];
+		hyphen['a'] = 5;
+		hyphen['b'] = 4;
+		hyphen['-'] = 1;
+		long[][] distributions = {text, random, fibonacci, single, hyphen};
+		for(long[] frequencies: distributions) {
+			frequencies[CodeTable.EOF] = 1;
+		}
+		return distributions;
+	}
+
+	/**
+	 * Private static method. The recursive serialization generateOutputContent used to do, kept as the reference,
+	 * writing a final node of '-' after its sibling EOF.
+	 * @param node: TreeNode, node to be serialized with the nodes it contains.
+	 * @return byte[], the content.
+	 */
+	private static byte[] recursiveOutput(TreeNode node) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		recursiveOutput(node, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Private static method. See recursiveOutput(TreeNode).
+	 * @param node: TreeNode, node to be serialized with the nodes it contains.
+	 * @param out: ByteArrayOutputStream, stream the content is written into.
+	 */
+	private static void recursiveOutput(TreeNode node, ByteArrayOutputStream out) {
+		if(node.isFinal()) {
+			out.write('-');
+			if(node.getContent()==-1) {
+				out.write('-');
+				out.write('-');
+				out.write('-');
+			} else {
+				out.write(node.getContent());
+			}
+			return;
+		}
+		out.write('{');
+		TreeNode first = node.getNode1();
+		TreeNode second = node.getNode2();
+		if(first.isFinal() && second.isFinal() && first.getContent()=='-' && second.getContent()==-1) {
+			first = node.getNode2();
+			second = node.getNode1();
+		}
+		recursiveOutput(first, out);
+		recursiveOutput(second, out);
+		out.write('}');
+	}
+
+	/**
+	 * Private static method. Checks the address of every final node against the codeword of its symbol.
+	 * @param node: TreeNode, node whose final nodes are checked.
+	 * @param table: CodeTable, the codewords.
+	 */
+	private static void checkAddresses(TreeNode node, CodeTable table) {
+		if(!node.isFinal()) {
+			checkAddresses(node.getNode1(), table);
+			checkAddresses(node.getNode2(), table);
+			return;
+		}
+		int symbol = node.getContent()==-1 ? CodeTable.EOF : node.getContent();
+		StringBuilder code = new StringBuilder(Long.toBinaryString(table.getCode(symbol)));
+		while(code.length()<table.getLength(symbol)) {
+			code.insert(0, '0');
+		}
+		assertEquals(code.toString(), node.getAddress(), "address of symbol "+symbol);
+	}
+
+	/**
+	 * Static method. Checks that two tables hold the same codewords. Used by the other tests of trees too.
+	 * @param expected: CodeTable, the expected table.
+	 * @param actual: CodeTable, the table checked.
+	 */
+	static void assertCodesEqual(CodeTable expected, CodeTable actual) {
+		assertArrayEquals(expected.getLengths(), actual.getLengths());
+		for(int symbol = 0; symbol<CodeTable.SYMBOLS; symbol++) {
+			assertEquals(expected.getCode(symbol), actual.getCode(symbol), "codeword of symbol "+symbol);
+		}
+	}
+}
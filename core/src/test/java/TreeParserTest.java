@@ -0,0 +1,242 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TreeParserTest class. Compares TreeParser with TreeRebuilder, which it replaced in CodeTable.fromTreeFile,
+ * over generated and randomly mutated .tree files, and checks the offsets reported for corrupted files.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class TreeParserTest {
+	private static final int TREES = 20000;
+	private static final String MUTATIONS = "{}-a\u00FF";
+
+	/**
+	 * Generated trees, many of them holding '-' and EOF as siblings, are parsed back into the codewords of the tree
+	 * as written, CodeTree.forTreeFile, and the same as TreeRebuilder reads them. TreeRebuilder does not read trees
+	 * of a single final node, nor trees of a 0xFF final node without EOF the same, see ffLeafDivergence.
+	 * @throws Exception in case a tree cannot be built or parsed.
+	 */
+	@Test
+	public void generatedTreesMatchTreeRebuilder() throws Exception {
+		Random random = new Random(23);
+		int siblings = 0;
+		for(int i = 0; i<TREES; i++) {
+			CodeTable table = CodeTable.canonical(CodeLengthBuilder.build(randomFrequencies(random, i)));
+			byte[] content = table.getCodeTree().toTreeFile();
+			CodeTable parsed = TreeParser.parse(content).toTable();
+			TreeNodeTest.assertCodesEqual(table.getCodeTree().forTreeFile().toTable(), parsed);
+			boolean ffLeaf = table.getLength(0xFF)>0 && table.getLength(CodeTable.EOF)==0;
+			if(table.getCodeTree().getSize()>1 && !ffLeaf) {
+				TreeNodeTest.assertCodesEqual(rebuild(content), parsed);
+			}
+			if(new String(content, StandardCharsets.ISO_8859_1).contains("------")) {
+				siblings++;
+			}
+		}
+		assertTrue(siblings>TREES/100, "only "+siblings+" trees of '-' and EOF as siblings");
+	}
+
+	/**
+	 * Whenever both parsers accept a mutated or truncated tree, they read the same codewords, unless the tree holds
+	 * a 0xFF final node, see ffLeafDivergence.
+	 * @throws Exception in case a tree cannot be built.
+	 */
+	@Test
+	public void mutatedTreesAgreeWithTreeRebuilder() throws Exception {
+		Random random = new Random(23);
+		int compared = 0;
+		for(int i = 0; i<TREES; i++) {
+			CodeTable table = CodeTable.canonical(CodeLengthBuilder.build(randomFrequencies(random, i)));
+			byte[] content = table.getCodeTree().toTreeFile();
+			if(i%2==0) {
+				content[random.nextInt(content.length)] = (byte) MUTATIONS.charAt(random.nextInt(MUTATIONS.length()));
+			} else {
+				content = Arrays.copyOf(content, random.nextInt(content.length));
+			}
+			CodeTable parsed = parseOrNull(content);
+			CodeTable rebuilt = rebuildOrNull(content);
+			if(parsed==null || rebuilt==null || new String(content, StandardCharsets.ISO_8859_1).indexOf('\u00FF')>=0) {
+				continue;
+			}
+			TreeNodeTest.assertCodesEqual(rebuilt, parsed);
+			compared++;
+		}
+		assertTrue(compared>TREES/20, "only "+compared+" mutated trees accepted by both parsers");
+	}
+
+	/**
+	 * The one known difference: TreeRebuilder takes a 0xFF final node for EOF, TreeParser for byte 255.
+	 * @throws Exception in case the tree cannot be parsed.
+	 */
+	@Test
+	public void ffLeafDivergence() throws Exception {
+		byte[] content = {'{', '-', 'a', '-', (byte) 0xFF, '}'};
+		CodeTable parsed = TreeParser.parse(content).toTable();
+		assertEquals(1, parsed.getLength(0xFF));
+		assertEquals(0, parsed.getLength(CodeTable.EOF));
+		CodeTable rebuilt = rebuild(content);
+		assertEquals(0, rebuilt.getLength(0xFF));
+		assertEquals(1, rebuilt.getLength(CodeTable.EOF));
+	}
+
+	/**
+	 * Four hyphens are read as EOF whenever they are waiting to be interpreted, as TreeRebuilder does.
+	 * A tree holding '-' before its sibling EOF is therefore written EOF first and read back so.
+	 * @throws Exception in case a tree cannot be built or parsed.
+	 */
+	@Test
+	public void hyphensReadGreedily() throws Exception {
+		CodeTable table = TreeParser.parse(bytes("{-a----}")).toTable();
+		assertEquals(1, table.getLength('a'));
+		assertEquals(1, table.getLength(CodeTable.EOF));
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		frequencies['-'] = 1;
+		frequencies[CodeTable.EOF] = 1;
+		CodeTable hyphenFirst = CodeTable.canonical(CodeLengthBuilder.build(frequencies));
+		assertEquals(0, hyphenFirst.getCode('-'));
+		byte[] content = hyphenFirst.getCodeTree().toTreeFile();
+		assertEquals("{------}", new String(content, StandardCharsets.ISO_8859_1));
+		table = TreeParser.parse(content).toTable();
+		assertEquals(0, table.getCode(CodeTable.EOF));
+		assertEquals(1, table.getCode('-'));
+		TreeNodeTest.assertCodesEqual(hyphenFirst.getCodeTree().forTreeFile().toTable(), table);
+		TreeNodeTest.assertCodesEqual(rebuild(content), table);
+	}
+
+	/**
+	 * A tree of a single final node, written for empty files, is accepted.
+	 * @throws Exception in case the tree cannot be parsed.
+	 */
+	@Test
+	public void singleFinalNode() throws Exception {
+		CodeTree tree = TreeParser.parse(bytes("----"));
+		assertEquals(1, tree.getSize());
+		assertEquals(CodeTable.EOF, tree.getSymbol(0));
+		tree = TreeParser.parse(bytes("-a"));
+		assertEquals(1, tree.getSize());
+		assertEquals('a', tree.getSymbol(0));
+	}
+
+	/**
+	 * Corrupted files are reported with the offset of the first wrong byte and the problem. A wrong final node
+	 * is reported at its content.
+	 */
+	@Test
+	public void errorOffsets() {
+		assertCorrupted("", 0, "no node");
+		assertCorrupted("-", 1, "final node without content");
+		assertCorrupted("}", 0, "'}' without a matching '{'");
+		assertCorrupted("{-a-b", 5, "node opened but not closed");
+		assertCorrupted("{-a}", 3, "node with fewer than two children");
+		assertCorrupted("{-a-b-c}", 6, "node with more than two children");
+		assertCorrupted("{-a-a}", 4, "byte 97 held twice");
+		assertCorrupted("{--------}", 5, "EOF held twice");
+		assertCorrupted("{-ax-b}", 3, "unexpected byte 0x78");
+		assertCorrupted("{-a-b}}", 6, "'}' without a matching '{'");
+		assertCorrupted("{-a-b}{-c-d}", 6, "node outside of the tree");
+		assertCorrupted("{-a-b}-c", 7, "node outside of the tree");
+		assertCorrupted("{".repeat(CodeTable.MAX_CODE_LENGTH+1)+"-a", CodeTable.MAX_CODE_LENGTH+2,
+				"codeword longer than "+CodeTable.MAX_CODE_LENGTH+" bits");
+	}
+
+	/**
+	 * Offsets are counted from the position of a buffer, which is left unchanged.
+	 */
+	@Test
+	public void offsetsFromBufferPosition() {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes("xyz{-a-b-c}"));
+		buffer.position(3);
+		Exception e = assertThrows(Exception.class, () -> TreeParser.parse(buffer));
+		assertEquals("Tree file (.tree) corrupted at byte 6: node with more than two children.", e.getMessage());
+		assertEquals(3, buffer.position());
+	}
+
+	/**
+	 * Private static method. Random frequencies of a few or of many symbols. Every other set holds '-' and EOF,
+	 * whose final nodes may be written next to each other.
+	 * @param random: Random, source of the frequencies.
+	 * @param i: int, number of the set.
+	 * @return long[], frequencies of the 257 symbols.
+	 */
+	private static long[] randomFrequencies(Random random, int i) {
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		int symbols = 1+random.nextInt(i%3==0 ? CodeTable.SYMBOLS : 6);
+		for(int symbol = 0; symbol<symbols; symbol++) {
+			frequencies[random.nextInt(CodeTable.SYMBOLS)] += 1+random.nextInt(1000);
+		}
+		if(i%2==0) {
+			frequencies['-'] += 1+random.nextInt(3);
+			frequencies[CodeTable.EOF] = 1+random.nextInt(3);
+		}
+		return frequencies;
+	}
+
+	/**
+	 * Private static method. Reads a tree the way CodeTable.fromTreeFile used to.
+	 * @param content: byte[], content of the .tree file.
+	 * @return CodeTable, the codewords.
+	 * @throws Exception in case the tree is corrupted.
+	 */
+	private static CodeTable rebuild(byte[] content) throws Exception {
+		TreeRebuilder rebuilder = new TreeRebuilder();
+		for(byte b: content) {
+			rebuilder.nextByte(b);
+		}
+		return CodeTable.fromTree(rebuilder.getTree());
+	}
+
+	/**
+	 * Private static method. See rebuild. TreeRebuilder reports some corrupted trees with runtime exceptions.
+	 * @param content: byte[], content of the .tree file.
+	 * @return CodeTable, the codewords, or null if the tree is rejected.
+	 */
+	private static CodeTable rebuildOrNull(byte[] content) {
+		try {
+			return rebuild(content);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Private static method.
+	 * @param content: byte[], content of the .tree file.
+	 * @return CodeTable, the codewords read by TreeParser, or null if the tree is rejected.
+	 */
+	private static CodeTable parseOrNull(byte[] content) {
+		try {
+			return TreeParser.parse(content).toTable();
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Private static method. Checks the message TreeParser rejects a tree with.
+	 * @param content: String, content of the .tree file.
+	 * @param offset: int, expected offset of the wrong byte.
+	 * @param reason: String, expected problem.
+	 */
+	private static void assertCorrupted(String content, int offset, String reason) {
+		Exception e = assertThrows(Exception.class, () -> TreeParser.parse(bytes(content)), content);
+		assertEquals("Tree file (.tree) corrupted at byte "+offset+": "+reason+".", e.getMessage(), content);
+	}
+
+	/**
+	 * Private static method.
+	 * @param content: String, text of single byte characters.
+	 * @return byte[], the bytes.
+	 */
+	private static byte[] bytes(String content) {
+		return content.getBytes(StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,165 @@
+/**
+ * AdaptiveDecoder class. Create an instance of to decode a stream encoded with AdaptiveEncoder class.
+ * The tree is walked one bit at a time through an AdaptiveModel, which is updated after every decoded byte
+ * in the same way as in the encoder. The walk resumes across chunks.
+ * Operate through dynamic method "decode", then read the result through "getOutput" and "getOutputLength".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class AdaptiveDecoder implements ChunkDecoder {
+	private final AdaptiveModel model = new AdaptiveModel();
+	private int node = AdaptiveModel.ROOT;
+	private int rawBits;
+	private int rawSymbol;
+	private boolean finished;
+	private byte[] output = new byte[0];
+	private int outputLength;
+
+	/**
+	 * The primary method for AdaptiveDecoder object. Supply this method with consecutive chunks of the encoded stream.
+	 * Bytes decoded from the chunk are available through getOutput until the next call.
+	 * Input supplied after EOF symbol has been decoded is ignored.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @throws Exception in case the encoded data is corrupted.
+	 */
+	@Override
+	public void decode(byte[] in, int off, int len) throws Exception {
+		outputLength = 0;
+		if(finished) {
+			return;
+		}
+		if(output.length<getMaxOutput(len)) {
+			output = new byte[getMaxOutput(len)];
+		}
+		outputLength = decode(in, off, len, output, 0);
+	}
+
+	/**
+	 * Call this method to decode a chunk straight into an array of the caller, see decode(byte[], int, int).
+	 * Nothing is allocated. The end of the stream is reported by isFinished.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @param out: byte[], array the decoded bytes are written into, with room for getMaxOutput(len) bytes.
+	 * @param outOff: int, index the first decoded byte is written at.
+	 * @return int, number of bytes decoded.
+	 * @throws Exception in case the encoded data is corrupted or out has too little room.
+	 */
+	@Override
+	public int decode(byte[] in, int off, int len, byte[] out, int outOff) throws Exception {
+		if(finished) {
+			return 0;
+		}
+		if(out.length-outOff<getMaxOutput(len)) {
+			throw new Exception("Output array too small.");
+		}
+		AdaptiveModel model = this.model;
+		int[] zeros = model.zeros;
+		int[] ones = model.ones;
+		int[] symbols = model.symbols;
+		int written = outOff;
+		int node = this.node;
+		int end = off+len;
+		for(int i = off; i<end && !finished; i++) {
+			int b = in[i];
+			for(int bit = 7; bit>=0; bit--) {
+				if(node==model.nyt) {
+					rawSymbol = (rawSymbol<<1) | ((b>>>bit)&1);
+					if(++rawBits<AdaptiveModel.RAW_BITS) {
+						continue;
+					}
+					int symbol = rawSymbol;
+					if(symbol>=CodeTable.SYMBOLS || model.leaves[symbol]>=0) {
+						throw new Exception("Encoded file corrupted.");
+					}
+					rawBits = 0;
+					rawSymbol = 0;
+					written = emit(symbol, out, written);
+				} else {
+					node = ((b>>>bit)&1)==0 ? zeros[node] : ones[node];
+					int symbol = symbols[node];
+					if(symbol==AdaptiveModel.INTERNAL || symbol==AdaptiveModel.NYT) {
+						continue;
+					}
+					written = emit(symbol, out, written);
+				}
+				if(finished) {
+					break;
+				}
+				node = AdaptiveModel.ROOT;
+			}
+		}
+		this.node = node;
+		return written-outOff;
+	}
+
+	/**
+	 * Getter. Every bit completes at most one codeword.
+	 * @param len: int, number of bytes in a chunk.
+	 * @return int, largest number of bytes decoding a chunk of the given length may produce.
+	 */
+	@Override
+	public int getMaxOutput(int len) {
+		return 8*len;
+	}
+
+	/**
+	 * Private method. Writes a decoded symbol and updates the model.
+	 * @param symbol: int, the symbol.
+	 * @param out: byte[], output array.
+	 * @param written: int, number of bytes written so far.
+	 * @return int, number of bytes written after the symbol.
+	 */
+	private int emit(int symbol, byte[] out, int written) {
+		if(symbol==CodeTable.EOF) {
+			finished = true;
+			return written;
+		}
+		out[written++] = (byte) symbol;
+		model.update(symbol);
+		return written;
+	}
+
+	/**
+	 * Call this method to prepare the decoder for a new encoded stream.
+	 */
+	@Override
+	public void reset() {
+		model.reset();
+		node = AdaptiveModel.ROOT;
+		rawBits = 0;
+		rawSymbol = 0;
+		finished = false;
+		outputLength = 0;
+	}
+
+	/**
+	 * Getter.
+	 * @return boolean, true once the EOF symbol has been decoded.
+	 */
+	@Override
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Getter.
+	 * @return byte[], array holding bytes decoded by the last call of decode. Only the first
+	 * getOutputLength() bytes are valid.
+	 */
+	@Override
+	public byte[] getOutput() {
+		return output;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes decoded by the last call of decode.
+	 */
+	@Override
+	public int getOutputLength() {
+		return outputLength;
+	}
+}
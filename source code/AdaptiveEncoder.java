@@ -0,0 +1,151 @@
+/**
+ * AdaptiveEncoder class. Create an instance of to encode a stream in a single pass, without a code table built
+ * in advance. Codewords are taken from an AdaptiveModel, which is updated after every byte,
+ * so encoded bytes are available as soon as the first chunk has been supplied.
+ * The result can be decoded with AdaptiveDecoder.
+ * Operate through dynamic methods "encode" and "flush", then read the result through "getOutput" and "getOutputLength".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class AdaptiveEncoder implements ChunkEncoder {
+	private static final int MAX_SYMBOL_BYTES = (AdaptiveModel.NODES+AdaptiveModel.RAW_BITS)/8 + 2;
+	private final AdaptiveModel model = new AdaptiveModel();
+	private final long[] path = new long[AdaptiveModel.NODES/64 + 1];
+	private long bitBuffer;
+	private int bitCount;
+	private byte[] output = new byte[0];
+	private int outputLength;
+
+	/**
+	 * The primary method for AdaptiveEncoder object. Supply this method with consecutive chunks of the stream.
+	 * Whole bytes of encoded data are available through getOutput until the next call,
+	 * bits which do not make a whole byte yet are kept for the next call.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 */
+	@Override
+	public void encode(byte[] in, int off, int len) {
+		int written = 0;
+		int end = off+len;
+		for(int i = off; i<end; i++) {
+			if(written+MAX_SYMBOL_BYTES>output.length) {
+				grow(written, end-i);
+			}
+			written = put(in[i]&0xFF, written);
+		}
+		outputLength = written;
+	}
+
+	/**
+	 * This method should be called after the last chunk has been encoded. It encodes the EOF symbol
+	 * and appends 0s to make a whole byte. The remaining bytes are available through getOutput.
+	 * The model is then reset, so the encoder can start a new stream.
+	 */
+	@Override
+	public void flush() {
+		if(output.length<MAX_SYMBOL_BYTES+1) {
+			grow(0, 1);
+		}
+		int written = put(CodeTable.EOF, 0);
+		if(bitCount>0) {
+			output[written++] = (byte) (bitBuffer<<(8-bitCount));
+			bitCount = 0;
+		}
+		outputLength = written;
+		model.reset();
+	}
+
+	/**
+	 * Private method. Writes the codeword of a symbol and updates the model.
+	 * The path from the leaf to the root is gathered into 64 bit words, then written from the root down.
+	 * @param symbol: int, the symbol.
+	 * @param written: int, number of bytes written so far.
+	 * @return int, number of bytes written after the codeword has been added.
+	 */
+	private int put(int symbol, int written) {
+		AdaptiveModel model = this.model;
+		int node = model.leaves[symbol];
+		boolean seen = node>=0;
+		if(!seen) {
+			node = model.nyt;
+		}
+		int depth = 0;
+		int words = 0;
+		long word = 0;
+		while(node!=AdaptiveModel.ROOT) {
+			int parent = model.parents[node];
+			if(model.ones[parent]==node) {
+				word |= 1L<<(depth&63);
+			}
+			depth++;
+			if((depth&63)==0) {
+				path[words++] = word;
+				word = 0;
+			}
+			node = parent;
+		}
+		written = put(word, depth&63, written);
+		for(int i = words-1; i>=0; i--) {
+			written = put(path[i], 64, written);
+		}
+		if(!seen) {
+			written = put(symbol, AdaptiveModel.RAW_BITS, written);
+		}
+		model.update(symbol);
+		return written;
+	}
+
+	/**
+	 * Private method. Adds up to 64 bits to the accumulator and writes out whole bytes.
+	 * @param code: long, bits to be added, held in the lowest bits.
+	 * @param length: int, number of bits to be added.
+	 * @param written: int, number of bytes written so far.
+	 * @return int, number of bytes written after the bits have been added.
+	 */
+	private int put(long code, int length, int written) {
+		if(length>32) {
+			written = put(code>>>32, length-32, written);
+			code &= 0xFFFFFFFFL;
+			length = 32;
+		}
+		bitBuffer = (bitBuffer<<length) | code;
+		bitCount += length;
+		while(bitCount>=8) {
+			bitCount -= 8;
+			output[written++] = (byte) (bitBuffer>>>bitCount);
+		}
+		return written;
+	}
+
+	/**
+	 * Private method. Enlarges the output array, keeping the bytes written so far.
+	 * @param written: int, number of bytes written so far.
+	 * @param remaining: int, number of bytes of the chunk still to be encoded.
+	 */
+	private void grow(int written, int remaining) {
+		long needed = Math.max(2L*output.length, written + (long) remaining + MAX_SYMBOL_BYTES);
+		byte[] larger = new byte[(int) Math.min(needed, Integer.MAX_VALUE-8)];
+		System.arraycopy(output, 0, larger, 0, written);
+		output = larger;
+	}
+
+	/**
+	 * Getter.
+	 * @return byte[], array holding bytes encoded by the last call of encode or flush. Only the first
+	 * getOutputLength() bytes are valid.
+	 */
+	@Override
+	public byte[] getOutput() {
+		return output;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes encoded by the last call of encode or flush.
+	 */
+	@Override
+	public int getOutputLength() {
+		return outputLength;
+	}
+}
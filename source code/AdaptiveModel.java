@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * AdaptiveModel class. Huffman tree updated after every coded symbol by the FGK algorithm,
+ * shared in identical state by AdaptiveEncoder and AdaptiveDecoder.
+ * The tree is held in primitive arrays indexed by the implicit node number, so that weights never decrease
+ * with the number and siblings keep the sibling property. The root has the highest number.
+ * A symbol not seen yet is coded as the path to the NYT (not yet transmitted) leaf followed by the symbol in 9 bits,
+ * after which the NYT leaf is split into a new NYT leaf and a leaf of the symbol.
+ * Updating swaps a node with the highest numbered node of its weight before incrementing it,
+ * swapping the contents of the two positions rather than relinking them.
+ * Positions of equal weight form blocks of consecutive numbers. Every position knows its block and every block
+ * its leader, the highest position, so the node to swap with is found in constant time. Whether a position
+ * is the lowest one of its block is told by the weight below it.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class AdaptiveModel {
+	/**
+	 * Number of bits a symbol not seen yet is written with.
+	 */
+	public static final int RAW_BITS = 9;
+	/**
+	 * Number of nodes of a tree holding all symbols and the NYT leaf.
+	 */
+	static final int NODES = 2*(CodeTable.SYMBOLS+1)-1;
+	/**
+	 * Number of the root.
+	 */
+	static final int ROOT = NODES-1;
+	/**
+	 * Symbol of internal nodes.
+	 */
+	static final int INTERNAL = -1;
+	/**
+	 * Symbol of the NYT leaf.
+	 */
+	static final int NYT = -2;
+
+	final long[] weights = new long[NODES];
+	final int[] parents = new int[NODES];
+	final int[] zeros = new int[NODES];
+	final int[] ones = new int[NODES];
+	final int[] symbols = new int[NODES];
+	final int[] leaves = new int[CodeTable.SYMBOLS];
+	private final int[] blocks = new int[NODES];
+	private final int[] tops = new int[NODES];
+	private final int[] freeBlocks = new int[NODES];
+	private int freeCount;
+	int nyt;
+
+	/**
+	 * Constructor for the AdaptiveModel class. The tree starts as a lone NYT leaf.
+	 */
+	public AdaptiveModel() {
+		reset();
+	}
+
+	/**
+	 * Call this method to return the model to its initial state.
+	 */
+	public void reset() {
+		Arrays.fill(weights, 0);
+		Arrays.fill(leaves, -1);
+		Arrays.fill(symbols, INTERNAL);
+		nyt = ROOT;
+		symbols[ROOT] = NYT;
+		parents[ROOT] = -1;
+		zeros[ROOT] = -1;
+		ones[ROOT] = -1;
+		for(int block = 0; block<NODES; block++) {
+			freeBlocks[block] = NODES-1-block;
+		}
+		freeCount = NODES-1;
+		blocks[ROOT] = freeBlocks[freeCount];
+		tops[blocks[ROOT]] = ROOT;
+	}
+
+	/**
+	 * Call this method after a symbol has been coded.
+	 * @param symbol: int, the symbol.
+	 */
+	public void update(int symbol) {
+		int node = leaves[symbol];
+		if(node<0) {
+			node = split(symbol);
+		}
+		long[] weights = this.weights;
+		int[] blocks = this.blocks;
+		int[] tops = this.tops;
+		while(true) {
+			long weight = weights[node];
+			int leader = node<ROOT && weights[node+1]==weight ? tops[blocks[node]] : node;
+			if(leader!=node && leader!=parents[node]) {
+				swap(node, leader);
+				node = leader;
+			}
+			if(leader==node && (node==nyt || weights[node-1]<weight) && (node==ROOT || weights[node+1]>weight+1)) {
+				weights[node] = weight+1;
+			} else {
+				increment(node);
+			}
+			if(node==ROOT) {
+				return;
+			}
+			node = parents[node];
+		}
+	}
+
+	/**
+	 * Private method. Increments the weight of a position and moves it from its block into the block of the new weight.
+	 * update handles the common case, a block of a single position whose new weight no neighbour has, without calling
+	 * this method. The position is the leader of its block, or right below the leader if that is its parent,
+	 * in which case the parent is split off into a block of its own. The position below only has the new weight
+	 * when it is the child incremented just before, alone in its block, which then joins the block of the position.
+	 * @param node: int, number of the node.
+	 */
+	private void increment(int node) {
+		long weight = weights[node];
+		int block = blocks[node];
+		boolean lower = node>nyt && weights[node-1]==weight;
+		boolean upper = node<ROOT && weights[node+1]==weight;
+		if(lower && upper) {
+			int split = freeBlocks[--freeCount];
+			tops[split] = tops[block];
+			tops[block] = node-1;
+			for(int position = node+1; position<=tops[split]; position++) {
+				blocks[position] = split;
+			}
+		} else if(lower) {
+			tops[block] = node-1;
+		} else if(!upper) {
+			freeBlocks[freeCount++] = block;
+		}
+		weights[node] = ++weight;
+		lower = node>nyt && weights[node-1]==weight;
+		upper = node<ROOT && weights[node+1]==weight;
+		if(upper) {
+			block = blocks[node+1];
+			if(lower) {
+				freeBlocks[freeCount++] = blocks[node-1];
+				blocks[node-1] = block;
+			}
+		} else if(lower) {
+			block = blocks[node-1];
+			tops[block] = node;
+		} else {
+			block = freeBlocks[--freeCount];
+			tops[block] = node;
+		}
+		blocks[node] = block;
+	}
+
+	/**
+	 * Private method. Turns the NYT leaf into an internal node with a new NYT leaf as its 0 child
+	 * and a leaf of the symbol as its 1 child.
+	 * @param symbol: int, symbol seen for the first time.
+	 * @return int, number of the new leaf of the symbol.
+	 */
+	private int split(int symbol) {
+		int node = nyt;
+		int newNyt = node-2;
+		int leaf = node-1;
+		symbols[node] = INTERNAL;
+		zeros[node] = newNyt;
+		ones[node] = leaf;
+		parents[newNyt] = node;
+		parents[leaf] = node;
+		symbols[newNyt] = NYT;
+		zeros[newNyt] = -1;
+		ones[newNyt] = -1;
+		symbols[leaf] = symbol;
+		zeros[leaf] = -1;
+		ones[leaf] = -1;
+		leaves[symbol] = leaf;
+		blocks[newNyt] = blocks[node];
+		blocks[leaf] = blocks[node];
+		nyt = newNyt;
+		return leaf;
+	}
+
+	/**
+	 * Private method. Exchanges the subtrees held at two positions of equal weight.
+	 * Neither position may be an ancestor of the other.
+	 * @param a: int, number of the first node.
+	 * @param b: int, number of the second node.
+	 */
+	private void swap(int a, int b) {
+		int symbol = symbols[a];
+		symbols[a] = symbols[b];
+		symbols[b] = symbol;
+		int zero = zeros[a];
+		zeros[a] = zeros[b];
+		zeros[b] = zero;
+		int one = ones[a];
+		ones[a] = ones[b];
+		ones[b] = one;
+		relink(a);
+		relink(b);
+	}
+
+	/**
+	 * Private method. Points the leaf table or the children of a position back at it after a swap.
+	 * @param node: int, number of the node.
+	 */
+	private void relink(int node) {
+		int symbol = symbols[node];
+		if(symbol>=0) {
+			leaves[symbol] = node;
+		} else if(symbol==INTERNAL) {
+			parents[zeros[node]] = node;
+			parents[ones[node]] = node;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Batch class. The main class to be run in order to encode or decode many files in one run.
+ * Files are processed concurrently by a fixed pool of worker threads through a shared FileCodec.
+ * A file that cannot be processed is reported and skipped, leaving no output behind, the others go on.
+ * A summary of sizes, ratio and throughput is printed at the end.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Batch {
+	private static int threads = Runtime.getRuntime().availableProcessors();
+	private static boolean adaptive;
+	private static int maxLength;
+	private static String treeFile;
+	private static String dictionaryFile;
+
+	/**
+	 * The main method of the Batch class. Call from terminal.
+	 * @param args: String[], passed from console.
+	 */
+	public static void main(String[] args) {
+		long startTime = System.currentTimeMillis();
+		args = parseOptions(args);
+		if(args.length<2 || !args[0].equals("encode") && !args[0].equals("decode")) {
+			System.out.println(
+					"This command takes the word encode or decode followed by names of files or directories.\n"
+					+ "Directories are searched recursively. In case the only name is -, names are read from standard input,\n"
+					+ "one per line.\n"
+					+ "Every file is encoded into a .hf container next to it, or decoded into a file without the .hf extension.\n"
+					+ "When encoding a directory, .hf files are skipped. When decoding a directory, only .hf files are taken.\n"
+					+ "\n"
+					+ "Options may be placed anywhere among the arguments:\n"
+					+ "    -threads:<n>       number of files processed at once. All cores by default.\n"
+					+ "    -using:<tree>      encode every file with the given .tree file instead of building a tree for each.\n"
+					+ "    -dictionary:<file> encode every file with a dictionary written by Train, the containers refer to it.\n"
+					+ "    -registry:<dir>    directory of the dictionaries of the containers to be decoded.\n"
+					+ "    -maxLength:<bits>  limit codewords of the trees built for the files to the given length.\n"
+					+ "    -adaptive          encode in a single pass with adaptive Huffman codes.");
+			return;
+		}
+		boolean encode = args[0].equals("encode");
+		ArrayList<String> files;
+		FileCodec codec;
+		try {
+			files = collectFiles(args, encode);
+			if(dictionaryFile!=null) {
+				codec = new FileCodec(Dictionary.read(dictionaryFile));
+			} else {
+				CodeTable table = treeFile==null ? null : TableCache.getShared().get(treeFile);
+				codec = new FileCodec(table, adaptive, maxLength);
+			}
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<long[]>> results = new ArrayList<Future<long[]>>();
+		for(String file: files) {
+			results.add(pool.submit(() -> process(codec, encode, file)));
+		}
+		pool.shutdown();
+		long originalBytes = 0;
+		long encodedBytes = 0;
+		int failed = 0;
+		for(int i = 0; i<files.size(); i++) {
+			try {
+				long[] sizes = results.get(i).get();
+				originalBytes += sizes[0];
+				encodedBytes += sizes[1];
+			} catch (Exception e) {
+				Throwable cause = e.getCause()==null ? e : e.getCause();
+				System.out.println(files.get(i)+": "+cause);
+				failed++;
+			}
+		}
+		long timeElapsed = System.currentTimeMillis() - startTime;
+		double ratio = originalBytes==0 ? 0 : (double) encodedBytes/originalBytes;
+		double throughput = timeElapsed==0 ? 0 : originalBytes/1000.0/timeElapsed;
+		System.out.println(String.format("%d files %s, %d failed. %d original bytes, %d encoded bytes, ratio %.4f.",
+				files.size()-failed, encode ? "encoded" : "decoded", failed, originalBytes, encodedBytes, ratio));
+		System.out.println(String.format("%d miliseconds elapsed, %.1f MB/s of original data.", timeElapsed, throughput));
+		if(failed>0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Private static method. Encodes or decodes a single file, run by a worker thread.
+	 * @param codec: FileCodec, shared codec.
+	 * @param encode: boolean, true to encode, false to decode.
+	 * @param file: String, name of the file.
+	 * @return long[], original size and encoded size of the file.
+	 * @throws Exception in case the file cannot be processed.
+	 */
+	private static long[] process(FileCodec codec, boolean encode, String file) throws Exception {
+		long size = Files.size(Paths.get(file));
+		if(encode) {
+			return new long[] {size, codec.encode(file, file.concat(".hf"))};
+		}
+		String outputFile = file.endsWith(".hf") ? file.substring(0, file.length()-3) : file.concat(".out");
+		return new long[] {codec.decode(file, outputFile), size};
+	}
+
+	/**
+	 * Private static method. Lists the files named by the arguments.
+	 * @param args: String[], the command followed by names of files or directories, or -.
+	 * @param encode: boolean, true to skip .hf files of directories, false to take only them.
+	 * @return ArrayList<String>, names of the files.
+	 * @throws IOException in case a directory or standard input cannot be read from.
+	 */
+	private static ArrayList<String> collectFiles(String[] args, boolean encode) throws IOException {
+		ArrayList<String> files = new ArrayList<String>();
+		if(args.length==2 && args[1].equals("-")) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+			String line;
+			while((line = reader.readLine())!=null) {
+				if(!line.isBlank()) {
+					files.add(line.strip());
+				}
+			}
+			return files;
+		}
+		for(int i = 1; i<args.length; i++) {
+			if(!new File(args[i]).isDirectory()) {
+				files.add(args[i]);
+				continue;
+			}
+			try(Stream<Path> paths = Files.walk(Paths.get(args[i]))) {
+				paths.filter(Files::isRegularFile).map(Path::toString)
+						.filter(name -> name.endsWith(".hf")!=encode).sorted().forEach(files::add);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Private method. Removes recognised options from the arguments and sets the corresponding fields.
+	 * @param args: String[], arguments passed from console.
+	 * @return String[], the remaining arguments.
+	 */
+	private static String[] parseOptions(String[] args) {
+		LinkedList<String> remaining = new LinkedList<String>();
+		for(String arg: args) {
+			try {
+				if(arg.startsWith("-threads:")) {
+					threads = Integer.parseInt(arg.substring(9));
+				} else if(arg.startsWith("-maxLength:")) {
+					maxLength = Integer.parseInt(arg.substring(11));
+				} else if(arg.startsWith("-using:")) {
+					treeFile = arg.substring(7);
+				} else if(arg.startsWith("-dictionary:")) {
+					dictionaryFile = arg.substring(12);
+				} else if(arg.startsWith("-registry:")) {
+					DictionaryRegistry.getShared().setDirectory(arg.substring(10));
+				} else if(arg.equals("-adaptive")) {
+					adaptive = true;
+				} else {
+					remaining.add(arg);
+				}
+			} catch (NumberFormatException e) {
+				System.out.println("Invalid number: "+arg);
+				System.exit(1);
+			}
+		}
+		if(threads<1 || maxLength<0 || maxLength>CodeTable.MAX_CODE_LENGTH) {
+			System.out.println("Invalid number of threads or maximum code length.");
+			System.exit(1);
+		}
+		return remaining.toArray(new String[0]);
+	}
+}
@@ -0,0 +1,178 @@
+import java.nio.ByteBuffer;
+
+/**
+ * BufferDecoder class. Create an instance of to decode data held in ByteBuffers, heap or direct,
+ * without copying it into intermediate arrays. Works like java.util.zip.Inflater: every call of "decode"
+ * decodes as much of the source buffer as the destination buffer has room for and keeps its state,
+ * so the caller can supply more input or empty the destination buffer and call again.
+ * Bits are resolved through the same DecodingTable as in TableDecoder.
+ * Operate through dynamic method "decode" until "isFinished" returns true.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class BufferDecoder {
+	private static final int MASK = (1<<DecodingTable.TABLE_BITS) - 1;
+	private final int[] children;
+	private final int[] entries;
+	private long bitBuffer;
+	private int bitCount;
+	private int walkNode;
+	private boolean finished;
+
+	/**
+	 * Constructor for the BufferDecoder class.
+	 * @param table: CodeTable, codewords the data was encoded with.
+	 * @throws Exception in case the codewords do not form a prefix code.
+	 */
+	public BufferDecoder(CodeTable table) throws Exception {
+		DecodingTable decodingTable = table.getDecodingTable();
+		children = decodingTable.children;
+		entries = decodingTable.entries;
+	}
+
+	/**
+	 * The primary method for BufferDecoder object. Decodes bytes between position and limit of src into dst,
+	 * advancing the positions of both buffers. Stops when the EOF symbol is decoded, dst is full or src runs out
+	 * of bits. Up to 8 bytes of src are held inside the decoder, see getRemaining.
+	 * @param src: ByteBuffer, encoded bytes.
+	 * @param dst: ByteBuffer, buffer the decoded bytes are written into.
+	 * @return int, number of bytes written into dst.
+	 * @throws Exception in case the encoded data is corrupted.
+	 */
+	public int decode(ByteBuffer src, ByteBuffer dst) throws Exception {
+		int start = dst.position();
+		while(!finished && dst.hasRemaining()) {
+			if(walkNode!=0) {
+				if(!walk(src, dst)) {
+					break;
+				}
+				continue;
+			}
+			int entry;
+			if(bitCount<DecodingTable.TABLE_BITS) {
+				refill(src);
+			}
+			if(bitCount<DecodingTable.TABLE_BITS) {
+				entry = entries[(int) (bitBuffer<<(DecodingTable.TABLE_BITS-bitCount)) & MASK];
+				if(entry==DecodingTable.INVALID || entry>>>28==0 || ((entry>>>23)&31)>bitCount) {
+					if(!walk(src, dst)) {
+						break;
+					}
+					continue;
+				}
+				if(((entry>>>18)&31)>bitCount) {
+					entry = single(entry);
+				}
+			} else {
+				entry = entries[(int) (bitBuffer>>>(bitCount-DecodingTable.TABLE_BITS)) & MASK];
+				if(entry==DecodingTable.INVALID) {
+					throw new Exception("Encoded file corrupted.");
+				}
+				if(entry>>>28==0) {
+					bitCount -= DecodingTable.TABLE_BITS;
+					walkNode = entry;
+					continue;
+				}
+			}
+			if(entry>>>28==2 && dst.remaining()<2) {
+				entry = single(entry);
+			}
+			int first = entry & 0x1FF;
+			if(first==CodeTable.EOF) {
+				bitCount -= (entry>>>23)&31;
+				finished = true;
+				break;
+			}
+			dst.put((byte) first);
+			if(entry>>>28==2) {
+				dst.put((byte) (entry>>>9));
+			}
+			bitCount -= (entry>>>18)&31;
+		}
+		return dst.position()-start;
+	}
+
+	/**
+	 * Private static method. Turns an entry holding two symbols into one holding only the first of them.
+	 * @param entry: int, entry of the primary table.
+	 * @return int, entry holding the first symbol.
+	 */
+	private static int single(int entry) {
+		int firstUsed = (entry>>>23)&31;
+		return (entry&0x1FF) | (firstUsed<<18) | (firstUsed<<23) | (1<<28);
+	}
+
+	/**
+	 * Private method. Moves whole bytes from src into the bit reservoir while there is room.
+	 * @param src: ByteBuffer, encoded bytes.
+	 */
+	private void refill(ByteBuffer src) {
+		while(bitCount<=56 && src.hasRemaining()) {
+			bitBuffer = (bitBuffer<<8) | (src.get()&0xFF);
+			bitCount += 8;
+		}
+	}
+
+	/**
+	 * Private method. Walks the flattened tree one bit at a time, starting at walkNode, and writes the decoded symbol.
+	 * Used for codewords longer than the primary table and for the last few bits of src.
+	 * @param src: ByteBuffer, encoded bytes.
+	 * @param dst: ByteBuffer, buffer the decoded bytes are written into, with room for at least one byte.
+	 * @return boolean, false if src ran out of bits or the EOF symbol was decoded. The walk is resumed by the next call.
+	 * @throws Exception in case the encoded data is corrupted.
+	 */
+	private boolean walk(ByteBuffer src, ByteBuffer dst) throws Exception {
+		int node = walkNode;
+		while(true) {
+			if(bitCount==0) {
+				refill(src);
+				if(bitCount==0) {
+					walkNode = node;
+					return false;
+				}
+			}
+			bitCount--;
+			int next = children[2*node + (int) ((bitBuffer>>>bitCount)&1)];
+			if(next<0) {
+				walkNode = 0;
+				if(~next==CodeTable.EOF) {
+					finished = true;
+					return false;
+				}
+				dst.put((byte) ~next);
+				return true;
+			}
+			if(next==0) {
+				throw new Exception("Encoded file corrupted.");
+			}
+			node = next;
+		}
+	}
+
+	/**
+	 * Call this method to prepare the decoder for a new encoded stream. Bits left over from the previous one are dropped.
+	 */
+	public void reset() {
+		bitBuffer = 0;
+		bitCount = 0;
+		walkNode = 0;
+		finished = false;
+	}
+
+	/**
+	 * Getter.
+	 * @return boolean, true once the EOF symbol has been decoded.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of whole bytes taken from src which follow the encoded stream, 0 until it is finished.
+	 * The data following the encoded stream starts this many bytes before the position of the last src.
+	 */
+	public int getRemaining() {
+		return finished ? bitCount/8 : 0;
+	}
+}
@@ -0,0 +1,195 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * BufferEncoder class. Create an instance of to encode data held in ByteBuffers, heap or direct,
+ * without copying it into intermediate arrays. Works like java.util.zip.Deflater: every call of "encode"
+ * consumes as much of the source buffer as the destination buffer has room for and keeps its state,
+ * so the caller can empty the destination buffer and call again. The produced stream is identical to the
+ * one of TableEncoder and can be decoded with TableDecoder or BufferDecoder.
+ * Operate through dynamic methods "encode" and "finish".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class BufferEncoder {
+	private final int[] lengths;
+	private final long[] codes;
+	private long bitBuffer;
+	private int bitCount;
+	private long pendingCode;
+	private int pendingLength;
+	private boolean eofQueued;
+	private boolean padded;
+
+	/**
+	 * Constructor for the BufferEncoder class.
+	 * @param table: CodeTable, codewords to encode with.
+	 */
+	public BufferEncoder(CodeTable table) {
+		lengths = new int[CodeTable.SYMBOLS];
+		codes = new long[CodeTable.SYMBOLS];
+		for(int symbol = 0; symbol<CodeTable.SYMBOLS; symbol++) {
+			lengths[symbol] = table.getLength(symbol);
+			codes[symbol] = table.getCode(symbol);
+		}
+	}
+
+	/**
+	 * The primary method for BufferEncoder object. Encodes bytes between position and limit of src
+	 * into dst, advancing the positions of both buffers. Stops when src is empty or dst is full,
+	 * a few bits which do not make a whole byte or do not fit into dst are kept for the next call.
+	 * @param src: ByteBuffer, bytes to be encoded.
+	 * @param dst: ByteBuffer, buffer the encoded bytes are written into.
+	 * @return int, number of bytes written into dst.
+	 * @throws Exception in case a byte has no codeword in the table, src is left positioned at that byte.
+	 */
+	public int encode(ByteBuffer src, ByteBuffer dst) throws Exception {
+		int start = dst.position();
+		boolean bigEndian = dst.order()==ByteOrder.BIG_ENDIAN;
+		int[] lengths = this.lengths;
+		long[] codes = this.codes;
+		while(true) {
+			long buffer = bitBuffer;
+			int count = bitCount;
+			while(count<32 && pendingLength==0 && src.hasRemaining() && dst.remaining()>=4) {
+				int symbol = src.get(src.position())&0xFF;
+				int length = lengths[symbol];
+				if(length==0 || length>32) {
+					break;
+				}
+				src.position(src.position()+1);
+				buffer = (buffer<<length) | codes[symbol];
+				count += length;
+				if(count>=32) {
+					count -= 32;
+					int word = (int) (buffer>>>count);
+					dst.putInt(bigEndian ? word : Integer.reverseBytes(word));
+				}
+			}
+			bitBuffer = buffer;
+			bitCount = count;
+			drain(dst);
+			if(!putPending()) {
+				break;
+			}
+			if(!src.hasRemaining() || !dst.hasRemaining()) {
+				break;
+			}
+			if(!put(src.get(src.position())&0xFF)) {
+				break;
+			}
+			src.position(src.position()+1);
+		}
+		return dst.position()-start;
+	}
+
+	/**
+	 * This method should be called once all data has been encoded. It encodes the EOF symbol, appends 0s
+	 * to make a whole byte and writes what is left into dst. Call again with an emptied dst until it returns true.
+	 * @param dst: ByteBuffer, buffer the encoded bytes are written into.
+	 * @return boolean, true once the encoded stream is complete.
+	 * @throws Exception in case the table holds no codeword for the EOF symbol.
+	 */
+	public boolean finish(ByteBuffer dst) throws Exception {
+		drain(dst);
+		if(!putPending()) {
+			return false;
+		}
+		if(!eofQueued) {
+			if(!put(CodeTable.EOF)) {
+				return false;
+			}
+			eofQueued = true;
+			drain(dst);
+			if(!putPending()) {
+				return false;
+			}
+		}
+		if(!padded) {
+			int padding = (8-bitCount%8)%8;
+			bitBuffer <<= padding;
+			bitCount += padding;
+			padded = true;
+		}
+		drain(dst);
+		return bitCount==0;
+	}
+
+	/**
+	 * Private method. Adds the codeword of a symbol to the accumulator if it fits.
+	 * The lower 32 bits of a codeword longer than 32 bits are held back until the accumulator is drained.
+	 * @param symbol: int, symbol to be encoded.
+	 * @return boolean, false if the accumulator has no room for the codeword.
+	 * @throws Exception in case the symbol has no codeword.
+	 */
+	private boolean put(int symbol) throws Exception {
+		int length = lengths[symbol];
+		if(length==0) {
+			throw new Exception("Byte "+symbol+" is not present in the tree.");
+		}
+		long code = codes[symbol];
+		if(length>32) {
+			if(bitCount+length-32>64) {
+				return false;
+			}
+			bitBuffer = (bitBuffer<<(length-32)) | (code>>>32);
+			bitCount += length-32;
+			pendingCode = code&0xFFFFFFFFL;
+			pendingLength = 32;
+			return true;
+		}
+		if(bitCount+length>64) {
+			return false;
+		}
+		bitBuffer = (bitBuffer<<length) | code;
+		bitCount += length;
+		return true;
+	}
+
+	/**
+	 * Private method. Adds the bits held back by put to the accumulator if they fit.
+	 * @return boolean, true if no bits are held back any more.
+	 */
+	private boolean putPending() {
+		if(pendingLength==0) {
+			return true;
+		}
+		if(bitCount+pendingLength>64) {
+			return false;
+		}
+		bitBuffer = (bitBuffer<<pendingLength) | pendingCode;
+		bitCount += pendingLength;
+		pendingLength = 0;
+		return true;
+	}
+
+	/**
+	 * Private method. Moves whole bytes from the accumulator into dst while it has room.
+	 * @param dst: ByteBuffer, buffer the encoded bytes are written into.
+	 */
+	private void drain(ByteBuffer dst) {
+		while(bitCount>=8 && dst.hasRemaining()) {
+			bitCount -= 8;
+			dst.put((byte) (bitBuffer>>>bitCount));
+		}
+	}
+
+	/**
+	 * Call this method to start a new encoded stream. Bits not written yet are dropped.
+	 */
+	public void reset() {
+		bitBuffer = 0;
+		bitCount = 0;
+		pendingLength = 0;
+		eofQueued = false;
+		padded = false;
+	}
+
+	/**
+	 * Getter.
+	 * @return boolean, true once finish has written the whole encoded stream.
+	 */
+	public boolean isFinished() {
+		return padded && bitCount==0;
+	}
+}
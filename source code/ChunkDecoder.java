@@ -0,0 +1,63 @@
+/**
+ * ChunkDecoder interface. Common shape of decoders fed with consecutive chunks of an encoded file,
+ * whose decoded bytes are read back from an internal array after every call, or written straight into
+ * an array of the caller without any allocation.
+ * Implemented by TableDecoder, which decodes with a fixed table, AdaptiveDecoder and ContextDecoder.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public interface ChunkDecoder {
+
+	/**
+	 * Decodes a chunk. Decoded bytes are available through getOutput until the next call.
+	 * Input supplied after EOF symbol has been decoded is ignored.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @throws Exception in case the encoded data is corrupted.
+	 */
+	void decode(byte[] in, int off, int len) throws Exception;
+
+	/**
+	 * Decodes a chunk into an array of the caller. Nothing is allocated. The end of the stream is reported
+	 * by isFinished. Input supplied after EOF symbol has been decoded is ignored.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @param out: byte[], array the decoded bytes are written into, with room for getMaxOutput(len) bytes.
+	 * @param outOff: int, index the first decoded byte is written at.
+	 * @return int, number of bytes decoded.
+	 * @throws Exception in case the encoded data is corrupted or out has too little room.
+	 */
+	int decode(byte[] in, int off, int len, byte[] out, int outOff) throws Exception;
+
+	/**
+	 * Getter.
+	 * @param len: int, number of bytes in a chunk.
+	 * @return int, largest number of bytes decoding a chunk of the given length may produce.
+	 */
+	int getMaxOutput(int len);
+
+	/**
+	 * Prepares the decoder for a new encoded stream.
+	 */
+	void reset();
+
+	/**
+	 * Getter.
+	 * @return boolean, true once the EOF symbol has been decoded.
+	 */
+	boolean isFinished();
+
+	/**
+	 * Getter.
+	 * @return byte[], array holding bytes decoded by the last call. Only the first getOutputLength() bytes are valid.
+	 */
+	byte[] getOutput();
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes decoded by the last call.
+	 */
+	int getOutputLength();
+}
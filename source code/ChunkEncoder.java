@@ -0,0 +1,37 @@
+/**
+ * ChunkEncoder interface. Common shape of encoders fed with consecutive chunks of a file,
+ * whose encoded bytes are read back from an internal array after every call.
+ * Implemented by TableEncoder, which codes with a fixed table, AdaptiveEncoder, which learns the codes as it goes,
+ * and ContextEncoder, which switches tables by the previous byte.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public interface ChunkEncoder {
+
+	/**
+	 * Encodes a chunk. Whole bytes of encoded data are available through getOutput until the next call.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @throws Exception in case a byte of the chunk cannot be encoded.
+	 */
+	void encode(byte[] in, int off, int len) throws Exception;
+
+	/**
+	 * Encodes the EOF symbol and appends 0s to make a whole byte. The remaining bytes are available through getOutput.
+	 * @throws Exception in case the EOF symbol cannot be encoded.
+	 */
+	void flush() throws Exception;
+
+	/**
+	 * Getter.
+	 * @return byte[], array holding bytes encoded by the last call. Only the first getOutputLength() bytes are valid.
+	 */
+	byte[] getOutput();
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes encoded by the last call.
+	 */
+	int getOutputLength();
+}
@@ -0,0 +1,193 @@
+import java.util.Arrays;
+
+/**
+ * CodeLengthBuilder class. Computes Huffman code lengths straight from an array of frequencies,
+ * for an alphabet of any size, without building a tree of objects.
+ * Symbols are sorted once by frequency, then merged by the linear two-queue method:
+ * one queue holds the sorted symbols, the other the merged nodes, which are created in non-decreasing order.
+ * Ties are broken by symbol order and leaves are taken before merged nodes of equal frequency,
+ * so equal frequencies always result in identical code lengths.
+ * Code lengths can be limited to a maximum with the package-merge algorithm.
+ * Operate through static method "build".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class CodeLengthBuilder {
+
+	/**
+	 * Static method. Call this method to compute Huffman code lengths.
+	 * @param frequencies: long[], frequency of every symbol, zero for symbols that do not occur.
+	 * @return int[], code length of every symbol, zero for symbols that do not occur.
+	 * A single occurring symbol gets code length 1.
+	 */
+	public static int[] build(long[] frequencies) {
+		int[] lengths = new int[frequencies.length];
+		int[] symbols = sortedSymbols(frequencies);
+		int n = symbols.length;
+		if(n==0) {
+			return lengths;
+		}
+		if(n==1) {
+			lengths[symbols[0]] = 1;
+			return lengths;
+		}
+		long[] weights = new long[2*n-1];
+		int[] parents = new int[2*n-1];
+		for(int i = 0; i<n; i++) {
+			weights[i] = frequencies[symbols[i]];
+		}
+		int nextLeaf = 0;
+		int nextMerged = n;
+		for(int node = n; node<2*n-1; node++) {
+			int first;
+			if(nextMerged>=node || nextLeaf<n && weights[nextLeaf]<=weights[nextMerged]) {
+				first = nextLeaf++;
+			} else {
+				first = nextMerged++;
+			}
+			int second;
+			if(nextMerged>=node || nextLeaf<n && weights[nextLeaf]<=weights[nextMerged]) {
+				second = nextLeaf++;
+			} else {
+				second = nextMerged++;
+			}
+			weights[node] = weights[first] + weights[second];
+			parents[first] = node;
+			parents[second] = node;
+		}
+		int[] depths = new int[2*n-1];
+		for(int node = 2*n-3; node>=0; node--) {
+			depths[node] = depths[parents[node]]+1;
+		}
+		for(int i = 0; i<n; i++) {
+			lengths[symbols[i]] = depths[i];
+		}
+		return lengths;
+	}
+
+	/**
+	 * Static method. Call this method to compute optimal code lengths that do not exceed maxLength,
+	 * using the package-merge algorithm. If the unrestricted Huffman code already fits, it is returned.
+	 * @param frequencies: long[], frequency of every symbol, zero for symbols that do not occur.
+	 * @param maxLength: int, the longest allowed code length.
+	 * @return int[], code length of every symbol, zero for symbols that do not occur.
+	 * @throws Exception in case the occurring symbols cannot fit into codes of maxLength bits.
+	 */
+	public static int[] build(long[] frequencies, int maxLength) throws Exception {
+		int[] lengths = build(frequencies);
+		int longest = 0;
+		for(int length: lengths) {
+			longest = Math.max(longest, length);
+		}
+		if(longest<=maxLength) {
+			return lengths;
+		}
+		int[] symbols = sortedSymbols(frequencies);
+		int n = symbols.length;
+		if(maxLength<1 || maxLength<31 && (1<<maxLength)<n) {
+			throw new Exception(n+" symbols cannot have codes of at most "+maxLength+" bits.");
+		}
+		long[] leaves = new long[n];
+		for(int i = 0; i<n; i++) {
+			leaves[i] = frequencies[symbols[i]];
+		}
+		// isLeaf[level][i] tells whether i-th item of the list of given level is a leaf or a package.
+		boolean[][] isLeaf = new boolean[maxLength+1][];
+		long[] list = leaves;
+		isLeaf[maxLength] = new boolean[n];
+		Arrays.fill(isLeaf[maxLength], true);
+		for(int level = maxLength-1; level>=1; level--) {
+			int packages = list.length/2;
+			long[] merged = new long[n+packages];
+			boolean[] flags = new boolean[n+packages];
+			int leaf = 0;
+			int pack = 0;
+			for(int i = 0; i<merged.length; i++) {
+				long packageWeight = pack<packages ? list[2*pack]+list[2*pack+1] : Long.MAX_VALUE;
+				if(leaf<n && leaves[leaf]<=packageWeight) {
+					merged[i] = leaves[leaf++];
+					flags[i] = true;
+				} else {
+					merged[i] = packageWeight;
+					pack++;
+				}
+			}
+			list = merged;
+			isLeaf[level] = flags;
+		}
+		int[] sortedLengths = new int[n];
+		int selected = 2*n-2;
+		for(int level = 1; level<=maxLength && selected>0; level++) {
+			int leafCount = 0;
+			for(int i = 0; i<selected; i++) {
+				if(isLeaf[level][i]) {
+					leafCount++;
+				}
+			}
+			for(int i = 0; i<leafCount; i++) {
+				sortedLengths[i]++;
+			}
+			selected = 2*(selected-leafCount);
+		}
+		lengths = new int[frequencies.length];
+		for(int i = 0; i<n; i++) {
+			lengths[symbols[i]] = sortedLengths[i];
+		}
+		return lengths;
+	}
+
+	/**
+	 * Static method. Computes the number of bits taken by all symbols coded with given code lengths.
+	 * @param frequencies: long[], frequency of every symbol.
+	 * @param lengths: int[], code length of every symbol.
+	 * @return long, sum of frequency times code length over all symbols.
+	 */
+	public static long encodedBits(long[] frequencies, int[] lengths) {
+		long bits = 0;
+		for(int symbol = 0; symbol<frequencies.length; symbol++) {
+			bits += frequencies[symbol]*lengths[symbol];
+		}
+		return bits;
+	}
+
+	/**
+	 * Static method. Sorts occurring symbols by frequency, then by symbol. Bottom-up merge sort over int arrays.
+	 * @param frequencies: long[], frequency of every symbol.
+	 * @return int[], symbols with a non-zero frequency in ascending order.
+	 */
+	static int[] sortedSymbols(long[] frequencies) {
+		int n = 0;
+		for(long frequency: frequencies) {
+			if(frequency>0) {
+				n++;
+			}
+		}
+		int[] symbols = new int[n];
+		n = 0;
+		for(int symbol = 0; symbol<frequencies.length; symbol++) {
+			if(frequencies[symbol]>0) {
+				symbols[n++] = symbol;
+			}
+		}
+		int[] other = new int[n];
+		for(int width = 1; width<n; width *= 2) {
+			for(int start = 0; start<n; start += 2*width) {
+				int middle = Math.min(start+width, n);
+				int end = Math.min(start+2*width, n);
+				int left = start;
+				int right = middle;
+				for(int i = start; i<end; i++) {
+					if(left<middle && (right>=end || frequencies[symbols[left]]<=frequencies[symbols[right]])) {
+						other[i] = symbols[left++];
+					} else {
+						other[i] = symbols[right++];
+					}
+				}
+			}
+			int[] swap = symbols;
+			symbols = other;
+			other = swap;
+		}
+		return symbols;
+	}
+}
@@ -0,0 +1,326 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * CodeTable class. Immutable table of codewords, one for each of the 256 byte values and the EOF symbol.
+ * Codewords are held as primitive bit patterns instead of Strings of 1s and 0s.
+ * Create an instance from a Huffman tree with the static method "fromTree",
+ * or from code lengths alone with the static method "canonical".
+ * The codewords laid out as a tree are available through "getCodeTree".
+ * Canonical tables can be saved as a compact header of code lengths through "writeHeader" and read back through "readHeader".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class CodeTable {
+	/**
+	 * Number of symbols in the alphabet. 256 byte values and the EOF symbol.
+	 */
+	public static final int SYMBOLS = 257;
+	/**
+	 * Symbol representing EOF.
+	 */
+	public static final int EOF = 256;
+	/**
+	 * The longest codeword that can be held by the table.
+	 */
+	public static final int MAX_CODE_LENGTH = 64;
+	/**
+	 * First byte of a code length header. Distinguishes it from a .tree file, which begins with '{' or '-'.
+	 */
+	public static final int HEADER_MARKER = '#';
+	private static final int NIBBLE_PACKED = 0;
+	private static final int RUN_LENGTH = 1;
+
+	private final int[] lengths;
+	private final long[] codes;
+	private final int maxLength;
+	private volatile CodeTree codeTree;
+	private volatile DecodingTable decodingTable;
+
+	/**
+	 * Constructor for the CodeTable class.
+	 * @param lengths: int[], length of the codeword of each symbol, zero for symbols without a codeword.
+	 * @param codes: long[], codeword of each symbol. The codeword is held in the lowest bits.
+	 */
+	CodeTable(int[] lengths, long[] codes) {
+		this.lengths = lengths;
+		this.codes = codes;
+		int max = 0;
+		for(int length: lengths) {
+			if(length>max) {
+				max = length;
+			}
+		}
+		this.maxLength = max;
+	}
+
+	/**
+	 * Constructor for the CodeTable class whose tree is already known.
+	 * @param lengths: int[], length of the codeword of each symbol, zero for symbols without a codeword.
+	 * @param codes: long[], codeword of each symbol. The codeword is held in the lowest bits.
+	 * @param tree: CodeTree, the codewords laid out as a tree.
+	 */
+	CodeTable(int[] lengths, long[] codes, CodeTree tree) {
+		this(lengths, codes);
+		codeTree = tree;
+	}
+
+	/**
+	 * Static method. Call this method with the root node of a Huffman tree to derive codewords of all its final nodes.
+	 * Option 1 node is taken as bit 0, option 2 node as bit 1, as in TreeNode.makeAddress.
+	 * Both trees created by TreeBuilder (EOF held as -1) and trees created by TreeRebuilder
+	 * (EOF held as Integer.MIN_VALUE, bytes held as signed values) are accepted.
+	 * @param root: TreeNode, root node of the Huffman tree.
+	 * @return CodeTable, table of codewords of the tree.
+	 * @throws Exception in case the tree holds a symbol twice or a codeword is longer than 64 bits.
+	 */
+	public static CodeTable fromTree(TreeNode root) throws Exception {
+		return CodeTree.fromTree(root).toTable();
+	}
+
+	/**
+	 * Static method. Call this method with code lengths to assign canonical codewords.
+	 * Codewords of the same length are consecutive numbers in the order of symbols, shorter codewords precede longer ones.
+	 * Only code lengths need to be stored for both sides to reconstruct identical codewords.
+	 * @param lengths: int[], length of the codeword of each of the 257 symbols, zero for symbols without a codeword.
+	 * @return CodeTable, table of canonical codewords.
+	 * @throws Exception in case the lengths do not describe a prefix code.
+	 */
+	public static CodeTable canonical(int[] lengths) throws Exception {
+		if(lengths.length!=SYMBOLS) {
+			throw new Exception("Expected "+SYMBOLS+" code lengths, got "+lengths.length+".");
+		}
+		int[] counts = new int[MAX_CODE_LENGTH+1];
+		for(int length: lengths) {
+			if(length<0 || length>MAX_CODE_LENGTH) {
+				throw new Exception("Code length "+length+" out of range.");
+			}
+			counts[length]++;
+		}
+		counts[0] = 0;
+		long[] next = new long[MAX_CODE_LENGTH+1];
+		long code = 0;
+		for(int bits = 1; bits<=MAX_CODE_LENGTH; bits++) {
+			code = (code+counts[bits-1])<<1;
+			next[bits] = code;
+			if(bits<63 && counts[bits]>0 && code+counts[bits]>(1L<<bits)) {
+				throw new Exception("Code lengths do not describe a prefix code.");
+			}
+		}
+		long[] codes = new long[SYMBOLS];
+		for(int symbol = 0; symbol<SYMBOLS; symbol++) {
+			if(lengths[symbol]>0) {
+				codes[symbol] = next[lengths[symbol]]++;
+			}
+		}
+		return new CodeTable(lengths.clone(), codes);
+	}
+
+	/**
+	 * Static method. Parses content of a .tree file, either nested nodes written by TreeNode.generateOutputContent
+	 * or a code length header written by writeHeader. The two are told apart by the first byte.
+	 * @param content: byte[], content of the .tree file.
+	 * @return CodeTable, codewords of the tree.
+	 * @throws Exception in case the .tree file is corrupted.
+	 */
+	public static CodeTable fromTreeFile(byte[] content) throws Exception {
+		if(content.length>0 && content[0]==HEADER_MARKER) {
+			return readHeader(new ByteArrayInputStream(content));
+		}
+		return TreeParser.parse(content).toTable();
+	}
+
+	/**
+	 * Call this method to obtain a table with the same code lengths, but canonical codewords.
+	 * @return CodeTable, canonical table.
+	 * @throws Exception in case the lengths do not describe a prefix code.
+	 */
+	public CodeTable toCanonical() throws Exception {
+		return canonical(lengths);
+	}
+
+	/**
+	 * Call this method to write the code lengths as a header. Only canonical tables survive the round trip unchanged.
+	 * The header starts with HEADER_MARKER and a format byte. Lengths are nibble-packed if none exceeds 15 bits,
+	 * otherwise stored as pairs of a length and a run count lowered by one, whichever is shorter.
+	 * @param out: OutputStream, stream to write the header into.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	public void writeHeader(OutputStream out) throws IOException {
+		ByteArrayOutputStream runs = new ByteArrayOutputStream();
+		runs.write(HEADER_MARKER);
+		runs.write(RUN_LENGTH);
+		int symbol = 0;
+		while(symbol<SYMBOLS) {
+			int run = 1;
+			while(symbol+run<SYMBOLS && lengths[symbol+run]==lengths[symbol] && run<256) {
+				run++;
+			}
+			runs.write(lengths[symbol]);
+			runs.write(run-1);
+			symbol += run;
+		}
+		if(maxLength<=15 && runs.size()>2+(SYMBOLS+1)/2) {
+			out.write(HEADER_MARKER);
+			out.write(NIBBLE_PACKED);
+			for(symbol = 0; symbol<SYMBOLS; symbol += 2) {
+				int low = symbol+1<SYMBOLS ? lengths[symbol+1] : 0;
+				out.write((lengths[symbol]<<4) | low);
+			}
+			return;
+		}
+		runs.writeTo(out);
+	}
+
+	/**
+	 * Static method. Call this method to read a header written by writeHeader and rebuild the canonical table.
+	 * Exactly the bytes of the header are consumed from the stream.
+	 * @param in: InputStream, stream positioned at the start of the header.
+	 * @return CodeTable, canonical table.
+	 * @throws Exception in case the header is corrupted or the stream cannot be read from.
+	 */
+	public static CodeTable readHeader(InputStream in) throws Exception {
+		if(in.read()!=HEADER_MARKER) {
+			throw new Exception("Code length header corrupted.");
+		}
+		int[] lengths = new int[SYMBOLS];
+		int format = in.read();
+		if(format==NIBBLE_PACKED) {
+			for(int symbol = 0; symbol<SYMBOLS; symbol += 2) {
+				int b = readByte(in);
+				lengths[symbol] = b>>>4;
+				if(symbol+1<SYMBOLS) {
+					lengths[symbol+1] = b&15;
+				}
+			}
+		} else if(format==RUN_LENGTH) {
+			int symbol = 0;
+			while(symbol<SYMBOLS) {
+				int length = readByte(in);
+				int run = readByte(in)+1;
+				if(symbol+run>SYMBOLS) {
+					throw new Exception("Code length header corrupted.");
+				}
+				for(int i = 0; i<run; i++) {
+					lengths[symbol++] = length;
+				}
+			}
+		} else {
+			throw new Exception("Code length header corrupted.");
+		}
+		return canonical(lengths);
+	}
+
+	/**
+	 * Private static method. Reads one byte of a header.
+	 * @param in: InputStream, stream to read from.
+	 * @return int, the byte within <0;255> range.
+	 * @throws Exception in case the stream ends.
+	 */
+	private static int readByte(InputStream in) throws Exception {
+		int b = in.read();
+		if(b<0) {
+			throw new Exception("Code length header corrupted.");
+		}
+		return b;
+	}
+
+	/**
+	 * Call this method to build a Huffman tree holding the codewords of this table, for use with Encoder and Decoder.
+	 * Final nodes hold bytes within <0;255> range and -1 for EOF, as trees created by TreeBuilder do.
+	 * The tree is a TreeNode view of getCodeTree.
+	 * @return TreeNode, root node of the tree with addresses assigned.
+	 * @throws Exception in case the codewords do not form a prefix code.
+	 */
+	public TreeNode toTree() throws Exception {
+		return getCodeTree().toTreeNode();
+	}
+
+	/**
+	 * Private static method. Checks whether the tree holds the EOF symbol as Integer.MIN_VALUE.
+	 * @param root: TreeNode, root node of the tree.
+	 * @return boolean, true if a final node holds Integer.MIN_VALUE.
+	 */
+	static boolean containsMinValue(TreeNode root) {
+		ArrayDeque<TreeNode> nodes = new ArrayDeque<TreeNode>();
+		nodes.push(root);
+		while(!nodes.isEmpty()) {
+			TreeNode node = nodes.pop();
+			if(node.isFinal()) {
+				if(node.getContent()!=null && node.getContent()==Integer.MIN_VALUE) {
+					return true;
+				}
+			} else {
+				nodes.push(node.getNode1());
+				nodes.push(node.getNode2());
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Getter.
+	 * @param symbol: int, symbol within <0;256> range.
+	 * @return int, length of the symbol's codeword. Zero if the symbol has no codeword.
+	 */
+	public int getLength(int symbol) {
+		return lengths[symbol];
+	}
+
+	/**
+	 * Getter.
+	 * @param symbol: int, symbol within <0;256> range.
+	 * @return long, codeword of the symbol held in the lowest getLength(symbol) bits.
+	 */
+	public long getCode(int symbol) {
+		return codes[symbol];
+	}
+
+	/**
+	 * Getter.
+	 * @return int, length of the longest codeword in the table.
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * Getter.
+	 * @return int[], copy of the lengths of all codewords.
+	 */
+	public int[] getLengths() {
+		return lengths.clone();
+	}
+
+	/**
+	 * Getter. The lookup tables are built on first call and shared afterwards.
+	 * @return DecodingTable, lookup tables for decoding data encoded with this table.
+	 * @throws Exception in case the codewords do not form a prefix code.
+	 */
+	public DecodingTable getDecodingTable() throws Exception {
+		DecodingTable table = decodingTable;
+		if(table==null) {
+			table = new DecodingTable(this);
+			decodingTable = table;
+		}
+		return table;
+	}
+
+	/**
+	 * Getter. The tree is built on first call and shared afterwards.
+	 * @return CodeTree, the codewords laid out as a tree.
+	 * @throws Exception in case the codewords do not form a prefix code.
+	 */
+	public CodeTree getCodeTree() throws Exception {
+		CodeTree tree = codeTree;
+		if(tree==null) {
+			tree = CodeTree.fromTable(this);
+			codeTree = tree;
+		}
+		return tree;
+	}
+}
@@ -0,0 +1,423 @@
+import java.util.ArrayDeque;
+
+/**
+ * CodeTree class. Immutable Huffman tree held in parallel primitive arrays instead of a graph of TreeNode objects.
+ * Nodes are laid out breadth-first, so the root is node 0 and every node precedes its children,
+ * which keeps the nodes of the short, frequent codewords next to each other in memory.
+ * A tree of all 257 symbols takes about 6 KB.
+ * Create an instance from a CodeTable with "fromTable", or from a TreeNode graph with "fromTree".
+ * Convert it back with "toTable" and "toTreeNode", the latter serving callers of the TreeNode API.
+ * Save it as a .tree file through "toTreeFile". The nested format cannot tell a final node of '-' followed by EOF
+ * from EOF followed by '-', both being six hyphens, which are read with EOF first. Such a pair of siblings is therefore
+ * always written with EOF first, and "forTreeFile" gives the tree the file describes, whose codewords are to be used
+ * for data decoded with the file.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class CodeTree {
+	/**
+	 * Child index of a missing child, and symbol of an internal node. The root is never a child.
+	 */
+	public static final int NONE = -1;
+
+	private final int[] left;
+	private final int[] right;
+	private final short[] symbol;
+	private final short[] length;
+	private final int size;
+
+	/**
+	 * Constructor for the CodeTree class.
+	 * @param left: int[], child of every node reached by bit 0, NONE if missing.
+	 * @param right: int[], child of every node reached by bit 1, NONE if missing.
+	 * @param symbol: short[], symbol of every final node, NONE for internal nodes.
+	 * @param length: short[], depth of every node.
+	 * @param size: int, number of nodes.
+	 */
+	private CodeTree(int[] left, int[] right, short[] symbol, short[] length, int size) {
+		this.left = left;
+		this.right = right;
+		this.symbol = symbol;
+		this.length = length;
+		this.size = size;
+	}
+
+	/**
+	 * Static method. Call this method to lay the codewords of a table out as a tree.
+	 * A table of a single codeword results in a tree whose root is the final node.
+	 * @param table: CodeTable, codewords of the tree.
+	 * @return CodeTree, the tree.
+	 * @throws Exception in case the codewords do not form a prefix code.
+	 */
+	public static CodeTree fromTable(CodeTable table) throws Exception {
+		int codewords = 0;
+		int single = 0;
+		for(int s = 0; s<CodeTable.SYMBOLS; s++) {
+			if(table.getLength(s)>0) {
+				codewords++;
+				single = s;
+			}
+		}
+		if(codewords<=1) {
+			return single(codewords==0 ? NONE : single);
+		}
+		int[] children = new int[2*CodeTable.SYMBOLS*(table.getMaxLength()+1)];
+		int nodes = 1;
+		for(int s = 0; s<CodeTable.SYMBOLS; s++) {
+			int codeLength = table.getLength(s);
+			if(codeLength==0) {
+				continue;
+			}
+			long code = table.getCode(s);
+			int node = 0;
+			for(int i = codeLength-1; i>0; i--) {
+				int slot = 2*node + (int) ((code>>>i)&1);
+				if(children[slot]<0) {
+					throw new Exception("Codewords do not form a prefix code.");
+				}
+				if(children[slot]==0) {
+					children[slot] = nodes++;
+				}
+				node = children[slot];
+			}
+			int slot = 2*node + (int) (code&1);
+			if(children[slot]!=0) {
+				throw new Exception("Codewords do not form a prefix code.");
+			}
+			children[slot] = ~s;
+		}
+		return breadthFirst(children, nodes);
+	}
+
+	/**
+	 * Static method. Creates a tree of a single node.
+	 * @param symbol: int, symbol of the root, NONE for an empty tree.
+	 * @return CodeTree, the tree.
+	 */
+	static CodeTree single(int symbol) {
+		return new CodeTree(new int[] {NONE}, new int[] {NONE}, new short[] {(short) symbol}, new short[1], 1);
+	}
+
+	/**
+	 * Static method. Lays out nodes of a scratch tree breadth-first.
+	 * Children of scratch node n are at indices 2n and 2n+1, a negative value being ~symbol of a final node
+	 * and zero a missing child.
+	 * @param children: int[], the scratch tree, node 0 being the root.
+	 * @param internal: int, number of internal nodes of the scratch tree.
+	 * @return CodeTree, the tree.
+	 */
+	static CodeTree breadthFirst(int[] children, int internal) {
+		int capacity = 2*internal+1;
+		int[] left = new int[capacity];
+		int[] right = new int[capacity];
+		short[] symbol = new short[capacity];
+		short[] length = new short[capacity];
+		int[] scratch = new int[capacity];
+		symbol[0] = NONE;
+		int size = 1;
+		for(int node = 0; node<size; node++) {
+			if(symbol[node]!=NONE) {
+				left[node] = NONE;
+				right[node] = NONE;
+				continue;
+			}
+			for(int bit = 0; bit<2; bit++) {
+				int child = children[2*scratch[node]+bit];
+				int index = NONE;
+				if(child!=0) {
+					index = size++;
+					scratch[index] = child;
+					symbol[index] = (short) (child<0 ? ~child : NONE);
+					length[index] = (short) (length[node]+1);
+				}
+				if(bit==0) {
+					left[node] = index;
+				} else {
+					right[node] = index;
+				}
+			}
+		}
+		return new CodeTree(left, right, symbol, length, size);
+	}
+
+	/**
+	 * Static method. Call this method with the root node of a Huffman tree to copy it into arrays.
+	 * Option 1 node is taken as bit 0, option 2 node as bit 1, as in TreeNode.makeAddress.
+	 * Both trees created by TreeBuilder (EOF held as -1) and trees created by TreeRebuilder
+	 * (EOF held as Integer.MIN_VALUE, bytes held as signed values) are accepted.
+	 * @param root: TreeNode, root node of the Huffman tree.
+	 * @return CodeTree, the tree.
+	 * @throws Exception in case the tree holds a symbol twice or a codeword is longer than 64 bits.
+	 */
+	public static CodeTree fromTree(TreeNode root) throws Exception {
+		boolean eofIsMinusOne = !CodeTable.containsMinValue(root);
+		int[] left = new int[2*CodeTable.SYMBOLS];
+		int[] right = new int[2*CodeTable.SYMBOLS];
+		short[] symbol = new short[2*CodeTable.SYMBOLS];
+		short[] length = new short[2*CodeTable.SYMBOLS];
+		boolean[] seen = new boolean[CodeTable.SYMBOLS];
+		ArrayDeque<TreeNode> queue = new ArrayDeque<TreeNode>();
+		queue.add(root);
+		int size = 0;
+		while(!queue.isEmpty()) {
+			TreeNode node = queue.poll();
+			int index = size++;
+			if(index>=symbol.length) {
+				throw new Exception("Tree holds more than "+CodeTable.SYMBOLS+" symbols.");
+			}
+			if(length[index]>CodeTable.MAX_CODE_LENGTH) {
+				throw new Exception("Codeword longer than "+CodeTable.MAX_CODE_LENGTH+" bits.");
+			}
+			if(node.isFinal()) {
+				int s = symbolOf(node.getContent(), eofIsMinusOne);
+				if(seen[s]) {
+					throw new Exception("Tree holds symbol "+s+" more than once.");
+				}
+				seen[s] = true;
+				symbol[index] = (short) s;
+				left[index] = NONE;
+				right[index] = NONE;
+				continue;
+			}
+			symbol[index] = NONE;
+			left[index] = enqueue(queue, node.getNode1(), index, size, length);
+			right[index] = enqueue(queue, node.getNode2(), index, size, length);
+		}
+		return new CodeTree(left, right, symbol, length, size);
+	}
+
+	/**
+	 * Private static method. Appends a child to the breadth-first queue and computes its index and depth.
+	 * @param queue: ArrayDeque<TreeNode>, nodes waiting for an index.
+	 * @param child: TreeNode, the child, may be null.
+	 * @param parent: int, index of the parent.
+	 * @param size: int, number of nodes that have an index.
+	 * @param length: short[], depths of nodes.
+	 * @return int, index the child will get, NONE if there is no child.
+	 */
+	private static int enqueue(ArrayDeque<TreeNode> queue, TreeNode child, int parent, int size, short[] length) {
+		if(child==null) {
+			return NONE;
+		}
+		int index = size+queue.size();
+		queue.add(child);
+		if(index<length.length) {
+			length[index] = (short) (length[parent]+1);
+		}
+		return index;
+	}
+
+	/**
+	 * Private static method. Converts content of a final node into a symbol.
+	 * @param content: Integer, content of the final node.
+	 * @param eofIsMinusOne: boolean, true if -1 represents EOF rather than byte 255.
+	 * @return int, symbol within <0;256> range.
+	 */
+	private static int symbolOf(Integer content, boolean eofIsMinusOne) {
+		if(content==Integer.MIN_VALUE || (eofIsMinusOne && content==-1)) {
+			return CodeTable.EOF;
+		}
+		return content & 0xFF;
+	}
+
+	/**
+	 * Call this method to derive codewords of all final nodes.
+	 * A final root gets a codeword of a single 0 bit. The table keeps this tree, see CodeTable.getCodeTree.
+	 * @return CodeTable, table of the codewords.
+	 */
+	public CodeTable toTable() {
+		int[] lengths = new int[CodeTable.SYMBOLS];
+		long[] codes = new long[CodeTable.SYMBOLS];
+		if(symbol[0]!=NONE) {
+			lengths[symbol[0]] = 1;
+			return new CodeTable(lengths, codes, this);
+		}
+		long[] nodeCodes = new long[size];
+		for(int node = 0; node<size; node++) {
+			if(symbol[node]!=NONE) {
+				lengths[symbol[node]] = length[node];
+				codes[symbol[node]] = nodeCodes[node];
+				continue;
+			}
+			if(left[node]!=NONE) {
+				nodeCodes[left[node]] = nodeCodes[node]<<1;
+			}
+			if(right[node]!=NONE) {
+				nodeCodes[right[node]] = (nodeCodes[node]<<1)|1;
+			}
+		}
+		return new CodeTable(lengths, codes, this);
+	}
+
+	/**
+	 * Call this method to build a graph of TreeNode objects, for callers of the TreeNode API.
+	 * Final nodes hold bytes within <0;255> range and -1 for EOF, as trees created by TreeBuilder do.
+	 * @return TreeNode, root node of the graph with addresses assigned.
+	 */
+	public TreeNode toTreeNode() {
+		TreeNode[] nodes = new TreeNode[size];
+		for(int node = size-1; node>=0; node--) {
+			if(symbol[node]!=NONE) {
+				nodes[node] = new TreeNode(symbol[node]==CodeTable.EOF ? -1 : (int) symbol[node]);
+				continue;
+			}
+			nodes[node] = new TreeNode();
+			if(left[node]!=NONE) {
+				nodes[node].setNode1(nodes[left[node]]);
+			}
+			if(right[node]!=NONE) {
+				nodes[node].setNode2(nodes[right[node]]);
+			}
+		}
+		nodes[0].makeAddress();
+		return nodes[0];
+	}
+
+	/**
+	 * Call this method to obtain the tree described by the .tree file of this tree. If a final node of '-' has EOF
+	 * as its sibling reached by bit 1, the two are exchanged, as the file holds them in that order. Both codewords
+	 * keep their length, so data encoded with either tree takes the same number of bits.
+	 * @return CodeTree, the tree with EOF first, or this tree if no node holds '-' and EOF in the other order.
+	 */
+	public CodeTree forTreeFile() {
+		for(int node = 0; node<size; node++) {
+			if(hyphenBeforeEof(node)) {
+				short[] written = symbol.clone();
+				written[left[node]] = (short) CodeTable.EOF;
+				written[right[node]] = '-';
+				return new CodeTree(left, right, written, length, size);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Private method.
+	 * @param node: int, index of a node.
+	 * @return boolean, true if the children of the node are a final node of '-' reached by bit 0 and EOF by bit 1.
+	 */
+	private boolean hyphenBeforeEof(int node) {
+		return symbol[node]==NONE && left[node]!=NONE && right[node]!=NONE
+				&& symbol[left[node]]=='-' && symbol[right[node]]==CodeTable.EOF;
+	}
+
+	/**
+	 * Call this method to serialize the tree in the nested format of .tree files, as TreeNode.generateOutputContent
+	 * does. '{' opens an internal node, '}' closes it, '-' followed by a byte is a final node, "----" is EOF.
+	 * A final node of '-' whose sibling is EOF is written after it, see forTreeFile.
+	 * @return byte[], content of the .tree file.
+	 * @throws Exception in case a node misses a child, such a tree cannot be written in this format.
+	 */
+	public byte[] toTreeFile() throws Exception {
+		byte[] out = new byte[getTreeFileLength()];
+		writeTreeFile(out, 0);
+		return out;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes toTreeFile produces.
+	 */
+	public int getTreeFileLength() {
+		int length = 0;
+		for(int node = 0; node<size; node++) {
+			length += symbol[node]==CodeTable.EOF ? 4 : 2;
+		}
+		return length;
+	}
+
+	/**
+	 * Call this method to serialize the tree into an existing array, see toTreeFile.
+	 * Nodes are visited in depth-first order with an explicit stack, so trees of any depth are handled.
+	 * @param out: byte[], array with room for getTreeFileLength() bytes.
+	 * @param off: int, index the first byte is written at.
+	 * @return int, index after the last byte written.
+	 * @throws Exception in case a node misses a child.
+	 */
+	public int writeTreeFile(byte[] out, int off) throws Exception {
+		int[] stack = new int[2*size+1];
+		int top = 0;
+		stack[top++] = 0;
+		while(top>0) {
+			int node = stack[--top];
+			if(node==NONE) {
+				out[off++] = '}';
+			} else if(symbol[node]==CodeTable.EOF) {
+				out[off++] = '-';
+				out[off++] = '-';
+				out[off++] = '-';
+				out[off++] = '-';
+			} else if(symbol[node]!=NONE) {
+				out[off++] = '-';
+				out[off++] = (byte) symbol[node];
+			} else {
+				if(left[node]==NONE || right[node]==NONE) {
+					throw new Exception("Tree is not complete, it cannot be written as a .tree file.");
+				}
+				out[off++] = '{';
+				stack[top++] = NONE;
+				if(hyphenBeforeEof(node)) {
+					stack[top++] = left[node];
+					stack[top++] = right[node];
+				} else {
+					stack[top++] = right[node];
+					stack[top++] = left[node];
+				}
+			}
+		}
+		return off;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of nodes, final and internal.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Getter.
+	 * @param node: int, index of a node.
+	 * @return int, index of the child reached by bit 0, NONE if there is none.
+	 */
+	public int getLeft(int node) {
+		return left[node];
+	}
+
+	/**
+	 * Getter.
+	 * @param node: int, index of a node.
+	 * @return int, index of the child reached by bit 1, NONE if there is none.
+	 */
+	public int getRight(int node) {
+		return right[node];
+	}
+
+	/**
+	 * Getter.
+	 * @param node: int, index of a node.
+	 * @return int, symbol of a final node within <0;256> range, NONE for an internal node.
+	 */
+	public int getSymbol(int node) {
+		return symbol[node];
+	}
+
+	/**
+	 * Getter.
+	 * @param node: int, index of a node.
+	 * @return int, depth of the node, the length of the codeword of a final node.
+	 */
+	public int getLength(int node) {
+		return length[node];
+	}
+
+	/**
+	 * Getter.
+	 * @param node: int, index of a node.
+	 * @return boolean, true if the node holds a symbol.
+	 */
+	public boolean isFinal(int node) {
+		return symbol[node]!=NONE;
+	}
+}
@@ -0,0 +1,254 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Container class. Describes the header of a self-contained .hf file, which holds everything needed to decode it.
+ * Layout: magic bytes, format version, mode, original length (8 bytes, -1 if unknown), code length header
+ * written by CodeTable.writeHeader, encoded payload. The payload is either a single stream terminated by the EOF symbol,
+ * a sequence of blocks written by ParallelEncoder, a stream written by AdaptiveEncoder, whose container has
+ * no code length header, or a stream written by ContextEncoder, whose container holds the header of its ContextModel
+ * in place of the code length header. A container encoded with a shared Dictionary holds only a reference to it
+ * in place of the code length header, the dictionary is found in the shared DictionaryRegistry.
+ * Files without the magic bytes are legacy files that need a separate .tree file.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Container {
+	/**
+	 * Magic bytes at the start of every container.
+	 */
+	public static final byte[] MAGIC = {'H', 'U', 'F', 0x1A};
+	/**
+	 * Current format version.
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * Mode of a container holding a single payload encoded with the embedded code table.
+	 */
+	public static final int MODE_SINGLE = 0;
+	/**
+	 * Mode of a container holding a sequence of blocks written by ParallelEncoder.
+	 */
+	public static final int MODE_BLOCKS = 1;
+	/**
+	 * Mode of a container holding a single payload written by AdaptiveEncoder, without a code table.
+	 */
+	public static final int MODE_ADAPTIVE = 2;
+	/**
+	 * Mode of a container holding a single payload written by ContextEncoder, with a context model header.
+	 */
+	public static final int MODE_CONTEXT = 3;
+	/**
+	 * Mode of a container holding a single payload encoded with a shared Dictionary, with a reference to it.
+	 */
+	public static final int MODE_DICTIONARY = 4;
+	/**
+	 * Original length of a container whose length was not known when it was written.
+	 */
+	public static final long UNKNOWN_LENGTH = -1;
+
+	private final int version;
+	private final int mode;
+	private final long originalLength;
+	private final CodeTable table;
+	private final ContextModel model;
+	private final Dictionary dictionary;
+
+	/**
+	 * Constructor for the Container class.
+	 * @param mode: int, mode of the container.
+	 * @param originalLength: long, length of the original file, UNKNOWN_LENGTH if not known.
+	 * @param table: CodeTable, canonical code table of the payload, null in MODE_ADAPTIVE.
+	 */
+	public Container(int mode, long originalLength, CodeTable table) {
+		this(VERSION, mode, originalLength, table, null, null);
+	}
+
+	/**
+	 * Constructor for the Container class in MODE_CONTEXT.
+	 * @param originalLength: long, length of the original file, UNKNOWN_LENGTH if not known.
+	 * @param model: ContextModel, code tables of the payload.
+	 */
+	public Container(long originalLength, ContextModel model) {
+		this(VERSION, MODE_CONTEXT, originalLength, null, model, null);
+	}
+
+	/**
+	 * Constructor for the Container class in MODE_DICTIONARY.
+	 * @param originalLength: long, length of the original file, UNKNOWN_LENGTH if not known.
+	 * @param dictionary: Dictionary, dictionary the payload is encoded with.
+	 */
+	public Container(long originalLength, Dictionary dictionary) {
+		this(VERSION, MODE_DICTIONARY, originalLength, dictionary.getTable(), null, dictionary);
+	}
+
+	/**
+	 * Private constructor used when reading a header.
+	 * @param version: int, format version.
+	 * @param mode: int, mode of the container.
+	 * @param originalLength: long, length of the original file.
+	 * @param table: CodeTable, canonical code table of the payload.
+	 * @param model: ContextModel, code tables of the payload in MODE_CONTEXT.
+	 * @param dictionary: Dictionary, dictionary of the payload in MODE_DICTIONARY.
+	 */
+	private Container(int version, int mode, long originalLength, CodeTable table, ContextModel model,
+			Dictionary dictionary) {
+		this.version = version;
+		this.mode = mode;
+		this.originalLength = originalLength;
+		this.table = table;
+		this.model = model;
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Call this method to write the header. The payload is expected to follow it.
+	 * @param out: OutputStream, stream to write the header into.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	public void writeHeader(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.write(MAGIC);
+		data.writeByte(version);
+		data.writeByte(mode);
+		data.writeLong(originalLength);
+		if(mode==MODE_CONTEXT) {
+			model.writeHeader(data);
+		} else if(mode==MODE_DICTIONARY) {
+			dictionary.writeReference(data);
+		} else if(mode!=MODE_ADAPTIVE) {
+			table.writeHeader(data);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Static method. Call this method to read a header. Exactly the bytes of the header are consumed,
+	 * the stream is left positioned at the start of the payload. The dictionary of a container in MODE_DICTIONARY
+	 * is taken from the shared DictionaryRegistry.
+	 * @param in: InputStream, stream positioned at the start of the container.
+	 * @return Container, the header read.
+	 * @throws Exception in case the stream does not hold a supported container or its dictionary is not available.
+	 */
+	public static Container readHeader(InputStream in) throws Exception {
+		DataInputStream data = new DataInputStream(in);
+		byte[] magic = new byte[MAGIC.length];
+		try {
+			data.readFully(magic);
+			if(!Arrays.equals(magic, MAGIC)) {
+				throw new Exception("Not a .hf container.");
+			}
+			int version = data.readUnsignedByte();
+			if(version>VERSION) {
+				throw new Exception("Unsupported .hf container version "+version+".");
+			}
+			int mode = data.readUnsignedByte();
+			if(mode!=MODE_SINGLE && mode!=MODE_BLOCKS && mode!=MODE_ADAPTIVE && mode!=MODE_CONTEXT
+					&& mode!=MODE_DICTIONARY) {
+				throw new Exception("Unsupported .hf container mode "+mode+".");
+			}
+			long originalLength = data.readLong();
+			CodeTable table = null;
+			ContextModel model = null;
+			Dictionary dictionary = null;
+			if(mode==MODE_CONTEXT) {
+				model = ContextModel.readHeader(data);
+			} else if(mode==MODE_DICTIONARY) {
+				dictionary = Dictionary.readReference(data, DictionaryRegistry.getShared());
+				table = dictionary.getTable();
+			} else if(mode!=MODE_ADAPTIVE) {
+				table = CodeTable.readHeader(data);
+			}
+			return new Container(version, mode, originalLength, table, model, dictionary);
+		} catch(EOFException e) {
+			throw new Exception("Container header truncated.");
+		}
+	}
+
+	/**
+	 * Static method. Call this method to find out whether a file starts with the magic bytes.
+	 * @param file: String, name of the file.
+	 * @return boolean, true if the file is a container, false if it is a legacy file.
+	 * @throws IOException in case the file cannot be read from.
+	 */
+	public static boolean isContainer(String file) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		int read = 0;
+		try(InputStream in = new FileInputStream(file)) {
+			while(read<magic.length) {
+				int n = in.read(magic, read, magic.length-read);
+				if(n<0) {
+					return false;
+				}
+				read += n;
+			}
+		}
+		return Arrays.equals(magic, MAGIC);
+	}
+
+	/**
+	 * Getter.
+	 * @return int, format version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, mode of the container.
+	 */
+	public int getMode() {
+		return mode;
+	}
+
+	/**
+	 * Getter.
+	 * @return long, length of the original file, UNKNOWN_LENGTH if not known.
+	 */
+	public long getOriginalLength() {
+		return originalLength;
+	}
+
+	/**
+	 * Getter.
+	 * @return CodeTable, canonical code table of the payload, null in MODE_ADAPTIVE and MODE_CONTEXT.
+	 */
+	public CodeTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Getter.
+	 * @return ContextModel, code tables of the payload in MODE_CONTEXT, null in other modes.
+	 */
+	public ContextModel getModel() {
+		return model;
+	}
+
+	/**
+	 * Getter.
+	 * @return Dictionary, dictionary of the payload in MODE_DICTIONARY, null in other modes.
+	 */
+	public Dictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes writeHeader writes.
+	 * @throws IOException never, the header is written into memory.
+	 */
+	public int getHeaderLength() throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		writeHeader(header);
+		return header.size();
+	}
+}
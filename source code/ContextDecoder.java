@@ -0,0 +1,237 @@
+/**
+ * ContextDecoder class. Create an instance of to decode a file encoded with ContextEncoder class.
+ * Bits are gathered in a 64 bit reservoir as in TableDecoder, every symbol is resolved by a lookup in the DecodingTable
+ * of the context of the previous byte. As the table changes with every byte, only the first symbol of an entry is used.
+ * Tables shared by several contexts are built only once, by their CodeTable.
+ * Operate through dynamic method "decode", then read the result through "getOutput" and "getOutputLength".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class ContextDecoder implements ChunkDecoder {
+	private static final int MASK = (1<<DecodingTable.TABLE_BITS) - 1;
+	private final int[][] children;
+	private final int[][] entries;
+	private int context;
+	private long bitBuffer;
+	private int bitCount;
+	private int walkNode;
+	private boolean finished;
+	private byte[] input;
+	private int inputPosition;
+	private int inputEnd;
+	private byte[] output;
+	private int outputLength;
+
+	/**
+	 * Constructor for the ContextDecoder class.
+	 * @param model: ContextModel, code tables the data was encoded with.
+	 * @throws Exception in case the codewords of a table do not form a prefix code.
+	 */
+	public ContextDecoder(ContextModel model) throws Exception {
+		children = new int[ContextModel.CONTEXTS][];
+		entries = new int[ContextModel.CONTEXTS][];
+		for(int context = 0; context<ContextModel.CONTEXTS; context++) {
+			DecodingTable decodingTable = model.getTable(model.getCluster(context)).getDecodingTable();
+			children[context] = decodingTable.children;
+			entries[context] = decodingTable.entries;
+		}
+		context = ContextModel.INITIAL_CONTEXT;
+		output = new byte[0];
+	}
+
+	/**
+	 * The primary method for ContextDecoder object. Supply this method with consecutive chunks of the encoded file.
+	 * Bytes decoded from the chunk and any bits left over from previous chunks are available through getOutput
+	 * until the next call. Input supplied after EOF symbol has been decoded is ignored.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @throws Exception in case the encoded data is corrupted.
+	 */
+	@Override
+	public void decode(byte[] in, int off, int len) throws Exception {
+		outputLength = 0;
+		if(finished) {
+			return;
+		}
+		if(output.length<getMaxOutput(len)) {
+			output = new byte[getMaxOutput(len)];
+		}
+		outputLength = decode(in, off, len, output, 0);
+	}
+
+	/**
+	 * Call this method to decode a chunk straight into an array of the caller, see decode(byte[], int, int).
+	 * Nothing is allocated. The end of the stream is reported by isFinished.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @param out: byte[], array the decoded bytes are written into, with room for getMaxOutput(len) bytes.
+	 * @param outOff: int, index the first decoded byte is written at.
+	 * @return int, number of bytes decoded.
+	 * @throws Exception in case the encoded data is corrupted or out has too little room.
+	 */
+	@Override
+	public int decode(byte[] in, int off, int len, byte[] out, int outOff) throws Exception {
+		if(finished) {
+			return 0;
+		}
+		if(out.length-outOff<getMaxOutput(len)) {
+			throw new Exception("Output array too small.");
+		}
+		input = in;
+		inputPosition = off;
+		inputEnd = off+len;
+		int[][] entries = this.entries;
+		int written = outOff;
+		while(!finished) {
+			if(walkNode!=0) {
+				int symbol = walk();
+				if(symbol<0) {
+					break;
+				}
+				written = put(symbol, out, written);
+				continue;
+			}
+			if(bitCount<DecodingTable.TABLE_BITS) {
+				refill();
+				if(bitCount<DecodingTable.TABLE_BITS) {
+					int entry = entries[context][(int) (bitBuffer<<(DecodingTable.TABLE_BITS-bitCount)) & MASK];
+					if(entry==DecodingTable.INVALID || entry>>>28==0 || ((entry>>>23)&31)>bitCount) {
+						int symbol = walk();
+						if(symbol<0) {
+							break;
+						}
+						written = put(symbol, out, written);
+						continue;
+					}
+					bitCount -= (entry>>>23)&31;
+					written = put(entry&0x1FF, out, written);
+					continue;
+				}
+			}
+			int entry = entries[context][(int) (bitBuffer>>>(bitCount-DecodingTable.TABLE_BITS)) & MASK];
+			if(entry==DecodingTable.INVALID) {
+				throw new Exception("Encoded file corrupted.");
+			}
+			if(entry>>>28==0) {
+				bitCount -= DecodingTable.TABLE_BITS;
+				walkNode = entry;
+				continue;
+			}
+			bitCount -= (entry>>>23)&31;
+			written = put(entry&0x1FF, out, written);
+		}
+		input = null;
+		return written-outOff;
+	}
+
+	/**
+	 * Getter. Every byte holds at most eight codewords, the bit reservoir carries up to 64 more bits.
+	 * @param len: int, number of bytes in a chunk.
+	 * @return int, largest number of bytes decoding a chunk of the given length may produce.
+	 */
+	@Override
+	public int getMaxOutput(int len) {
+		return 8*len+64;
+	}
+
+	/**
+	 * Private method. Writes a decoded symbol, which becomes the context of the next one, or finishes at EOF.
+	 * @param symbol: int, the decoded symbol.
+	 * @param out: byte[], output array.
+	 * @param written: int, number of bytes written so far.
+	 * @return int, number of bytes written after the symbol.
+	 */
+	private int put(int symbol, byte[] out, int written) {
+		if(symbol==CodeTable.EOF) {
+			finished = true;
+			return written;
+		}
+		out[written++] = (byte) symbol;
+		context = symbol;
+		return written;
+	}
+
+	/**
+	 * Private method. Moves whole bytes from the input into the bit reservoir while there is room.
+	 */
+	private void refill() {
+		while(bitCount<=56 && inputPosition<inputEnd) {
+			bitBuffer = (bitBuffer<<8) | (input[inputPosition++]&0xFF);
+			bitCount += 8;
+		}
+	}
+
+	/**
+	 * Private method. Walks the flattened tree of the current context one bit at a time, starting at walkNode.
+	 * Used for codewords longer than the primary table and for the last few bits of a chunk.
+	 * @return int, decoded symbol, or -1 if the chunk ran out of bits. The walk is resumed by the next call.
+	 * @throws Exception in case the encoded data is corrupted.
+	 */
+	private int walk() throws Exception {
+		int[] children = this.children[context];
+		int node = walkNode;
+		while(true) {
+			if(bitCount==0) {
+				refill();
+				if(bitCount==0) {
+					walkNode = node;
+					return -1;
+				}
+			}
+			bitCount--;
+			int next = children[2*node + (int) ((bitBuffer>>>bitCount)&1)];
+			if(next<0) {
+				walkNode = 0;
+				return ~next;
+			}
+			if(next==0) {
+				throw new Exception("Encoded file corrupted.");
+			}
+			node = next;
+		}
+	}
+
+	/**
+	 * Call this method to prepare the decoder for a new encoded stream. Bits left over from the previous one are dropped
+	 * and the context starts over.
+	 */
+	@Override
+	public void reset() {
+		bitBuffer = 0;
+		bitCount = 0;
+		walkNode = 0;
+		context = ContextModel.INITIAL_CONTEXT;
+		finished = false;
+		outputLength = 0;
+	}
+
+	/**
+	 * Getter.
+	 * @return boolean, true once the EOF symbol has been decoded.
+	 */
+	@Override
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Getter.
+	 * @return byte[], array holding bytes decoded by the last call of decode. Only the first getOutputLength()
+	 * bytes are valid.
+	 */
+	@Override
+	public byte[] getOutput() {
+		return output;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes decoded by the last call of decode.
+	 */
+	@Override
+	public int getOutputLength() {
+		return outputLength;
+	}
+}
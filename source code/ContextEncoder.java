@@ -0,0 +1,187 @@
+/**
+ * ContextEncoder class. Create an instance of to encode a file with an order-1 ContextModel, to be decoded
+ * with ContextDecoder class. Every byte is coded with the table of the byte before it, the first one with the table
+ * of ContextModel.INITIAL_CONTEXT. Codewords of all tables are held in primitive arrays, the table of a context
+ * being found through its offset into them, so switching tables costs a single lookup per byte.
+ * Codewords are packed into a 64 bit accumulator as in TableEncoder. No objects are allocated per encoded byte.
+ * Operate through dynamic methods "encode" and "flush", then read the result through "getOutput" and "getOutputLength".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class ContextEncoder implements ChunkEncoder {
+	private final int[] lengths;
+	private final long[] codes;
+	private final int[] offsets;
+	private final int maxLength;
+	private int offset;
+	private long bitBuffer;
+	private int bitCount;
+	private byte[] output;
+	private int outputLength;
+
+	/**
+	 * Constructor for the ContextEncoder class.
+	 * @param model: ContextModel, code tables to encode with.
+	 */
+	public ContextEncoder(ContextModel model) {
+		lengths = new int[model.getTableCount()*CodeTable.SYMBOLS];
+		codes = new long[lengths.length];
+		for(int cluster = 0; cluster<model.getTableCount(); cluster++) {
+			CodeTable table = model.getTable(cluster);
+			for(int symbol = 0; symbol<CodeTable.SYMBOLS; symbol++) {
+				lengths[cluster*CodeTable.SYMBOLS+symbol] = table.getLength(symbol);
+				codes[cluster*CodeTable.SYMBOLS+symbol] = table.getCode(symbol);
+			}
+		}
+		offsets = new int[ContextModel.CONTEXTS];
+		for(int context = 0; context<ContextModel.CONTEXTS; context++) {
+			offsets[context] = model.getCluster(context)*CodeTable.SYMBOLS;
+		}
+		offset = offsets[ContextModel.INITIAL_CONTEXT];
+		maxLength = model.getMaxLength();
+		output = new byte[0];
+	}
+
+	/**
+	 * The primary method for ContextEncoder object. Supply this method with consecutive chunks of the file.
+	 * Whole bytes of encoded data are available through getOutput until the next call,
+	 * bits which do not make a whole byte yet and the context are kept for the next call.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @throws Exception in case a byte of the chunk has no codeword in the table of its context.
+	 */
+	@Override
+	public void encode(byte[] in, int off, int len) throws Exception {
+		ensureCapacity(len);
+		byte[] out = output;
+		int written = 0;
+		int[] lengths = this.lengths;
+		long[] codes = this.codes;
+		int[] offsets = this.offsets;
+		int offset = this.offset;
+		long buffer = bitBuffer;
+		int count = bitCount;
+		int end = off+len;
+		for(int i = off; i<end; i++) {
+			int symbol = in[i]&0xFF;
+			int index = offset+symbol;
+			offset = offsets[symbol];
+			int length = lengths[index];
+			if(length==0 || length>32) {
+				bitBuffer = buffer;
+				bitCount = count;
+				written = putLong(index, out, written);
+				buffer = bitBuffer;
+				count = bitCount;
+				continue;
+			}
+			buffer = (buffer<<length) | codes[index];
+			count += length;
+			if(count>=32) {
+				count -= 32;
+				int word = (int) (buffer>>>count);
+				out[written] = (byte) (word>>>24);
+				out[written+1] = (byte) (word>>>16);
+				out[written+2] = (byte) (word>>>8);
+				out[written+3] = (byte) word;
+				written += 4;
+			}
+		}
+		this.offset = offset;
+		bitBuffer = buffer;
+		bitCount = count;
+		outputLength = written;
+	}
+
+	/**
+	 * This method should be called after the last chunk has been encoded. It encodes the EOF symbol
+	 * in the context of the last byte and appends 0s to make a whole byte. The remaining bytes are available
+	 * through getOutput.
+	 * @throws Exception in case the table of the last context holds no codeword for the EOF symbol.
+	 */
+	@Override
+	public void flush() throws Exception {
+		ensureCapacity(1);
+		int written = putLong(offset+CodeTable.EOF, output, 0);
+		while(bitCount>=8) {
+			bitCount -= 8;
+			output[written++] = (byte) (bitBuffer>>>bitCount);
+		}
+		if(bitCount>0) {
+			output[written++] = (byte) (bitBuffer<<(8-bitCount));
+			bitCount = 0;
+		}
+		outputLength = written;
+	}
+
+	/**
+	 * Private method. Slow path for codewords longer than 32 bits and symbols without a codeword.
+	 * @param index: int, index of the codeword in the arrays, offset of the table plus the symbol.
+	 * @param out: byte[], output array.
+	 * @param written: int, number of bytes written so far.
+	 * @return int, number of bytes written after the codeword has been added.
+	 * @throws Exception in case the symbol has no codeword.
+	 */
+	private int putLong(int index, byte[] out, int written) throws Exception {
+		int length = lengths[index];
+		if(length==0) {
+			int symbol = index%CodeTable.SYMBOLS;
+			throw new Exception((symbol==CodeTable.EOF ? "EOF" : "Byte "+symbol)+" is not present in the table of its context.");
+		}
+		long code = codes[index];
+		if(length>32) {
+			written = put(code>>>32, length-32, out, written);
+			return put(code&0xFFFFFFFFL, 32, out, written);
+		}
+		return put(code, length, out, written);
+	}
+
+	/**
+	 * Private method. Adds up to 32 bits to the accumulator and empties it below 32 bits.
+	 * @param code: long, bits to be added, held in the lowest bits.
+	 * @param length: int, number of bits to be added.
+	 * @param out: byte[], output array.
+	 * @param written: int, number of bytes written so far.
+	 * @return int, number of bytes written after the bits have been added.
+	 */
+	private int put(long code, int length, byte[] out, int written) {
+		bitBuffer = (bitBuffer<<length) | code;
+		bitCount += length;
+		while(bitCount>=32) {
+			bitCount -= 8;
+			out[written++] = (byte) (bitBuffer>>>bitCount);
+		}
+		return written;
+	}
+
+	/**
+	 * Private method. Makes sure the output array can hold the encoding of len bytes.
+	 * @param len: int, number of bytes to be encoded.
+	 */
+	private void ensureCapacity(int len) {
+		long needed = ((long) len*maxLength)/8 + 2*8 + 8;
+		if(output.length<needed) {
+			output = new byte[(int) needed];
+		}
+	}
+
+	/**
+	 * Getter.
+	 * @return byte[], array holding bytes encoded by the last call of encode or flush. Only the first
+	 * getOutputLength() bytes are valid.
+	 */
+	@Override
+	public byte[] getOutput() {
+		return output;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes encoded by the last call of encode or flush.
+	 */
+	@Override
+	public int getOutputLength() {
+		return outputLength;
+	}
+}
@@ -0,0 +1,357 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * ContextModel class. Immutable order-1 model of a file: the code table a symbol is encoded with is selected
+ * by the byte before it, its context. Contexts of similar statistics share a table, so that the header holds
+ * at most MAX_CLUSTERS code tables and a map of the 256 contexts to them, whatever the file.
+ * Contexts are clustered by a few rounds of k-means, in which every context joins the table coding it in the fewest
+ * bits and the tables are rebuilt from the contexts that joined them. The number of tables is the one for which
+ * header and payload are the shortest together.
+ * Create an instance with the static method "build", save it as a header through "writeHeader"
+ * and read it back through "readHeader".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class ContextModel {
+	/**
+	 * Number of contexts, one for each byte value.
+	 */
+	public static final int CONTEXTS = 256;
+	/**
+	 * Context of the first byte of a file.
+	 */
+	public static final int INITIAL_CONTEXT = 0;
+	/**
+	 * Largest number of code tables held by a model.
+	 */
+	public static final int MAX_CLUSTERS = 16;
+	private static final int ROUNDS = 8;
+
+	private final int[] clusters;
+	private final CodeTable[] tables;
+
+	/**
+	 * Private constructor. Use the static methods "build" and "readHeader".
+	 * @param clusters: int[], index of the table of every context.
+	 * @param tables: CodeTable[], canonical code tables.
+	 */
+	private ContextModel(int[] clusters, CodeTable[] tables) {
+		this.clusters = clusters;
+		this.tables = tables;
+	}
+
+	/**
+	 * Static method. Call this method with the order-1 histogram of a file to build its model.
+	 * Models of 1, 2, 4, 8 and 16 tables are built and the one promising the shortest file is returned.
+	 * @param frequencies: long[][], occurrences of each of the 257 symbols after each of the 256 contexts,
+	 * see TreeBuilder.buildContextFrequencies.
+	 * @param maxLength: int, the longest allowed codeword, 0 for no limit.
+	 * @return ContextModel, the model.
+	 * @throws Exception in case no symbol occurs or the limit is too low.
+	 */
+	public static ContextModel build(long[][] frequencies, int maxLength) throws Exception {
+		long[] totals = new long[CONTEXTS];
+		int active = 0;
+		for(int context = 0; context<CONTEXTS; context++) {
+			for(long frequency: frequencies[context]) {
+				totals[context] += frequency;
+			}
+			if(totals[context]>0) {
+				active++;
+			}
+		}
+		if(active==0) {
+			throw new Exception("No symbol to build the model of.");
+		}
+		ContextModel best = null;
+		long bestBits = Long.MAX_VALUE;
+		for(int count = 1; count<=Math.min(MAX_CLUSTERS, active); count *= 2) {
+			ContextModel model = cluster(frequencies, totals, count, maxLength);
+			long bits = model.encodedBits(frequencies) + 8L*model.getHeaderLength();
+			if(bits<bestBits) {
+				best = model;
+				bestBits = bits;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Private static method. Clusters the contexts into at most the given number of tables.
+	 * The first table is seeded by the most frequent context, every further one by the context coded worst
+	 * by the tables seeded so far relative to a table of its own.
+	 * @param frequencies: long[][], order-1 histogram.
+	 * @param totals: long[], number of symbols in every context.
+	 * @param count: int, largest number of tables.
+	 * @param maxLength: int, the longest allowed codeword, 0 for no limit.
+	 * @return ContextModel, the model.
+	 * @throws Exception in case the limit is too low.
+	 */
+	private static ContextModel cluster(long[][] frequencies, long[] totals, int count, int maxLength) throws Exception {
+		double[][] own = new double[CONTEXTS][];
+		int heaviest = 0;
+		for(int context = 0; context<CONTEXTS; context++) {
+			if(totals[context]>0) {
+				own[context] = estimateLengths(frequencies[context]);
+			}
+			if(totals[context]>totals[heaviest]) {
+				heaviest = context;
+			}
+		}
+		double[][] centers = new double[count][];
+		centers[0] = own[heaviest];
+		int centerCount = 1;
+		while(centerCount<count) {
+			int worst = -1;
+			double worstLoss = 0;
+			for(int context = 0; context<CONTEXTS; context++) {
+				if(totals[context]==0) {
+					continue;
+				}
+				double loss = cost(frequencies[context], centers[nearest(frequencies[context], centers, centerCount)])
+						- cost(frequencies[context], own[context]);
+				if(loss>worstLoss) {
+					worst = context;
+					worstLoss = loss;
+				}
+			}
+			if(worst<0) {
+				break;
+			}
+			centers[centerCount++] = own[worst];
+		}
+		int[] clusters = new int[CONTEXTS];
+		long[][] sums = null;
+		for(int round = 0; round<ROUNDS; round++) {
+			boolean changed = round==0;
+			for(int context = 0; context<CONTEXTS; context++) {
+				if(totals[context]==0) {
+					continue;
+				}
+				int cluster = nearest(frequencies[context], centers, centerCount);
+				changed |= cluster!=clusters[context];
+				clusters[context] = cluster;
+			}
+			if(!changed) {
+				break;
+			}
+			sums = new long[centerCount][CodeTable.SYMBOLS];
+			for(int context = 0; context<CONTEXTS; context++) {
+				if(totals[context]==0) {
+					continue;
+				}
+				long[] sum = sums[clusters[context]];
+				for(int symbol = 0; symbol<CodeTable.SYMBOLS; symbol++) {
+					sum[symbol] += frequencies[context][symbol];
+				}
+			}
+			centerCount = compact(sums, clusters, totals, centerCount);
+			for(int cluster = 0; cluster<centerCount; cluster++) {
+				centers[cluster] = estimateLengths(sums[cluster]);
+			}
+		}
+		CodeTable[] tables = new CodeTable[centerCount];
+		for(int cluster = 0; cluster<centerCount; cluster++) {
+			int[] lengths = maxLength==0 ? CodeLengthBuilder.build(sums[cluster])
+					: CodeLengthBuilder.build(sums[cluster], maxLength);
+			tables[cluster] = CodeTable.canonical(lengths);
+		}
+		return new ContextModel(clusters, tables);
+	}
+
+	/**
+	 * Private static method. Drops clusters no context has joined and renumbers the others.
+	 * Contexts that do not occur are moved to the first cluster.
+	 * @param sums: long[][], occurrences of the symbols in every cluster, moved to the front.
+	 * @param clusters: int[], index of the cluster of every context, renumbered.
+	 * @param totals: long[], number of symbols in every context.
+	 * @param count: int, number of clusters.
+	 * @return int, number of clusters left.
+	 */
+	private static int compact(long[][] sums, int[] clusters, long[] totals, int count) {
+		int[] renumbered = new int[count];
+		int left = 0;
+		for(int cluster = 0; cluster<count; cluster++) {
+			long total = 0;
+			for(long frequency: sums[cluster]) {
+				total += frequency;
+			}
+			renumbered[cluster] = left;
+			if(total>0) {
+				sums[left++] = sums[cluster];
+			}
+		}
+		for(int context = 0; context<CONTEXTS; context++) {
+			clusters[context] = totals[context]==0 ? 0 : renumbered[clusters[context]];
+		}
+		return left;
+	}
+
+	/**
+	 * Private static method. Estimates the code length of every symbol from its probability. Every symbol gets
+	 * half an occurrence more, so that symbols missing from the frequencies are expensive but not impossible.
+	 * @param frequencies: long[], occurrences of each of the 257 symbols.
+	 * @return double[], estimated code length of each of the 257 symbols.
+	 */
+	private static double[] estimateLengths(long[] frequencies) {
+		double total = 0.5*CodeTable.SYMBOLS;
+		for(long frequency: frequencies) {
+			total += frequency;
+		}
+		double[] lengths = new double[CodeTable.SYMBOLS];
+		for(int symbol = 0; symbol<CodeTable.SYMBOLS; symbol++) {
+			lengths[symbol] = Math.log(total/(frequencies[symbol]+0.5))/Math.log(2);
+		}
+		return lengths;
+	}
+
+	/**
+	 * Private static method. Finds the cluster coding a context in the fewest bits.
+	 * @param frequencies: long[], occurrences of the symbols in the context.
+	 * @param centers: double[][], estimated code lengths of every cluster.
+	 * @param count: int, number of clusters.
+	 * @return int, index of the cluster.
+	 */
+	private static int nearest(long[] frequencies, double[][] centers, int count) {
+		int nearest = 0;
+		double nearestCost = Double.MAX_VALUE;
+		for(int cluster = 0; cluster<count; cluster++) {
+			double cost = cost(frequencies, centers[cluster]);
+			if(cost<nearestCost) {
+				nearest = cluster;
+				nearestCost = cost;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Private static method. Estimates the number of bits the symbols of a context are coded in.
+	 * @param frequencies: long[], occurrences of the symbols in the context.
+	 * @param lengths: double[], estimated code length of every symbol.
+	 * @return double, the number of bits.
+	 */
+	private static double cost(long[] frequencies, double[] lengths) {
+		double bits = 0;
+		for(int symbol = 0; symbol<CodeTable.SYMBOLS; symbol++) {
+			if(frequencies[symbol]>0) {
+				bits += frequencies[symbol]*lengths[symbol];
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Call this method to find out the length of the payload encoded with the model.
+	 * @param frequencies: long[][], order-1 histogram of the file.
+	 * @return long, number of bits of the payload, padding excluded.
+	 */
+	public long encodedBits(long[][] frequencies) {
+		long bits = 0;
+		for(int context = 0; context<CONTEXTS; context++) {
+			bits += CodeLengthBuilder.encodedBits(frequencies[context], tables[clusters[context]].getLengths());
+		}
+		return bits;
+	}
+
+	/**
+	 * Call this method to write the model as a header. Layout: number of tables, then, if there is more than one,
+	 * the index of the table of every context nibble-packed into 128 bytes, then the code length header
+	 * of every table written by CodeTable.writeHeader.
+	 * @param out: OutputStream, stream to write the header into.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	public void writeHeader(OutputStream out) throws IOException {
+		out.write(tables.length);
+		if(tables.length>1) {
+			for(int context = 0; context<CONTEXTS; context += 2) {
+				out.write((clusters[context]<<4) | clusters[context+1]);
+			}
+		}
+		for(CodeTable table: tables) {
+			table.writeHeader(out);
+		}
+	}
+
+	/**
+	 * Static method. Call this method to read a header written by writeHeader.
+	 * Exactly the bytes of the header are consumed from the stream.
+	 * @param in: InputStream, stream positioned at the start of the header.
+	 * @return ContextModel, the model.
+	 * @throws Exception in case the header is corrupted or the stream cannot be read from.
+	 */
+	public static ContextModel readHeader(InputStream in) throws Exception {
+		int count = in.read();
+		if(count<1 || count>MAX_CLUSTERS) {
+			throw new Exception("Context model header corrupted.");
+		}
+		int[] clusters = new int[CONTEXTS];
+		if(count>1) {
+			for(int context = 0; context<CONTEXTS; context += 2) {
+				int b = in.read();
+				if(b<0 || b>>>4>=count || (b&15)>=count) {
+					throw new Exception("Context model header corrupted.");
+				}
+				clusters[context] = b>>>4;
+				clusters[context+1] = b&15;
+			}
+		}
+		CodeTable[] tables = new CodeTable[count];
+		for(int table = 0; table<count; table++) {
+			tables[table] = CodeTable.readHeader(in);
+		}
+		return new ContextModel(clusters, tables);
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes writeHeader writes.
+	 * @throws IOException never, the header is written into memory.
+	 */
+	public int getHeaderLength() throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		writeHeader(header);
+		return header.size();
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of code tables.
+	 */
+	public int getTableCount() {
+		return tables.length;
+	}
+
+	/**
+	 * Getter.
+	 * @param context: int, the previous byte within <0;255> range.
+	 * @return int, index of the code table of the context.
+	 */
+	public int getCluster(int context) {
+		return clusters[context];
+	}
+
+	/**
+	 * Getter.
+	 * @param cluster: int, index of a code table.
+	 * @return CodeTable, the canonical code table.
+	 */
+	public CodeTable getTable(int cluster) {
+		return tables[cluster];
+	}
+
+	/**
+	 * Getter.
+	 * @return int, length of the longest codeword of all tables.
+	 */
+	public int getMaxLength() {
+		int max = 0;
+		for(CodeTable table: tables) {
+			max = Math.max(max, table.getMaxLength());
+		}
+		return max;
+	}
+}
@@ -0,0 +1,434 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Daemon class. The main class to be run in order to keep an encoding and decoding server running,
+ * so that clients do not pay for starting a JVM. The server listens on a Unix domain socket or on a localhost TCP port
+ * and serves every connection on its own thread. Tables of tree files are shared through TableCache,
+ * whose counters are committed as huffman.TableCache events while a Flight Recorder is running,
+ * and I/O buffers are pooled.
+ * A connection carries any number of requests one after another. A request is an operation byte, 'E' to encode
+ * or 'D' to decode, for 'E' a kind byte (KIND_SAMPLED, KIND_ADAPTIVE or KIND_TREE followed by the path of a .tree file
+ * on the server as an unsigned 2 byte length and UTF-8 bytes), then a body of chunks. A chunk is a 4 byte length
+ * followed by that many bytes, a chunk of length 0 ends the body. The response is a body of chunks in the same form
+ * followed by a 0 status byte, or, at any point, length -1 followed by an error message in the same form as the path.
+ * Clients must read the response while sending the body, see DaemonClient.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Daemon {
+	/**
+	 * Encode with a table built from the first bytes of the body, see HuffmanOutputStream.
+	 */
+	public static final int KIND_SAMPLED = 0;
+	/**
+	 * Encode with AdaptiveEncoder.
+	 */
+	public static final int KIND_ADAPTIVE = 1;
+	/**
+	 * Encode with the table of a .tree file.
+	 */
+	public static final int KIND_TREE = 2;
+	static final int BUFFER_SIZE = 1<<16;
+	private static final ConcurrentLinkedQueue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+
+	/**
+	 * The main method of the Daemon class. Call from terminal.
+	 * @param args: String[], passed from console.
+	 */
+	public static void main(String[] args) {
+		if(args.length!=1) {
+			System.out.println(
+					"This command takes one argument, the path of a Unix domain socket to be created,\n"
+					+ "or a port number to listen on at localhost.\n"
+					+ "Use DaemonClient to send files to the server.");
+			return;
+		}
+		SocketAddress address = address(args[0]);
+		try(ServerSocketChannel server = address instanceof UnixDomainSocketAddress
+				? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open()) {
+			server.bind(address);
+			if(address instanceof UnixDomainSocketAddress) {
+				Path socket = ((UnixDomainSocketAddress) address).getPath();
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+					try {
+						Files.deleteIfExists(socket);
+					} catch (IOException e) {
+						System.out.println(e);
+					}
+				}));
+			}
+			TableCache.getShared().recordEvents();
+			System.out.println("Listening on "+args[0]+".");
+			ExecutorService pool = Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task);
+				thread.setDaemon(true);
+				return thread;
+			});
+			while(true) {
+				SocketChannel channel = server.accept();
+				pool.execute(() -> serve(channel));
+			}
+		} catch (IOException e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+	}
+
+	/**
+	 * Static method. Parses the address of the server.
+	 * @param address: String, a port number for localhost TCP, anything else is the path of a Unix domain socket.
+	 * @return SocketAddress, the address.
+	 */
+	static SocketAddress address(String address) {
+		if(address.matches("\\d{1,5}")) {
+			return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+		}
+		return UnixDomainSocketAddress.of(address);
+	}
+
+	/**
+	 * Private static method. Serves the requests of a connection until the client closes it.
+	 * @param channel: SocketChannel, the connection.
+	 */
+	private static void serve(SocketChannel channel) {
+		byte[] buffer = take();
+		try(channel) {
+			ByteBuffer op = ByteBuffer.allocate(1);
+			while(true) {
+				op.clear();
+				if(channel.read(op)<0) {
+					return;
+				}
+				if(!handle(op.get(0), channel, buffer)) {
+					return;
+				}
+			}
+		} catch (IOException e) {
+			// The client went away, nothing to report to.
+		} finally {
+			give(buffer);
+		}
+	}
+
+	/**
+	 * Private static method. Handles a single request. A failure is reported to the client as an error response.
+	 * @param op: byte, the operation.
+	 * @param channel: SocketChannel, the connection.
+	 * @param buffer: byte[], pooled buffer for copying.
+	 * @return boolean, false if the connection cannot carry further requests.
+	 * @throws IOException in case the connection fails.
+	 */
+	private static boolean handle(byte op, SocketChannel channel, byte[] buffer) throws IOException {
+		ChunkedInputStream body = new ChunkedInputStream(channel);
+		ChunkedOutputStream response = new ChunkedOutputStream(channel);
+		try {
+			if(op=='E') {
+				int kind = readFully(channel, 1).get()&0xFF;
+				HuffmanOutputStream out;
+				if(kind==KIND_TREE) {
+					out = new HuffmanOutputStream(response, TableCache.getShared().get(readString(channel)));
+				} else if(kind==KIND_ADAPTIVE || kind==KIND_SAMPLED) {
+					out = new HuffmanOutputStream(response, kind==KIND_ADAPTIVE);
+				} else {
+					throw new Exception("Unknown kind "+kind+".");
+				}
+				copy(body, out, buffer);
+				out.finish();
+			} else if(op=='D') {
+				copy(new HuffmanInputStream(body), response, buffer);
+			} else {
+				response.error("Unknown operation "+op+".");
+				return false;
+			}
+			body.skipRest(buffer);
+			response.finish();
+			return true;
+		} catch (IOException e) {
+			if(!channel.isConnected()) {
+				throw e;
+			}
+			response.error(e.getMessage());
+		} catch (Exception e) {
+			response.error(e.getMessage());
+		}
+		try {
+			body.skipRest(buffer);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Private static method. Copies a stream into another one.
+	 * @param in: InputStream, stream to read from.
+	 * @param out: OutputStream, stream to write into.
+	 * @param buffer: byte[], buffer for copying.
+	 * @throws IOException in case a stream fails.
+	 */
+	private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+		int read = in.read(buffer);
+		while(read>-1) {
+			out.write(buffer, 0, read);
+			read = in.read(buffer);
+		}
+	}
+
+	/**
+	 * Static method. Takes a buffer from the pool, or allocates one if the pool is empty.
+	 * @return byte[], buffer of BUFFER_SIZE bytes.
+	 */
+	static byte[] take() {
+		byte[] buffer = buffers.poll();
+		return buffer==null ? new byte[BUFFER_SIZE] : buffer;
+	}
+
+	/**
+	 * Static method. Returns a buffer to the pool.
+	 * @param buffer: byte[], buffer taken by take.
+	 */
+	static void give(byte[] buffer) {
+		buffers.offer(buffer);
+	}
+
+	/**
+	 * Static method. Reads exactly n bytes from a channel.
+	 * @param channel: ReadableByteChannel, the channel.
+	 * @param n: int, number of bytes.
+	 * @return ByteBuffer, buffer holding the bytes, ready to be read.
+	 * @throws IOException in case the channel ends too soon.
+	 */
+	static ByteBuffer readFully(ReadableByteChannel channel, int n) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(n);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer)<0) {
+				throw new EOFException("Connection closed in the middle of a request.");
+			}
+		}
+		return buffer.flip();
+	}
+
+	/**
+	 * Static method. Writes all bytes of a buffer into a channel.
+	 * @param channel: WritableByteChannel, the channel.
+	 * @param buffer: ByteBuffer, the bytes.
+	 * @throws IOException in case the channel cannot be written to.
+	 */
+	static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Static method. Reads a string written as an unsigned 2 byte length and UTF-8 bytes.
+	 * @param channel: ReadableByteChannel, the channel.
+	 * @return String, the string.
+	 * @throws IOException in case the channel ends too soon.
+	 */
+	static String readString(ReadableByteChannel channel) throws IOException {
+		int length = readFully(channel, 2).getShort()&0xFFFF;
+		return new String(readFully(channel, length).array(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Static method. Encodes a string as an unsigned 2 byte length and UTF-8 bytes, cut to 65535 bytes.
+	 * @param string: String, the string.
+	 * @return ByteBuffer, the encoded string, ready to be read.
+	 */
+	static ByteBuffer stringBytes(String string) {
+		byte[] bytes = String.valueOf(string).getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, 0xFFFF);
+		return ByteBuffer.allocate(2+length).putShort((short) length).put(bytes, 0, length).flip();
+	}
+
+	/**
+	 * ChunkedInputStream class. Reads a body of chunks from a channel, ending at the chunk of length 0.
+	 * Closing the stream does not close the channel.
+	 */
+	static class ChunkedInputStream extends InputStream {
+		private final ReadableByteChannel channel;
+		private final byte[] oneByte = new byte[1];
+		private int remaining;
+		private boolean ended;
+
+		/**
+		 * Constructor for the ChunkedInputStream class.
+		 * @param channel: ReadableByteChannel, channel positioned at the first chunk.
+		 */
+		ChunkedInputStream(ReadableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Reads a single byte.
+		 * @return int, the byte, -1 at the end of the body.
+		 * @throws IOException in case the channel fails or the body is malformed.
+		 */
+		@Override
+		public int read() throws IOException {
+			return read(oneByte, 0, 1)==-1 ? -1 : oneByte[0]&0xFF;
+		}
+
+		/**
+		 * Reads up to len bytes of the body.
+		 * @param b: byte[], array to be filled.
+		 * @param off: int, index of the first byte.
+		 * @param len: int, maximal number of bytes.
+		 * @return int, number of bytes read, -1 at the end of the body.
+		 * @throws IOException in case the channel fails or the body is malformed.
+		 */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(len==0) {
+				return 0;
+			}
+			if(remaining==0) {
+				if(ended) {
+					return -1;
+				}
+				remaining = readFully(channel, 4).getInt();
+				if(remaining<0) {
+					throw new IOException(readString(channel));
+				}
+				if(remaining==0) {
+					ended = true;
+					return -1;
+				}
+			}
+			int read = channel.read(ByteBuffer.wrap(b, off, Math.min(len, remaining)));
+			if(read<0) {
+				throw new EOFException("Connection closed in the middle of a body.");
+			}
+			remaining -= read;
+			return read;
+		}
+
+		/**
+		 * Reads and drops the rest of the body.
+		 * @param buffer: byte[], buffer to read into.
+		 * @throws IOException in case the channel fails or the body is malformed.
+		 */
+		void skipRest(byte[] buffer) throws IOException {
+			while(read(buffer, 0, buffer.length)>=0) {
+			}
+		}
+	}
+
+	/**
+	 * ChunkedOutputStream class. Writes a body of chunks into a channel, one chunk per filled pooled buffer.
+	 * Closing the stream does not close the channel, "finish" or "error" ends the response.
+	 */
+	static class ChunkedOutputStream extends OutputStream {
+		private final WritableByteChannel channel;
+		private final byte[] oneByte = new byte[1];
+		private byte[] buffer;
+		private int count;
+
+		/**
+		 * Constructor for the ChunkedOutputStream class.
+		 * @param channel: WritableByteChannel, channel to write into.
+		 */
+		ChunkedOutputStream(WritableByteChannel channel) {
+			this.channel = channel;
+			this.buffer = take();
+		}
+
+		/**
+		 * Writes a single byte.
+		 * @param b: int, the byte in its lowest 8 bits.
+		 * @throws IOException in case the channel cannot be written to.
+		 */
+		@Override
+		public void write(int b) throws IOException {
+			oneByte[0] = (byte) b;
+			write(oneByte, 0, 1);
+		}
+
+		/**
+		 * Writes len bytes into the body.
+		 * @param b: byte[], array holding the bytes.
+		 * @param off: int, index of the first byte.
+		 * @param len: int, number of bytes.
+		 * @throws IOException in case the channel cannot be written to.
+		 */
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while(len>0) {
+				int n = Math.min(len, buffer.length-count);
+				System.arraycopy(b, off, buffer, count, n);
+				count += n;
+				off += n;
+				len -= n;
+				if(count==buffer.length) {
+					flush();
+				}
+			}
+		}
+
+		/**
+		 * Writes the bytes gathered so far as a chunk.
+		 * @throws IOException in case the channel cannot be written to.
+		 */
+		@Override
+		public void flush() throws IOException {
+			if(count==0) {
+				return;
+			}
+			writeFully(channel, ByteBuffer.allocate(4).putInt(count).flip());
+			writeFully(channel, ByteBuffer.wrap(buffer, 0, count));
+			count = 0;
+		}
+
+		/**
+		 * Ends the body and the response with the success status, returns the buffer to the pool.
+		 * @throws IOException in case the channel cannot be written to.
+		 */
+		void finish() throws IOException {
+			flush();
+			writeFully(channel, ByteBuffer.allocate(5).putInt(0).put((byte) 0).flip());
+			release();
+		}
+
+		/**
+		 * Drops unwritten bytes and ends the response with an error, returns the buffer to the pool.
+		 * @param message: String, the error message.
+		 * @throws IOException in case the channel cannot be written to.
+		 */
+		void error(String message) throws IOException {
+			count = 0;
+			release();
+			writeFully(channel, ByteBuffer.allocate(4).putInt(-1).flip());
+			writeFully(channel, stringBytes(message));
+		}
+
+		/**
+		 * Private method. Returns the buffer to the pool once.
+		 */
+		private void release() {
+			if(buffer!=null) {
+				give(buffer);
+				buffer = null;
+			}
+		}
+	}
+}
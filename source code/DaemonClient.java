@@ -0,0 +1,142 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * DaemonClient class. The main class to be run in order to have a file encoded or decoded by a running Daemon.
+ * The body is sent by a second thread while the response is being read, so that neither side waits for the other.
+ * If sending fails, the output of the connection is shut down, so that the Daemon ends the response instead of waiting
+ * for the rest of the body.
+ * Operate through static method "request" to send several requests over one connection.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class DaemonClient {
+
+	/**
+	 * The main method of the DaemonClient class. Call from terminal.
+	 * @param args: String[], passed from console.
+	 */
+	public static void main(String[] args) {
+		long startTime = System.currentTimeMillis();
+		if(args.length<4 || args.length>5 || !args[1].equals("encode") && !args[1].equals("decode")) {
+			System.out.println(
+					"This command takes four or five arguments.\n"
+					+ "The first one is the socket path or port number the Daemon listens on.\n"
+					+ "The second one is either encode or decode.\n"
+					+ "The third one is the name of the file to be processed, the fourth one the name of the new file.\n"
+					+ "When encoding, the fifth argument may be -adaptive, or -using: followed by the path of a .tree file\n"
+					+ "as seen by the server. Otherwise the server builds the table from the first bytes of the file.");
+			return;
+		}
+		ByteBuffer header = ByteBuffer.allocate(3+0xFFFF);
+		if(args[1].equals("decode")) {
+			header.put((byte) 'D');
+		} else if(args.length==4) {
+			header.put((byte) 'E').put((byte) Daemon.KIND_SAMPLED);
+		} else if(args[4].equals("-adaptive")) {
+			header.put((byte) 'E').put((byte) Daemon.KIND_ADAPTIVE);
+		} else if(args[4].startsWith("-using:")) {
+			header.put((byte) 'E').put((byte) Daemon.KIND_TREE).put(Daemon.stringBytes(args[4].substring(7)));
+		} else {
+			System.out.println("Invalid input.");
+			System.exit(1);
+		}
+		SocketAddress address = Daemon.address(args[0]);
+		try(SocketChannel channel = address instanceof UnixDomainSocketAddress
+				? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+				InputStream in = new BufferedInputStream(new FileInputStream(args[2]));
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(args[3]))) {
+			channel.connect(address);
+			request(channel, header.flip(), in, out);
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+		long timeElapsed = System.currentTimeMillis() - startTime;
+		System.out.println(timeElapsed+" miliseconds elapsed.");
+	}
+
+	/**
+	 * Static method. Sends a request and writes the body of its response.
+	 * @param channel: SocketChannel, connection to the Daemon.
+	 * @param header: ByteBuffer, operation byte and for encoding the kind and tree path, ready to be read.
+	 * @param in: InputStream, body of the request.
+	 * @param out: OutputStream, stream the body of the response is written into.
+	 * @return long, number of bytes of the response body.
+	 * @throws Exception in case the body cannot be read or sent, the connection fails or the server reports an error.
+	 * A failure of sending is reported in preference to the error it causes on the response.
+	 */
+	public static long request(SocketChannel channel, ByteBuffer header, InputStream in, OutputStream out) throws Exception {
+		AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Thread sender = new Thread(() -> {
+			byte[] buffer = Daemon.take();
+			try {
+				Daemon.writeFully(channel, header);
+				int read = in.read(buffer);
+				while(read>-1) {
+					if(read>0) {
+						Daemon.writeFully(channel, ByteBuffer.allocate(4).putInt(read).flip());
+						Daemon.writeFully(channel, ByteBuffer.wrap(buffer, 0, read));
+					}
+					read = in.read(buffer);
+				}
+				Daemon.writeFully(channel, ByteBuffer.allocate(4).putInt(0).flip());
+			} catch (Exception e) {
+				failure.set(e);
+				try {
+					channel.shutdownOutput();
+				} catch (Exception shutdown) {
+					try {
+						channel.close();
+					} catch (Exception close) {
+						e.addSuppressed(close);
+					}
+				}
+			} finally {
+				Daemon.give(buffer);
+			}
+		});
+		sender.start();
+		long written = 0;
+		byte[] buffer = Daemon.take();
+		Exception error = null;
+		try {
+			Daemon.ChunkedInputStream response = new Daemon.ChunkedInputStream(channel);
+			int read = response.read(buffer);
+			while(read>-1) {
+				out.write(buffer, 0, read);
+				written += read;
+				read = response.read(buffer);
+			}
+			int status = Daemon.readFully(channel, 1).get();
+			if(status!=0) {
+				throw new Exception("Daemon ended the response with status "+status+".");
+			}
+		} catch (Exception e) {
+			error = e;
+		} finally {
+			Daemon.give(buffer);
+			sender.join();
+		}
+		if(failure.get()!=null) {
+			if(error!=null) {
+				failure.get().addSuppressed(error);
+			}
+			throw failure.get();
+		}
+		if(error!=null) {
+			throw error;
+		}
+		return written;
+	}
+}
@@ -1,163 +1,441 @@
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-
-/**
- * Decode class. The main class to be run in order to decode a file.
- * @author Zdenek Plesek
- * @version 1.0
- */
-public class Decode {
-	private static BufferedInputStream in;
-	private static BufferedOutputStream out;
-	
-	/**
-	 * The main method of the Decode class. Call from terminal.
-	 * This method handles input from terminal and calls auxiliary methods to fetch Huffman tree
-	 * and perform actual decoding.
-	 * @param args: String[], passed from console.
-	 */
-	public static void main(String[] args) {
-		long startTime = System.currentTimeMillis(); 
-		switch(args.length) {
-		case 3:
-			if(args[1].substring(0, 11).equals("-usingTree:")) {
-				TreeNode root = extractTree(args[1].substring(11));
-				decode(root, args[0], args[2]);
-				break;
-			}
-			if(args[1].substring(0, 16).equals("-usingGenerated:")) {
-				TreeNode root = makeTree(args[1].substring(16));
-				decode(root, args[0], args[2]);
-				break;
-			}
-			break;
-		default: 
-			System.out.println(
-					"This command takes three arguments.\n"
-					+ "The first argument is the name of the file to be decoded.\n"
-					+ "The second argument specifies where will the tree be taken from.\n"
-					+ "    It is prefaced with either\n"
-					+ "    -usingTree:\n"
-					+ "    or\n"
-					+ "    -usingGenerated:\n"
-					+ "    In the first case, specify a .tree file. Huffman tree will be generated by parsing it.\n"
-					+ "    In the second case, specify a file. Huffman tree will be created based on its bytes.\n"
-					+ "The third argument is the name of the new file.");
-			break;
-		}
-		long timeElapsed = System.currentTimeMillis() -  startTime;
-		System.out.println(timeElapsed+" miliseconds elapsed.");
-	}
-	
-	/**
-	 * Private method called to decode a file.
-	 * @param rootTreeNode: TreeNode, root node of the Huffman tree.
-	 * @param inputFile: String, name of the file to be decoded.
-	 * @param outputFile: String, name of the resulting file.
-	 */
-	private static void decode(TreeNode rootTreeNode, String inputFile, String outputFile) {
-		Decoder dec = new Decoder(rootTreeNode);
-		try {
-			in = new BufferedInputStream(new FileInputStream(inputFile));
-			out = new BufferedOutputStream(new FileOutputStream(outputFile));
-			
-		} catch (Exception e) {
-			System.out.println(e);
-			System.exit(126);
-		}
-		Integer b;
-		String parsedB;
-		Integer[] bytes;
-		try {
-			b = in.read();
-			EOF:
-			while(b>-1){				
-				parsedB = Decoder.intToStringBase2(b);
-				bytes = dec.decode(parsedB);
-				for(Integer byteToWrite: bytes) {
-					if(byteToWrite == Integer.MIN_VALUE) {
-						break EOF;
-					}
-					out.write(byteToWrite);
-				}
-				b = in.read();
-			}
-		}catch(Exception e) {
-			System.out.println(e);
-			System.exit(1);
-		}
-		try {
-			in.close();
-			out.close();
-		} catch (IOException e) {
-			System.out.println(e);
-			System.exit(1);
-		}
-	}
-	
-	/**
-	 * Private method that can be used to build a Huffman tree from an unencoded file.
-	 * @param originFile: String, name of the file according to which the tree will be built.
-	 * @return TreeNode, returns the root node of the Huffman tree.
-	 */
-	private static TreeNode makeTree(String originFile) {
-		String treefile = originFile.substring(0, originFile.lastIndexOf('.'));
-		treefile = treefile.concat(".tree");
-		TreeBuilder tr;
-		try {
-			tr = new TreeBuilder(originFile);
-			
-			
-			BufferedOutputStream ot = new BufferedOutputStream(new FileOutputStream(treefile));
-			TreeNode root = tr.buildTree();
-			ot.write(root.generateOutputContent());
-			ot.close();
-			return root;
-		} catch (Exception e) {
-			System.out.println(e);
-			System.exit(126);
-		}
-		
-		return null;
-	}
-	
-	/**
-	 * Private method to parse a tree from a .tree file created as a product of makeTree method.
-	 * @param originFile: String, name of the file from which the tree will be parsed.
-	 * @return TreeNode, returns the root node of the Huffman tree.
-	 */
-	private static TreeNode extractTree(String originFile) {
-		TreeRebuilder tr = new TreeRebuilder();
-		BufferedInputStream ot = null;
-		try {
-			 ot = new BufferedInputStream(new FileInputStream(originFile));
-		} catch (Exception e) {
-			System.out.println("Cannot open the .tree file.");
-			System.out.println(e);
-			System.exit(126);
-		}
-		try {			
-			Integer read;
-			read = ot.read();
-			while(read>-1) {
-				byte tmp = (byte) read.intValue();
-				tr.nextByte(tmp);
-				read = ot.read();
-			}
-		} catch(Exception e) {
-			System.out.println(e);
-			System.exit(1);
-		}
-		
-		try {
-			return tr.getTree();
-		} catch(Exception e) {
-			System.out.println(e);
-			System.exit(1);
-		}
-		return null;
-	}
-}
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Decode class. The main class to be run in order to decode a file.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Decode {
+	private static BufferedInputStream in;
+	private static BufferedOutputStream out;
+	private static final int BUFFER_SIZE = 1<<16;
+	private static boolean parallel;
+	private static boolean mmap;
+	private static Metrics metrics;
+	private static boolean printMetrics;
+	private static String metricsFile;
+	
+	/**
+	 * The main method of the Decode class. Call from terminal.
+	 * This method handles input from terminal and calls auxiliary methods to fetch Huffman tree
+	 * and perform actual decoding.
+	 * @param args: String[], passed from console.
+	 */
+	public static void main(String[] args) {
+		long startTime = System.currentTimeMillis(); 
+		args = parseOptions(args);
+		metrics = new Metrics("decode", printMetrics);
+		switch(args.length) {
+		case 1:
+			decodeContainer(args[0], outputName(args[0]));
+			break;
+		case 2:
+			decodeContainer(args[0], args[1]);
+			break;
+		case 3:
+			if(isContainer(args[0])) {
+				System.out.println("The file holds its own code table, the tree argument is ignored.");
+				decodeContainer(args[0], args[2]);
+				break;
+			}
+			if(args[1].startsWith("-usingTree:")) {
+				CodeTable table = extractTree(args[1].substring(11));
+				decode(table, args[0], args[2]);
+				break;
+			}
+			if(args[1].startsWith("-usingGenerated:")) {
+				CodeTable table = makeTree(args[1].substring(16));
+				decode(table, args[0], args[2]);
+				break;
+			}
+			break;
+		default: 
+			System.out.println(
+					"This command takes one to three arguments.\n"
+					+ "The first argument is the name of the file to be decoded.\n"
+					+ "In case of a .hf container, the second argument may be the name of the new file.\n"
+					+ "    Otherwise the new file is named after the encoded file without its .hf extension.\n"
+					+ "In case of a legacy file encoded with -sidecar, three arguments are needed.\n"
+					+ "The second argument specifies where will the tree be taken from.\n"
+					+ "    It is prefaced with either\n"
+					+ "    -usingTree:\n"
+					+ "    or\n"
+					+ "    -usingGenerated:\n"
+					+ "    In the first case, specify a .tree file. Huffman tree will be generated by parsing it.\n"
+					+ "    Both nested trees and canonical code lengths (Encode -canonical) are recognised.\n"
+					+ "    In the second case, specify a file. Huffman tree will be created based on its bytes.\n"
+					+ "The third argument is the name of the new file.\n"
+					+ "\n"
+					+ "Options may be placed anywhere among the arguments:\n"
+					+ "    -parallel   decode blocks of a container encoded with -parallel concurrently on all cores.\n"
+					+ "    -mmap       decode a container through memory mapping, writing straight into the mapped new file.\n"
+					+ "    -registry:<dir>  directory of the dictionaries containers encoded with -dictionary refer to.\n"
+					+ "                Set by the huffman.dictionaries system property, dictionaries by default.\n"
+					+ "    -metrics    print durations of the phases, sizes and throughput as a line of JSON.\n"
+					+ "    -metrics:<file>  write that line into the given file instead.");
+			break;
+		}
+		long timeElapsed = System.currentTimeMillis() -  startTime;
+		System.out.println(timeElapsed+" miliseconds elapsed.");
+		reportMetrics();
+	}
+	
+	/**
+	 * Private method. Commits the metrics of the run and with -metrics prints or writes them as JSON.
+	 */
+	private static void reportMetrics() {
+		metrics.commit();
+		if(!printMetrics) {
+			return;
+		}
+		if(metricsFile==null) {
+			System.out.println(metrics.toJson());
+			return;
+		}
+		try {
+			Files.writeString(Paths.get(metricsFile), metrics.toJson()+System.lineSeparator());
+		} catch (IOException e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Private method. Removes recognised options from the arguments and sets the corresponding fields.
+	 * @param args: String[], arguments passed from console.
+	 * @return String[], the remaining arguments.
+	 */
+	private static String[] parseOptions(String[] args) {
+		LinkedList<String> remaining = new LinkedList<String>();
+		for(String arg: args) {
+			if(arg.equals("-parallel")) {
+				parallel = true;
+			} else if(arg.equals("-mmap")) {
+				mmap = true;
+			} else if(arg.startsWith("-registry:")) {
+				DictionaryRegistry.getShared().setDirectory(arg.substring(10));
+			} else if(arg.equals("-metrics")) {
+				printMetrics = true;
+			} else if(arg.startsWith("-metrics:")) {
+				printMetrics = true;
+				metricsFile = arg.substring(9);
+			} else {
+				remaining.add(arg);
+			}
+		}
+		return remaining.toArray(new String[0]);
+	}
+	
+	/**
+	 * Private method called to decode a file.
+	 * @param table: CodeTable, codewords the file was encoded with.
+	 * @param inputFile: String, name of the file to be decoded.
+	 * @param outputFile: String, name of the resulting file.
+	 */
+	private static void decode(CodeTable table, String inputFile, String outputFile) {
+		TableDecoder dec = null;
+		metrics.setMode("sidecar");
+		metrics.setTable(table);
+		try {
+			dec = new TableDecoder(table);
+			in = new BufferedInputStream(new FileInputStream(inputFile));
+			out = new BufferedOutputStream(new FileOutputStream(outputFile));
+			
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+		try {
+			metrics.begin("decode");
+			decodeStream(dec);
+		}catch(Exception e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+		try {
+			metrics.begin("flush");
+			in.close();
+			out.close();
+			metrics.end();
+		} catch (IOException e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+		recordSizes(inputFile, outputFile);
+	}
+	
+	/**
+	 * Private method. Hands the mode and table of a container decoded by ParallelDecoder or MappedCodec
+	 * over to the metrics.
+	 * @param inputFile: String, name of the container.
+	 * @throws Exception in case the header cannot be read.
+	 */
+	private static void describe(String inputFile) throws Exception {
+		metrics.begin("header");
+		try(BufferedInputStream header = new BufferedInputStream(new FileInputStream(inputFile))) {
+			describe(Container.readHeader(header));
+		}
+	}
+	
+	/**
+	 * Private method. Hands the mode and table of a container over to the metrics.
+	 * @param container: Container, the header.
+	 */
+	private static void describe(Container container) {
+		metrics.setTable(container.getTable());
+		if(container.getMode()==Container.MODE_ADAPTIVE) {
+			metrics.setMode("adaptive");
+		} else if(container.getMode()==Container.MODE_CONTEXT) {
+			metrics.setMode("context");
+			metrics.setModel(container.getModel());
+		} else if(container.getMode()==Container.MODE_DICTIONARY) {
+			metrics.setMode("dictionary");
+		} else {
+			metrics.setMode(container.getMode()==Container.MODE_BLOCKS ? "blocks" : "single");
+		}
+	}
+	
+	/**
+	 * Private method. Hands the sizes of the files over to the metrics.
+	 * @param inputFile: String, name of the decoded file.
+	 * @param outputFile: String, name of the resulting file.
+	 */
+	private static void recordSizes(String inputFile, String outputFile) {
+		try {
+			metrics.setSizes(Files.size(Paths.get(outputFile)), Files.size(Paths.get(inputFile)));
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+	
+	/**
+	 * Private method called to decode a .hf container. The code table is taken from its header.
+	 * With -parallel, containers of blocks that have a block index are handed to ParallelDecoder.
+	 * Otherwise with -mmap, the container is decoded by MappedCodec.
+	 * @param inputFile: String, name of the container to be decoded.
+	 * @param outputFile: String, name of the resulting file.
+	 */
+	private static void decodeContainer(String inputFile, String outputFile) {
+		if(parallel) {
+			try {
+				if(ParallelDecoder.hasIndex(inputFile)) {
+					describe(inputFile);
+					metrics.begin("decode");
+					new ParallelDecoder(ForkJoinPool.commonPool()).decode(inputFile, outputFile);
+					metrics.end();
+					recordSizes(inputFile, outputFile);
+					return;
+				}
+			} catch (Exception e) {
+				System.out.println(e);
+				System.exit(1);
+			}
+		}
+		if(mmap) {
+			try {
+				describe(inputFile);
+				metrics.begin("decode");
+				MappedCodec.decode(inputFile, outputFile);
+				metrics.end();
+				recordSizes(inputFile, outputFile);
+				return;
+			} catch (Exception e) {
+				System.out.println(e);
+				System.exit(1);
+			}
+		}
+		Container container = null;
+		ChunkDecoder dec = null;
+		try {
+			metrics.begin("header");
+			in = new BufferedInputStream(new FileInputStream(inputFile));
+			container = Container.readHeader(in);
+			describe(container);
+			if(container.getMode()==Container.MODE_ADAPTIVE) {
+				dec = new AdaptiveDecoder();
+			} else if(container.getMode()==Container.MODE_CONTEXT) {
+				dec = new ContextDecoder(container.getModel());
+			} else {
+				dec = new TableDecoder(container.getTable());
+			}
+			out = new BufferedOutputStream(new FileOutputStream(outputFile));
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+		try {
+			metrics.begin("decode");
+			long written;
+			if(container.getMode()==Container.MODE_BLOCKS) {
+				written = decodeBlocks(container.getTable());
+			} else {
+				written = decodeStream(dec);
+				if(!dec.isFinished()) {
+					throw new Exception("Encoded file truncated.");
+				}
+			}
+			if(container.getOriginalLength()!=Container.UNKNOWN_LENGTH && written!=container.getOriginalLength()) {
+				throw new Exception("Encoded file corrupted, expected "+container.getOriginalLength()
+						+" bytes, decoded "+written+".");
+			}
+		}catch(Exception e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+		try {
+			metrics.begin("flush");
+			in.close();
+			out.close();
+			metrics.end();
+		} catch (IOException e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+		recordSizes(inputFile, outputFile);
+	}
+	
+	/**
+	 * Private method. Decodes the rest of the input stream into the output stream until EOF symbol is decoded.
+	 * @param dec: ChunkDecoder, decoder to be used.
+	 * @return long, number of bytes written.
+	 * @throws Exception in case the streams cannot be used or the encoded data is corrupted.
+	 */
+	private static long decodeStream(ChunkDecoder dec) throws Exception {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		byte[] decoded = new byte[dec.getMaxOutput(BUFFER_SIZE)];
+		long written = 0;
+		int read = in.read(buffer);
+		while(read>-1 && !dec.isFinished()){
+			int length = dec.decode(buffer, 0, read, decoded, 0);
+			out.write(decoded, 0, length);
+			written += length;
+			read = in.read(buffer);
+		}
+		return written;
+	}
+	
+	/**
+	 * Private method. Decodes the rest of the input stream, a sequence of blocks written by ParallelEncoder,
+	 * into the output stream.
+	 * @param table: CodeTable, codewords the blocks were encoded with.
+	 * @return long, number of bytes written.
+	 * @throws Exception in case the streams cannot be used or the encoded data is corrupted.
+	 */
+	private static long decodeBlocks(CodeTable table) throws Exception {
+		DataInputStream data = new DataInputStream(in);
+		byte[] buffer = new byte[0];
+		byte[] decoded = new byte[0];
+		TableDecoder dec = new TableDecoder(table);
+		long written = 0;
+		int originalLength = data.readInt();
+		while(originalLength!=0) {
+			long bitLength = data.readLong();
+			if(originalLength<0 || bitLength<=0 || bitLength>8L*Integer.MAX_VALUE) {
+				throw new Exception("Encoded file corrupted.");
+			}
+			int byteLength = (int) ((bitLength+7)/8);
+			if(buffer.length<byteLength) {
+				buffer = new byte[byteLength];
+			}
+			data.readFully(buffer, 0, byteLength);
+			if(decoded.length<originalLength) {
+				decoded = new byte[originalLength];
+			}
+			dec.reset();
+			if(dec.decode(buffer, 0, byteLength, decoded, 0, originalLength)!=originalLength || !dec.isFinished()) {
+				throw new Exception("Encoded file corrupted.");
+			}
+			out.write(decoded, 0, originalLength);
+			written += originalLength;
+			originalLength = data.readInt();
+		}
+		return written;
+	}
+	
+	/**
+	 * Private method. Checks whether a file is a .hf container.
+	 * @param inputFile: String, name of the file.
+	 * @return boolean, true if the file starts with the magic bytes.
+	 */
+	private static boolean isContainer(String inputFile) {
+		try {
+			return Container.isContainer(inputFile);
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+		return false;
+	}
+	
+	/**
+	 * Private method. Derives the name of the decoded file from the name of the encoded file.
+	 * @param inputFile: String, name of the encoded file.
+	 * @return String, name without the .hf extension, or with .out appended if there is none.
+	 */
+	private static String outputName(String inputFile) {
+		if(inputFile.endsWith(".hf")) {
+			return inputFile.substring(0, inputFile.length()-3);
+		}
+		return inputFile.concat(".out");
+	}
+	
+	/**
+	 * Private method that can be used to build a Huffman tree from an unencoded file.
+	 * @param originFile: String, name of the file according to which the tree will be built.
+	 * @return CodeTable, returns codewords of the Huffman tree.
+	 */
+	private static CodeTable makeTree(String originFile) {
+		String treefile = originFile.substring(0, originFile.lastIndexOf('.'));
+		treefile = treefile.concat(".tree");
+		TreeBuilder tr;
+		try {
+			tr = new TreeBuilder(originFile);
+			
+			metrics.begin("tree");
+			BufferedOutputStream ot = new BufferedOutputStream(new FileOutputStream(treefile));
+			CodeTree tree = tr.buildCodeTree().forTreeFile();
+			metrics.begin("treeWrite");
+			ot.write(tree.toTreeFile());
+			ot.close();
+			metrics.end();
+			return tree.toTable();
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Private method to parse a tree from a .tree file created as a product of makeTree method.
+	 * Parsed tables are kept in the shared TableCache.
+	 * @param originFile: String, name of the file from which the tree will be parsed.
+	 * @return CodeTable, returns codewords of the Huffman tree.
+	 */
+	private static CodeTable extractTree(String originFile) {
+		try {
+			metrics.begin("treeRead");
+			CodeTable table = TableCache.getShared().get(originFile);
+			metrics.end();
+			return table;
+		} catch (IOException e) {
+			System.out.println("Cannot open the .tree file.");
+			System.out.println(e);
+			System.exit(126);
+		} catch(Exception e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+		return null;
+	}
+}
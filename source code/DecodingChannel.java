@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * DecodingChannel class. Readable channel that reads the original bytes of a .hf container, either a single stream
+ * or a sequence of blocks, from another channel. Encoded bytes are read into a single direct buffer and decoded
+ * by a BufferDecoder straight into the buffers passed to "read". The container header is read on the first call.
+ * The underlying channel must be in blocking mode. Bytes following the EOF symbol of a single stream may be
+ * consumed as well.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class DecodingChannel implements ReadableByteChannel {
+	private static final int BUFFER_SIZE = 1<<16;
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+	private Container container;
+	private BufferDecoder dec;
+	private boolean inBlock;
+	private long blockRemaining;
+	private int blockLength;
+	private long decoded;
+	private boolean finished;
+	private boolean open = true;
+
+	/**
+	 * Constructor for the DecodingChannel class.
+	 * @param channel: ReadableByteChannel, channel holding the container.
+	 */
+	public DecodingChannel(ReadableByteChannel channel) {
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.limit(0);
+	}
+
+	/**
+	 * Decodes original bytes into dst. Reads from the underlying channel only while nothing has been decoded yet.
+	 * @param dst: ByteBuffer, buffer the decoded bytes are written into.
+	 * @return int, number of bytes written into dst, -1 at the end of the original data.
+	 * @throws IOException in case the channel is closed, cannot be read from or the container is corrupted.
+	 */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if(!open) {
+			throw new ClosedChannelException();
+		}
+		int start = dst.position();
+		try {
+			if(container==null) {
+				container = Container.readHeader(Channels.newInputStream(channel));
+				if(container.getMode()==Container.MODE_ADAPTIVE || container.getMode()==Container.MODE_CONTEXT) {
+					throw new Exception("Adaptive and context containers are read through HuffmanInputStream.");
+				}
+				dec = new BufferDecoder(container.getTable());
+			}
+			if(container.getMode()==Container.MODE_BLOCKS) {
+				readBlocks(dst);
+			} else {
+				readSingle(dst);
+			}
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		int read = dst.position()-start;
+		return read==0 && finished ? -1 : read;
+	}
+
+	/**
+	 * Private method. Decodes a single stream into dst.
+	 * @param dst: ByteBuffer, buffer the decoded bytes are written into.
+	 * @throws Exception in case the channel cannot be read from or the container is corrupted.
+	 */
+	private void readSingle(ByteBuffer dst) throws Exception {
+		int start = dst.position();
+		while(!finished && dst.hasRemaining()) {
+			if(dec.isFinished()) {
+				finished = true;
+				long expected = container.getOriginalLength();
+				if(expected!=Container.UNKNOWN_LENGTH && decoded!=expected) {
+					throw new Exception("Encoded file corrupted, expected "+expected+" bytes, decoded "+decoded+".");
+				}
+				break;
+			}
+			if(!buffer.hasRemaining()) {
+				if(dst.position()>start) {
+					break;
+				}
+				if(!fill()) {
+					throw new Exception("Encoded file truncated.");
+				}
+			}
+			decoded += dec.decode(buffer, dst);
+		}
+	}
+
+	/**
+	 * Private method. Decodes a sequence of blocks into dst. The buffer is limited to the encoded bytes
+	 * of the current block while it is decoded.
+	 * @param dst: ByteBuffer, buffer the decoded bytes are written into.
+	 * @throws Exception in case the channel cannot be read from or the container is corrupted.
+	 */
+	private void readBlocks(ByteBuffer dst) throws Exception {
+		int start = dst.position();
+		while(!finished && dst.hasRemaining()) {
+			if(!inBlock) {
+				if(!ensure(4, dst.position()>start)) {
+					break;
+				}
+				blockLength = buffer.getInt(buffer.position());
+				if(blockLength==0) {
+					buffer.position(buffer.position()+4);
+					finished = true;
+					break;
+				}
+				if(!ensure(ParallelEncoder.BLOCK_HEADER, dst.position()>start)) {
+					break;
+				}
+				buffer.position(buffer.position()+4);
+				long bitLength = buffer.getLong();
+				if(blockLength<0 || bitLength<=0 || bitLength>8L*Integer.MAX_VALUE) {
+					throw new Exception("Encoded file corrupted.");
+				}
+				blockRemaining = (bitLength+7)/8;
+				decoded = 0;
+				dec.reset();
+				inBlock = true;
+			}
+			if(dec.isFinished()) {
+				if(blockRemaining!=0 || decoded!=blockLength) {
+					throw new Exception("Encoded file corrupted.");
+				}
+				inBlock = false;
+				continue;
+			}
+			if(blockRemaining==0) {
+				int produced = dec.decode(EMPTY, dst);
+				decoded += produced;
+				if(produced==0 && !dec.isFinished()) {
+					throw new Exception("Encoded file corrupted.");
+				}
+				continue;
+			}
+			if(!buffer.hasRemaining()) {
+				if(dst.position()>start) {
+					break;
+				}
+				if(!fill()) {
+					throw new Exception("Encoded file truncated.");
+				}
+			}
+			int limit = buffer.limit();
+			int position = buffer.position();
+			buffer.limit((int) Math.min(limit, position+blockRemaining));
+			decoded += dec.decode(buffer, dst);
+			buffer.limit(limit);
+			blockRemaining -= buffer.position()-position;
+			if(decoded>blockLength) {
+				throw new Exception("Encoded file corrupted.");
+			}
+		}
+	}
+
+	/**
+	 * Private method. Makes sure the buffer holds at least n bytes.
+	 * @param n: int, number of bytes needed.
+	 * @param decodedAlready: boolean, true if something has been decoded by this call, so it should not block.
+	 * @return boolean, false if the bytes are not there and reading was avoided.
+	 * @throws Exception in case the channel cannot be read from or ends too soon.
+	 */
+	private boolean ensure(int n, boolean decodedAlready) throws Exception {
+		while(buffer.remaining()<n) {
+			if(decodedAlready) {
+				return false;
+			}
+			if(!fill()) {
+				throw new Exception("Encoded file truncated.");
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Private method. Moves unread bytes to the start of the buffer and reads more from the channel.
+	 * @return boolean, false at the end of the channel.
+	 * @throws IOException in case the channel cannot be read from.
+	 */
+	private boolean fill() throws IOException {
+		buffer.compact();
+		int read = channel.read(buffer);
+		buffer.flip();
+		return read>=0;
+	}
+
+	/**
+	 * Getter.
+	 * @return boolean, true until the channel is closed.
+	 */
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Closes the underlying channel.
+	 * @throws IOException in case the channel cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		open = false;
+		channel.close();
+	}
+}
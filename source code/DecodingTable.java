@@ -0,0 +1,119 @@
+/**
+ * DecodingTable class. Immutable lookup tables derived from a CodeTable, shared by any number of TableDecoder instances.
+ * Holds the CodeTree of the table flattened into an int array and a primary table indexed by the next TABLE_BITS bits
+ * of the encoded stream. An entry of the primary table resolves up to two symbols at once.
+ * Codewords longer than TABLE_BITS are resolved by walking the flattened tree from the node the entry points to.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class DecodingTable {
+	/**
+	 * Number of bits used to index the primary table.
+	 */
+	public static final int TABLE_BITS = 11;
+	/**
+	 * Value of an entry that does not lead to any symbol.
+	 */
+	static final int INVALID = -1;
+
+	final int[] children;
+	final int[] entries;
+
+	/**
+	 * Constructor for the DecodingTable class.
+	 * @param table: CodeTable, codewords the lookup tables are built from.
+	 * @throws Exception in case the codewords do not form a prefix code.
+	 */
+	DecodingTable(CodeTable table) throws Exception {
+		children = buildTree(table);
+		entries = new int[1<<TABLE_BITS];
+		for(int prefix = 0; prefix<entries.length; prefix++) {
+			entries[prefix] = buildEntry(prefix);
+		}
+	}
+
+	/**
+	 * Private static method. Flattens the code tree of the table into a single array.
+	 * Children of node n of the CodeTree are held at indices 2n (bit 0) and 2n+1 (bit 1).
+	 * A positive value is the index of an internal node, a negative value is ~symbol of a final node
+	 * and zero marks a missing child. Node 0 is the root.
+	 * @param table: CodeTable, codewords to be flattened.
+	 * @return int[], the flattened tree.
+	 * @throws Exception in case the codewords do not form a prefix code.
+	 */
+	private static int[] buildTree(CodeTable table) throws Exception {
+		CodeTree tree = table.getCodeTree();
+		if(tree.isFinal(0)) {
+			return new int[] {~tree.getSymbol(0), 0};
+		}
+		int[] answer = new int[2*tree.getSize()];
+		for(int node = 0; node<tree.getSize(); node++) {
+			if(tree.isFinal(node)) {
+				continue;
+			}
+			answer[2*node] = child(tree, tree.getLeft(node));
+			answer[2*node+1] = child(tree, tree.getRight(node));
+		}
+		return answer;
+	}
+
+	/**
+	 * Private static method. Encodes a child of the code tree as a value of the flattened tree.
+	 * @param tree: CodeTree, the code tree.
+	 * @param child: int, index of the child, CodeTree.NONE if missing.
+	 * @return int, index of an internal node, ~symbol of a final node or zero.
+	 */
+	private static int child(CodeTree tree, int child) {
+		if(child==CodeTree.NONE) {
+			return 0;
+		}
+		return tree.isFinal(child) ? ~tree.getSymbol(child) : child;
+	}
+
+	/**
+	 * Private method. Builds the primary table entry for a TABLE_BITS long prefix.
+	 * Layout of an entry: bits 0-8 first symbol, bits 9-17 second symbol, bits 18-22 bits used by both symbols,
+	 * bits 23-27 bits used by the first symbol, bits 28-29 number of symbols.
+	 * An entry with zero symbols holds in bits 0-17 the node reached after TABLE_BITS bits.
+	 * The EOF symbol is never paired with another symbol.
+	 * @param prefix: int, next TABLE_BITS bits of the stream.
+	 * @return int, the entry.
+	 */
+	private int buildEntry(int prefix) {
+		int node = 0;
+		int used = 0;
+		int first = -1;
+		int firstUsed = 0;
+		while(used<TABLE_BITS) {
+			used++;
+			int next = children[2*node + ((prefix>>>(TABLE_BITS-used))&1)];
+			if(next==0) {
+				node = 0;
+				break;
+			}
+			if(next>0) {
+				node = next;
+				continue;
+			}
+			if(first!=-1) {
+				if(~next==CodeTable.EOF) {
+					break;
+				}
+				return first | (~next<<9) | (used<<18) | (firstUsed<<23) | (2<<28);
+			}
+			first = ~next;
+			firstUsed = used;
+			if(first==CodeTable.EOF) {
+				break;
+			}
+			node = 0;
+		}
+		if(first!=-1) {
+			return first | (firstUsed<<18) | (firstUsed<<23) | (1<<28);
+		}
+		if(node!=0) {
+			return node;
+		}
+		return INVALID;
+	}
+}
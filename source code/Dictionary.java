@@ -0,0 +1,264 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Dictionary class. Immutable canonical code table trained on a corpus of sample files and identified by a name
+ * and a version, so that containers of small files can reference it instead of carrying a code table of their own.
+ * Layout of a dictionary file: magic bytes, format version, length of the name, the name, version (2 bytes),
+ * code length header written by CodeTable.writeHeader. Dictionary files are named by getFileName.
+ * A container references a dictionary by its name, version and the CRC-32 checksum of its code length header,
+ * so that it is never decoded with a different table published under the same name and version.
+ * Create an instance with the static method "train" or "read".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Dictionary {
+	/**
+	 * Magic bytes at the start of every dictionary file.
+	 */
+	public static final byte[] MAGIC = {'H', 'U', 'F', 'D'};
+	/**
+	 * Current format version of dictionary files.
+	 */
+	public static final int FORMAT = 1;
+	/**
+	 * Extension of dictionary files.
+	 */
+	public static final String EXTENSION = ".dict";
+	/**
+	 * Longest name of a dictionary.
+	 */
+	public static final int MAX_NAME_LENGTH = 64;
+	/**
+	 * Highest version of a dictionary.
+	 */
+	public static final int MAX_VERSION = 0xFFFF;
+
+	private final String name;
+	private final int version;
+	private final CodeTable table;
+	private final int checksum;
+
+	/**
+	 * Constructor for the Dictionary class.
+	 * @param name: String, name made of letters, digits, '.', '_' and '-', at most MAX_NAME_LENGTH characters,
+	 * not holding "..".
+	 * @param version: int, version within <0;MAX_VERSION> range.
+	 * @param table: CodeTable, codewords of the dictionary, made canonical.
+	 * @throws Exception in case the name or version is not valid or the table is not a prefix code.
+	 */
+	public Dictionary(String name, int version, CodeTable table) throws Exception {
+		checkName(name);
+		if(version<0 || version>MAX_VERSION) {
+			throw new Exception("Dictionary version must be between 0 and "+MAX_VERSION+".");
+		}
+		this.name = name;
+		this.version = version;
+		this.table = table.toCanonical();
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		this.table.writeHeader(header);
+		CRC32 crc = new CRC32();
+		crc.update(header.toByteArray());
+		checksum = (int) crc.getValue();
+	}
+
+	/**
+	 * Static method. Call this method to train a dictionary on sample files. Occurrences of all symbols are counted
+	 * by TreeBuilder in every file and added up. Every byte value gets one more occurrence, so that files holding
+	 * bytes missing from the samples can still be encoded, and EOF occurs once per file.
+	 * @param name: String, name of the dictionary.
+	 * @param version: int, version of the dictionary.
+	 * @param files: List<String>, names of the sample files.
+	 * @param maxLength: int, the longest allowed codeword, 0 for no limit.
+	 * @return Dictionary, the trained dictionary.
+	 * @throws Exception in case there is no sample, a sample cannot be read from or the limit is too low.
+	 */
+	public static Dictionary train(String name, int version, List<String> files, int maxLength) throws Exception {
+		if(files.isEmpty()) {
+			throw new Exception("No sample files to train the dictionary on.");
+		}
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		Arrays.fill(frequencies, 0, 256, 1);
+		for(String file: files) {
+			long[] sample = new TreeBuilder(file).buildFrequencies();
+			for(int symbol = 0; symbol<256; symbol++) {
+				frequencies[symbol] += sample[symbol];
+			}
+		}
+		frequencies[CodeTable.EOF] = files.size();
+		int[] lengths = maxLength==0 ? CodeLengthBuilder.build(frequencies)
+				: CodeLengthBuilder.build(frequencies, maxLength);
+		return new Dictionary(name, version, CodeTable.canonical(lengths));
+	}
+
+	/**
+	 * Call this method to save the dictionary into a file.
+	 * @param file: String, name of the file, see getFileName.
+	 * @throws IOException in case the file cannot be written to.
+	 */
+	public void write(String file) throws IOException {
+		try(OutputStream out = new FileOutputStream(file)) {
+			DataOutputStream data = new DataOutputStream(out);
+			data.write(MAGIC);
+			data.writeByte(FORMAT);
+			writeName(data);
+			data.writeShort(version);
+			table.writeHeader(data);
+			data.flush();
+		}
+	}
+
+	/**
+	 * Static method. Call this method to load a dictionary saved by write.
+	 * @param file: String, name of the file.
+	 * @return Dictionary, the dictionary.
+	 * @throws Exception in case the file cannot be read from or does not hold a dictionary.
+	 */
+	public static Dictionary read(String file) throws Exception {
+		try(InputStream in = new FileInputStream(file)) {
+			DataInputStream data = new DataInputStream(in);
+			byte[] magic = new byte[MAGIC.length];
+			data.readFully(magic);
+			if(!Arrays.equals(magic, MAGIC)) {
+				throw new Exception("Not a dictionary file: "+file);
+			}
+			int format = data.readUnsignedByte();
+			if(format>FORMAT) {
+				throw new Exception("Unsupported dictionary format "+format+".");
+			}
+			String name = readName(data);
+			int version = data.readUnsignedShort();
+			return new Dictionary(name, version, CodeTable.readHeader(data));
+		} catch(EOFException e) {
+			throw new Exception("Dictionary file truncated: "+file);
+		}
+	}
+
+	/**
+	 * Call this method to write the reference held by a container: name, version and checksum.
+	 * @param out: DataOutputStream, stream to write the reference into.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	public void writeReference(DataOutputStream out) throws IOException {
+		writeName(out);
+		out.writeShort(version);
+		out.writeInt(checksum);
+	}
+
+	/**
+	 * Static method. Call this method to read a reference written by writeReference and find the dictionary
+	 * in a registry.
+	 * @param in: DataInputStream, stream positioned at the start of the reference.
+	 * @param registry: DictionaryRegistry, registry the dictionary is looked up in.
+	 * @return Dictionary, the referenced dictionary.
+	 * @throws Exception in case the dictionary is not in the registry or differs from the one referenced.
+	 */
+	public static Dictionary readReference(DataInputStream in, DictionaryRegistry registry) throws Exception {
+		String name = readName(in);
+		checkName(name);
+		int version = in.readUnsignedShort();
+		int checksum = in.readInt();
+		Dictionary dictionary = registry.get(name, version);
+		if(dictionary.checksum!=checksum) {
+			throw new Exception("Dictionary "+name+" version "+version+" differs from the one the file was encoded with.");
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Private method. Writes the name preceded by its length.
+	 * @param out: DataOutputStream, stream to write the name into.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	private void writeName(DataOutputStream out) throws IOException {
+		byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+		out.writeByte(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Static method. Call this method before a name is used to find a file, as names read from a container
+	 * are not to be trusted. A valid name never leads out of the registry directory.
+	 * @param name: String, name of a dictionary.
+	 * @throws Exception in case the name holds characters other than letters, digits, '.', '_' and '-',
+	 * holds "..", is empty or longer than MAX_NAME_LENGTH characters.
+	 */
+	public static void checkName(String name) throws Exception {
+		if(!name.matches("[A-Za-z0-9._-]{1,"+MAX_NAME_LENGTH+"}") || name.contains("..")) {
+			throw new Exception("Invalid dictionary name: "+name);
+		}
+	}
+
+	/**
+	 * Private static method. Reads a name written by writeName.
+	 * @param in: DataInputStream, stream positioned at the start of the name.
+	 * @return String, the name.
+	 * @throws IOException in case the stream ends.
+	 */
+	private static String readName(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readUnsignedByte()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Static method. Getter.
+	 * @param name: String, name of a dictionary.
+	 * @param version: int, version of the dictionary.
+	 * @return String, name of the file the dictionary is saved in within a registry directory, e.g. logs-3.dict.
+	 */
+	public static String getFileName(String name, int version) {
+		return name+"-"+version+EXTENSION;
+	}
+
+	/**
+	 * Getter.
+	 * @return String, name of the file the dictionary is saved in within a registry directory.
+	 */
+	public String getFileName() {
+		return getFileName(name, version);
+	}
+
+	/**
+	 * Getter.
+	 * @return String, name of the dictionary.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, version of the dictionary.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Getter.
+	 * @return CodeTable, canonical codewords of the dictionary.
+	 */
+	public CodeTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, CRC-32 checksum of the code length header of the dictionary.
+	 */
+	public int getChecksum() {
+		return checksum;
+	}
+}
@@ -0,0 +1,109 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DictionaryRegistry class. Thread-safe registry of the dictionaries held in a directory, saved by Train
+ * in files named by Dictionary.getFileName. A dictionary is loaded when it is first referenced and stays resident
+ * for the life of the registry, so decoding any number of containers loads every dictionary only once.
+ * CodeTable builds its DecodingTable only once too, so all decoders of a dictionary share its lookup tables.
+ * A process-wide instance, used by Container.readHeader, is available through "getShared". It reads the directory
+ * given by the system property huffman.dictionaries, the directory dictionaries by default.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class DictionaryRegistry {
+	/**
+	 * System property naming the directory of the shared instance.
+	 */
+	public static final String DIRECTORY_PROPERTY = "huffman.dictionaries";
+	/**
+	 * Directory of the shared instance if the system property is not set.
+	 */
+	public static final String DEFAULT_DIRECTORY = "dictionaries";
+	private static final DictionaryRegistry SHARED =
+			new DictionaryRegistry(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+
+	private final ConcurrentHashMap<String, Dictionary> dictionaries;
+	private volatile Path directory;
+
+	/**
+	 * Constructor for the DictionaryRegistry class.
+	 * @param directory: String, name of the directory holding the dictionary files.
+	 */
+	public DictionaryRegistry(String directory) {
+		dictionaries = new ConcurrentHashMap<String, Dictionary>();
+		this.directory = Paths.get(directory);
+	}
+
+	/**
+	 * Static method. Getter.
+	 * @return DictionaryRegistry, the process-wide instance.
+	 */
+	public static DictionaryRegistry getShared() {
+		return SHARED;
+	}
+
+	/**
+	 * The primary method for DictionaryRegistry object. Returns a dictionary, loading it from the directory
+	 * on first request. Files are loaded outside of any lock, so a slow disk does not hold up other threads.
+	 * @param name: String, name of the dictionary.
+	 * @param version: int, version of the dictionary.
+	 * @return Dictionary, the dictionary.
+	 * @throws Exception in case the name is not valid, the dictionary is not in the directory or its file is corrupted.
+	 */
+	public Dictionary get(String name, int version) throws Exception {
+		Dictionary.checkName(name);
+		String fileName = Dictionary.getFileName(name, version);
+		Dictionary dictionary = dictionaries.get(fileName);
+		if(dictionary!=null) {
+			return dictionary;
+		}
+		Path file = directory.resolve(fileName);
+		if(!Files.isRegularFile(file)) {
+			throw new Exception("Dictionary "+name+" version "+version+" not found in "+directory+".");
+		}
+		dictionary = Dictionary.read(file.toString());
+		if(!dictionary.getName().equals(name) || dictionary.getVersion()!=version) {
+			throw new Exception("Dictionary file "+file+" holds "+dictionary.getName()+" version "
+					+dictionary.getVersion()+".");
+		}
+		Dictionary cached = dictionaries.putIfAbsent(fileName, dictionary);
+		return cached==null ? dictionary : cached;
+	}
+
+	/**
+	 * Call this method to make a dictionary resident without a file, e.g. the one just used for encoding.
+	 * It replaces any dictionary of the same name and version.
+	 * @param dictionary: Dictionary, the dictionary.
+	 */
+	public void register(Dictionary dictionary) {
+		dictionaries.put(dictionary.getFileName(), dictionary);
+	}
+
+	/**
+	 * Setter. Dictionaries loaded from the previous directory are dropped.
+	 * @param directory: String, name of the directory holding the dictionary files.
+	 */
+	public void setDirectory(String directory) {
+		this.directory = Paths.get(directory);
+		dictionaries.clear();
+	}
+
+	/**
+	 * Getter.
+	 * @return String, name of the directory holding the dictionary files.
+	 */
+	public String getDirectory() {
+		return directory.toString();
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of resident dictionaries.
+	 */
+	public int size() {
+		return dictionaries.size();
+	}
+}
@@ -1,175 +1,509 @@
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-
-/**
- * Encode class. The main class to be run in order to encode a file.
- * @author Zdenek Plesek
- * @version 1.0
- */
-public class Encode {
-	private static BufferedInputStream in;
-	private static BufferedOutputStream out;
-	
-	/**
-	 * The main method of the Encode class. Call from terminal.
-	 * This method handles input from terminal and calls auxiliary methods to fetch Huffman tree
-	 * and perform actual decoding.
-	 * @param args: String[], passed from console.
-	 */
-	public static void main(String[] args) {
-		long startTime = System.currentTimeMillis(); 
-		TreeNode rootTreeNode;
-		switch(args.length) {
-		case 1:
-			rootTreeNode = makeTree(args[0]);
-			encode(rootTreeNode, args[0], args[0].concat(".hf"));
-			break;
-		case 2:
-			if(args[1].substring(0, 7).equals("-using:")) {
-				rootTreeNode = extractTree(args[1].substring(7));
-				encode(rootTreeNode, args[0], args[0].concat(".hf"));
-			} else {
-				rootTreeNode = makeTree(args[0]);
-				encode(rootTreeNode, args[0], args[1]);
-			}
-			break;
-		case 3:
-			if(args[1].substring(0, 7).equals("-using:")) {
-				rootTreeNode = extractTree(args[1].substring(7));
-				encode(rootTreeNode, args[0], args[2]);
-				break;
-			}
-			System.out.println("Invalid input.\n\n");
-		case 0:
-		default:
-			System.out.println(
-					"This command may take up to two three arguments.\n"
-					+ "In case only one is provided, it will be understood to be the name of the file to be encoded.\n"
-					+ "In case there are two arguments, the first one is understood to be the name of the file to be encoded.\n"
-					+ "The second argument can either specify tree to be used, preface the name of the file with \"-using:\"\n"
-					+ "Or it can be a name of the output file.\n"
-					+ "In case three arguments are provided, the first one will be understood to be the name of the file to be encoded.\n"
-					+ "The second one the name of the .tree file, preface its name with -using:\n"
-					+ "The third argument will become the new name of the file.\n"
-					+ "\n"
-					+ "All arguments must be separated by spaces. The file names may not contain spaces."); 
-		}
-		long timeElapsed = System.currentTimeMillis() -  startTime;
-		System.out.println(timeElapsed+" miliseconds elapsed.");
-	}
-	
-	/**
-	 * Private method called to encode a file.
-	 * @param rootTreeNode: TreeNode, root node of the Huffman tree.
-	 * @param inputFile: String, name of the file to be decoded.
-	 * @param outputFile: String, name of the resulting file.
-	 */
-	private static void encode(TreeNode rootTreeNode, String originFile, String outputFile) {
-		Encoder enc = new Encoder(rootTreeNode);
-		try {
-			in = new BufferedInputStream(new FileInputStream(originFile));
-			out = new BufferedOutputStream(new FileOutputStream(outputFile));
-			
-		} catch (Exception e) {
-			System.out.println(e);
-			System.exit(126);
-		}
-		Integer b;
-		String record;
-		try {
-			b = in.read();
-			while(b>-1) {
-				enc.encodeByteToBuffer(b);
-				while(enc.hasNextByte()) {
-					record = enc.getNextByte();
-					out.write(Encoder.parseStringAsBinaryByte(record));
-				}
-				b = in.read();
-			}
-			String[] remains = enc.flush();
-			for(String rem: remains) {
-				out.write(Encoder.parseStringAsBinaryByte(rem));
-			}
-		}catch(Exception e) {
-			System.out.println(e);
-			System.exit(1);
-		}
-		try {
-			in.close();
-			out.close();
-		} catch (IOException e) {
-			System.out.println(e);
-			System.exit(1);
-		}
-		
-	}
-	
-	/**
-	 * Private method that can be used to build a Huffman tree from an unencoded file.
-	 * @param originFile: String, name of the file according to which the tree will be built.
-	 * @return TreeNode, returns the root node of the Huffman tree.
-	 */
-	private static TreeNode makeTree(String originFile) {
-		int tmp = originFile.lastIndexOf('.');
-		String treefile = originFile;
-		if(tmp!=-1) {
-			treefile = originFile.substring(0, originFile.lastIndexOf('.'));
-		}		
-		treefile = treefile.concat(".tree");
-		TreeBuilder tr;
-		try {
-			tr = new TreeBuilder(originFile);
-			
-			//String s = originFile.substring(0,originFile.lastIndexOf("."));
-			BufferedOutputStream ot = new BufferedOutputStream(new FileOutputStream(treefile));
-			TreeNode root = tr.buildTree();
-			ot.write(root.generateOutputContent());
-			ot.close();
-			return root;
-		} catch (Exception e) {
-			System.out.println(e);
-			System.exit(126);
-		}
-		
-		return null;
-	}
-	
-	/**
-	 * Private method to parse a tree from a .tree file created as a product of makeTree method.
-	 * @param originFile: String, name of the file from which the tree will be parsed.
-	 * @return TreeNode, returns the root node of the Huffman tree.
-	 */
-	private static TreeNode extractTree(String originFile) {
-		TreeRebuilder tr = new TreeRebuilder();
-		BufferedInputStream ot = null;
-		try {
-			 ot = new BufferedInputStream(new FileInputStream(originFile));
-		} catch (Exception e) {
-			System.out.println("Cannot open the .tree file.");
-			System.out.println(e);
-			System.exit(126);
-		}
-		try {			
-			Integer read;
-			read = ot.read();
-			while(read>-1) {
-				tr.nextByte( (byte) read.intValue() );
-				read = ot.read();
-			}
-		} catch(Exception e) {
-			System.out.println(e);
-			System.exit(1);
-		}
-		
-		try {
-			return tr.getTree();
-		} catch(Exception e) {
-			System.out.println(e);
-			System.exit(1);
-		}
-		return null;
-	}
-}
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Encode class. The main class to be run in order to encode a file.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Encode {
+	private static BufferedInputStream in;
+	private static BufferedOutputStream out;
+	private static final int BUFFER_SIZE = 1<<16;
+	private static boolean canonical;
+	private static boolean sidecar;
+	private static boolean parallel;
+	private static boolean mmap;
+	private static boolean adaptive;
+	private static boolean context;
+	private static ContextModel model;
+	private static String dictionaryFile;
+	private static Dictionary dictionary;
+	private static int blockSize = ParallelEncoder.DEFAULT_BLOCK_SIZE;
+	private static int maxLength;
+	private static long sampleSize;
+	private static int sampleChunks = 16;
+	private static double estimatedRatio;
+	private static int headerLength;
+	private static Metrics metrics;
+	private static boolean printMetrics;
+	private static String metricsFile;
+	
+	/**
+	 * The main method of the Encode class. Call from terminal.
+	 * This method handles input from terminal and calls auxiliary methods to fetch Huffman tree
+	 * and perform actual decoding.
+	 * @param args: String[], passed from console.
+	 */
+	public static void main(String[] args) {
+		long startTime = System.currentTimeMillis(); 
+		args = parseOptions(args);
+		metrics = new Metrics("encode", printMetrics);
+		CodeTable table;
+		switch(args.length) {
+		case 1:
+			table = makeTree(args[0]);
+			encode(table, args[0], args[0].concat(".hf"));
+			break;
+		case 2:
+			if(args[1].startsWith("-using:")) {
+				table = extractTree(args[1].substring(7));
+				encode(table, args[0], args[0].concat(".hf"));
+			} else {
+				table = makeTree(args[0]);
+				encode(table, args[0], args[1]);
+			}
+			break;
+		case 3:
+			if(args[1].startsWith("-using:")) {
+				table = extractTree(args[1].substring(7));
+				encode(table, args[0], args[2]);
+				break;
+			}
+			System.out.println("Invalid input.\n\n");
+		case 0:
+		default:
+			System.out.println(
+					"This command may take up to two three arguments.\n"
+					+ "In case only one is provided, it will be understood to be the name of the file to be encoded.\n"
+					+ "In case there are two arguments, the first one is understood to be the name of the file to be encoded.\n"
+					+ "The second argument can either specify tree to be used, preface the name of the file with \"-using:\"\n"
+					+ "Or it can be a name of the output file.\n"
+					+ "In case three arguments are provided, the first one will be understood to be the name of the file to be encoded.\n"
+					+ "The second one the name of the .tree file, preface its name with -using:\n"
+					+ "The third argument will become the new name of the file.\n"
+					+ "\n"
+					+ "The encoded file is a .hf container holding the code table, Decode needs nothing else.\n"
+					+ "\n"
+					+ "Options may be placed anywhere among the arguments:\n"
+					+ "    -sidecar    write a legacy encoded file and a separate .tree file instead of a container.\n"
+					+ "    -canonical  with -sidecar, the new .tree file holds only canonical code lengths.\n"
+					+ "    -parallel   encode blocks of the file concurrently on all cores.\n"
+					+ "    -blockSize:<size>  size of a block with -parallel, in bytes or with a K or M suffix. 4M by default.\n"
+					+ "    -maxLength:<bits>  limit codewords of a newly built tree to the given length, e.g. 11, 12 or 15.\n"
+					+ "    -sample:<size>  build the tree from a sample of the given size instead of the whole file.\n"
+					+ "    -sampleChunks:<n>  number of evenly spaced chunks the sample is taken in, 1 for a prefix. 16 by default.\n"
+					+ "    -mmap       read the file through memory mapping. Not combined with -parallel.\n"
+					+ "    -adaptive   encode in a single pass with adaptive Huffman codes, no tree is built or used.\n"
+					+ "    -context    encode every byte with a code table selected by the byte before it.\n"
+					+ "                Not combined with -using, -sidecar, -parallel or -mmap.\n"
+					+ "    -dictionary:<file>  encode with a dictionary written by Train. The container refers to it\n"
+					+ "                instead of holding a code table. Not combined with -using, -sidecar, -parallel or -mmap.\n"
+					+ "    -metrics    print durations of the phases, sizes and throughput as a line of JSON.\n"
+					+ "    -metrics:<file>  write that line into the given file instead.\n"
+					+ "\n"
+					+ "All arguments must be separated by spaces. The file names may not contain spaces."); 
+		}
+		long timeElapsed = System.currentTimeMillis() -  startTime;
+		System.out.println(timeElapsed+" miliseconds elapsed.");
+		reportMetrics();
+	}
+	
+	/**
+	 * Private method. Commits the metrics of the run and with -metrics prints or writes them as JSON.
+	 */
+	private static void reportMetrics() {
+		metrics.commit();
+		if(!printMetrics) {
+			return;
+		}
+		if(metricsFile==null) {
+			System.out.println(metrics.toJson());
+			return;
+		}
+		try {
+			Files.writeString(Paths.get(metricsFile), metrics.toJson()+System.lineSeparator());
+		} catch (IOException e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Private method. Removes recognised options from the arguments and sets the corresponding fields.
+	 * @param args: String[], arguments passed from console.
+	 * @return String[], the remaining arguments.
+	 */
+	private static String[] parseOptions(String[] args) {
+		LinkedList<String> remaining = new LinkedList<String>();
+		for(String arg: args) {
+			if(arg.equals("-canonical")) {
+				canonical = true;
+			} else if(arg.equals("-sidecar")) {
+				sidecar = true;
+			} else if(arg.equals("-parallel")) {
+				parallel = true;
+			} else if(arg.equals("-mmap")) {
+				mmap = true;
+			} else if(arg.equals("-adaptive")) {
+				adaptive = true;
+			} else if(arg.equals("-context")) {
+				context = true;
+			} else if(arg.startsWith("-dictionary:")) {
+				dictionaryFile = arg.substring(12);
+			} else if(arg.equals("-metrics")) {
+				printMetrics = true;
+			} else if(arg.startsWith("-metrics:")) {
+				printMetrics = true;
+				metricsFile = arg.substring(9);
+			} else if(arg.startsWith("-blockSize:")) {
+				blockSize = parseSize(arg.substring(11));
+				if(blockSize<ParallelEncoder.MIN_BLOCK_SIZE || blockSize>ParallelEncoder.MAX_BLOCK_SIZE) {
+					System.out.println("Block size must be between "+ParallelEncoder.MIN_BLOCK_SIZE/1024+"K and "
+							+ParallelEncoder.MAX_BLOCK_SIZE/(1024*1024)+"M.");
+					System.exit(1);
+				}
+			} else if(arg.startsWith("-sample:")) {
+				sampleSize = parseSize(arg.substring(8));
+			} else if(arg.startsWith("-sampleChunks:")) {
+				sampleChunks = parseSize(arg.substring(14));
+				if(sampleChunks<1) {
+					System.out.println("Number of sample chunks must be positive.");
+					System.exit(1);
+				}
+			} else if(arg.startsWith("-maxLength:")) {
+				try {
+					maxLength = Integer.parseInt(arg.substring(11));
+				} catch (NumberFormatException e) {
+					maxLength = -1;
+				}
+				if(maxLength<1 || maxLength>CodeTable.MAX_CODE_LENGTH) {
+					System.out.println("Maximum code length must be between 1 and "+CodeTable.MAX_CODE_LENGTH+".");
+					System.exit(1);
+				}
+			} else {
+				remaining.add(arg);
+			}
+		}
+		return remaining.toArray(new String[0]);
+	}
+	
+	/**
+	 * Private method. Parses a size given in bytes, optionally with a K or M suffix.
+	 * @param size: String, the size.
+	 * @return int, the size in bytes.
+	 */
+	private static int parseSize(String size) {
+		int multiplier = 1;
+		if(size.endsWith("K") || size.endsWith("k")) {
+			multiplier = 1<<10;
+		} else if(size.endsWith("M") || size.endsWith("m")) {
+			multiplier = 1<<20;
+		}
+		if(multiplier>1) {
+			size = size.substring(0, size.length()-1);
+		}
+		try {
+			return Math.multiplyExact(Integer.parseInt(size), multiplier);
+		} catch (Exception e) {
+			System.out.println("Invalid size: "+size);
+			System.exit(1);
+		}
+		return 0;
+	}
+	
+	/**
+	 * Private method called to encode a file. Unless -sidecar was given, the file is written as a container
+	 * whose header holds the canonical form of the table. With -mmap, the file is encoded by MappedCodec.
+	 * With -adaptive, the table is ignored and the file is encoded by AdaptiveEncoder.
+	 * With -context, the file is encoded by ContextEncoder with the model built by makeTree.
+	 * With -dictionary:, the table is the one of the dictionary loaded by makeTree, which the container refers to.
+	 * @param table: CodeTable, codewords to encode with.
+	 * @param inputFile: String, name of the file to be decoded.
+	 * @param outputFile: String, name of the resulting file.
+	 */
+	private static void encode(CodeTable table, String originFile, String outputFile) {
+		ChunkEncoder enc = null;
+		metrics.setTable(table);
+		metrics.setMode(adaptive ? "adaptive" : context ? "context" : dictionaryFile!=null ? "dictionary"
+				: sidecar ? "sidecar" : parallel ? "blocks" : "single");
+		try {
+			metrics.begin("header");
+			if(adaptive) {
+				enc = new AdaptiveEncoder();
+				in = new BufferedInputStream(new FileInputStream(originFile));
+				out = new BufferedOutputStream(new FileOutputStream(outputFile));
+				new Container(Container.MODE_ADAPTIVE, Files.size(Paths.get(originFile)), null).writeHeader(out);
+			} else if(context) {
+				if(model==null) {
+					throw new Exception("-context builds its own code tables and cannot be used with a .tree file.");
+				}
+				metrics.setModel(model);
+				enc = new ContextEncoder(model);
+				in = new BufferedInputStream(new FileInputStream(originFile));
+				out = new BufferedOutputStream(new FileOutputStream(outputFile));
+				new Container(Files.size(Paths.get(originFile)), model).writeHeader(out);
+			} else if(dictionaryFile!=null) {
+				if(dictionary==null) {
+					throw new Exception("-dictionary holds its own code table and cannot be used with a .tree file.");
+				}
+				enc = new TableEncoder(table);
+				in = new BufferedInputStream(new FileInputStream(originFile));
+				out = new BufferedOutputStream(new FileOutputStream(outputFile));
+				new Container(Files.size(Paths.get(originFile)), dictionary).writeHeader(out);
+			} else {
+				Container container = null;
+				if(!sidecar) {
+					table = table.toCanonical();
+					int mode = parallel ? Container.MODE_BLOCKS : Container.MODE_SINGLE;
+					container = new Container(mode, Files.size(Paths.get(originFile)), table);
+					headerLength = container.getHeaderLength();
+				}
+				if(mmap && !parallel) {
+					metrics.begin("encode");
+					MappedCodec.encode(table, originFile, outputFile, !sidecar);
+					metrics.end();
+					recordSizes(originFile, outputFile);
+					reportEstimate(originFile, outputFile);
+					return;
+				}
+				enc = new TableEncoder(table);
+				in = new BufferedInputStream(new FileInputStream(originFile));
+				out = new BufferedOutputStream(new FileOutputStream(outputFile));
+				if(container!=null) {
+					container.writeHeader(out);
+				}
+			}
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+		try {
+			metrics.begin("encode");
+			if(parallel && !sidecar && !adaptive && !context && dictionaryFile==null) {
+				new ParallelEncoder(table, blockSize, ForkJoinPool.commonPool()).encode(in, out);
+			} else {
+				encodeStream(enc);
+			}
+		}catch(Exception e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+		try {
+			metrics.begin("flush");
+			in.close();
+			out.close();
+			metrics.end();
+		} catch (IOException e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+		recordSizes(originFile, outputFile);
+		reportEstimate(originFile, outputFile);
+	}
+	
+	/**
+	 * Private method. Hands the sizes of the files over to the metrics.
+	 * @param originFile: String, name of the encoded file.
+	 * @param outputFile: String, name of the resulting file.
+	 */
+	private static void recordSizes(String originFile, String outputFile) {
+		try {
+			metrics.setSizes(Files.size(Paths.get(originFile)), Files.size(Paths.get(outputFile)));
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+	
+	/**
+	 * Private method. With -sample, prints the ratio estimated from the sample next to the actual one.
+	 * The estimate covers the encoded data only, so the container header is left out of the actual ratio too.
+	 * @param originFile: String, name of the encoded file.
+	 * @param outputFile: String, name of the resulting file.
+	 */
+	private static void reportEstimate(String originFile, String outputFile) {
+		if(estimatedRatio==0) {
+			return;
+		}
+		try {
+			long size = Files.size(Paths.get(originFile));
+			if(size==0) {
+				return;
+			}
+			double actualRatio = (double) (Files.size(Paths.get(outputFile))-headerLength)/size;
+			System.out.println(String.format("Ratio estimated from the sample %.4f, actual %.4f (%+.2f%%).",
+					estimatedRatio, actualRatio, 100*(actualRatio-estimatedRatio)/estimatedRatio));
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+	
+	/**
+	 * Private method. Encodes the rest of the input stream into the output stream, followed by the EOF symbol.
+	 * @param enc: ChunkEncoder, encoder to be used.
+	 * @throws Exception in case the streams cannot be used or a byte has no codeword in the table.
+	 */
+	private static void encodeStream(ChunkEncoder enc) throws Exception {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int read = in.read(buffer);
+		while(read>-1) {
+			enc.encode(buffer, 0, read);
+			out.write(enc.getOutput(), 0, enc.getOutputLength());
+			read = in.read(buffer);
+		}
+		metrics.begin("flush");
+		enc.flush();
+		out.write(enc.getOutput(), 0, enc.getOutputLength());
+	}
+	
+	/**
+	 * Private method that can be used to build a Huffman tree from an unencoded file.
+	 * With -sidecar the tree is saved into a .tree file, either as nested nodes or, with -canonical, as code lengths.
+	 * Nested nodes may hold '-' and EOF exchanged, the codewords of the tree as written are returned then,
+	 * see CodeTree.forTreeFile.
+	 * With -adaptive no tree is needed and the file is not read.
+	 * With -context the order-1 histogram of the file is counted and its ContextModel is kept in place of a tree.
+	 * With -dictionary: the file is not read, the table of the dictionary is returned instead.
+	 * @param originFile: String, name of the file according to which the tree will be built.
+	 * @return CodeTable, returns codewords of the Huffman tree, null with -adaptive and -context.
+	 */
+	private static CodeTable makeTree(String originFile) {
+		if(adaptive) {
+			return null;
+		}
+		if(context) {
+			makeModel(originFile);
+			return null;
+		}
+		if(dictionaryFile!=null) {
+			return loadDictionary();
+		}
+		int tmp = originFile.lastIndexOf('.');
+		String treefile = originFile;
+		if(tmp!=-1) {
+			treefile = originFile.substring(0, originFile.lastIndexOf('.'));
+		}		
+		treefile = treefile.concat(".tree");
+		TreeBuilder tr;
+		try {
+			tr = new TreeBuilder(originFile);
+			CodeTable table = CodeTable.canonical(buildCodeLengths(tr));
+			metrics.end();
+			if(!sidecar) {
+				return table;
+			}
+			
+			metrics.begin("treeWrite");
+			BufferedOutputStream ot = new BufferedOutputStream(new FileOutputStream(treefile));
+			if(canonical) {
+				table.writeHeader(ot);
+			} else {
+				CodeTree tree = table.getCodeTree().forTreeFile();
+				ot.write(tree.toTreeFile());
+				table = tree.toTable();
+			}
+			ot.close();
+			metrics.end();
+			return table;
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Private method. Loads the dictionary given by -dictionary:.
+	 * @return CodeTable, codewords of the dictionary.
+	 */
+	private static CodeTable loadDictionary() {
+		try {
+			metrics.begin("treeRead");
+			dictionary = Dictionary.read(dictionaryFile);
+			metrics.end();
+			return dictionary.getTable();
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+		return null;
+	}
+	
+	/**
+	 * Private method. Builds the ContextModel of the file, its codewords limited to -maxLength: if given.
+	 * The number of code tables and the size of the model header are printed.
+	 * @param originFile: String, name of the file the model is built from.
+	 */
+	private static void makeModel(String originFile) {
+		try {
+			metrics.begin("histogram");
+			long[][] frequencies = new TreeBuilder(originFile).buildContextFrequencies();
+			metrics.begin("tree");
+			model = ContextModel.build(frequencies, maxLength);
+			metrics.end();
+			System.out.println(String.format("Code tables of the context model: %d, header of %d bytes.",
+					model.getTableCount(), model.getHeaderLength()));
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+	}
+	
+	/**
+	 * Private method. Computes code lengths of the file, limited to -maxLength: if given.
+	 * The cost of the limit is printed. With -sample, only a sample of the file is read
+	 * and the ratio it promises is kept for reportEstimate.
+	 * @param tr: TreeBuilder, builder of the file.
+	 * @return int[], code length of each of the 257 symbols.
+	 * @throws Exception in case the file cannot be read from or the limit is too low.
+	 */
+	private static int[] buildCodeLengths(TreeBuilder tr) throws Exception {
+		long[] frequencies;
+		metrics.begin("histogram");
+		if(sampleSize>0) {
+			frequencies = tr.buildSampledFrequencies(sampleSize, sampleChunks);
+		} else {
+			frequencies = tr.buildFrequencies();
+		}
+		metrics.begin("tree");
+		int[] lengths = CodeLengthBuilder.build(frequencies);
+		int[] limited = maxLength==0 ? lengths : CodeLengthBuilder.build(frequencies, maxLength);
+		if(sampleSize>0) {
+			long sampled = 0;
+			for(int i = 0; i<256; i++) {
+				sampled += frequencies[i];
+			}
+			estimatedRatio = CodeLengthBuilder.encodedBits(frequencies, limited)/(8.0*sampled);
+		}
+		if(maxLength==0) {
+			return lengths;
+		}
+		long bits = CodeLengthBuilder.encodedBits(frequencies, lengths);
+		long limitedBits = CodeLengthBuilder.encodedBits(frequencies, limited);
+		double cost = bits==0 ? 0 : 100.0*(limitedBits-bits)/bits;
+		System.out.println(String.format("Codes limited to %d bits: %d encoded bytes instead of %d (+%.3f%%).",
+				maxLength, (limitedBits+7)/8, (bits+7)/8, cost));
+		return limited;
+	}
+	
+	/**
+	 * Private method to parse a tree from a .tree file created as a product of makeTree method.
+	 * Files holding code lengths are recognised by their first byte. Parsed tables are kept in the shared TableCache.
+	 * @param originFile: String, name of the file from which the tree will be parsed.
+	 * @return CodeTable, returns codewords of the Huffman tree.
+	 */
+	private static CodeTable extractTree(String originFile) {
+		try {
+			metrics.begin("treeRead");
+			CodeTable table = TableCache.getShared().get(originFile);
+			metrics.end();
+			return table;
+		} catch (IOException e) {
+			System.out.println("Cannot open the .tree file.");
+			System.out.println(e);
+			System.exit(126);
+		} catch(Exception e) {
+			System.out.println(e);
+			System.exit(1);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,115 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * EncodingChannel class. Writable channel that writes a .hf container of everything written into it
+ * into another channel. Bytes are encoded by a BufferEncoder straight from the buffers passed to "write"
+ * into a single direct buffer, which is written into the underlying channel whenever it fills up.
+ * The underlying channel must be in blocking mode. Closing this channel writes the EOF symbol
+ * and closes the underlying channel.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class EncodingChannel implements WritableByteChannel {
+	private static final int BUFFER_SIZE = 1<<16;
+	private final WritableByteChannel channel;
+	private final BufferEncoder enc;
+	private final ByteBuffer buffer;
+	private boolean open = true;
+
+	/**
+	 * Constructor for the EncodingChannel class. Writes the container header.
+	 * @param channel: WritableByteChannel, channel the container is written into.
+	 * @param table: CodeTable, codewords to encode with. Only its code lengths are used, the codewords are canonical.
+	 * @throws IOException in case the channel cannot be written to or the table does not describe a prefix code.
+	 */
+	public EncodingChannel(WritableByteChannel channel, CodeTable table) throws IOException {
+		this.channel = channel;
+		CodeTable canonical;
+		try {
+			canonical = table.toCanonical();
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		new Container(Container.MODE_SINGLE, Container.UNKNOWN_LENGTH, canonical).writeHeader(header);
+		enc = new BufferEncoder(canonical);
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.put(header.toByteArray());
+	}
+
+	/**
+	 * Encodes all remaining bytes of src.
+	 * @param src: ByteBuffer, bytes to be encoded.
+	 * @return int, number of bytes consumed from src.
+	 * @throws IOException in case the channel is closed, cannot be written to or a byte has no codeword in the table.
+	 */
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		if(!open) {
+			throw new ClosedChannelException();
+		}
+		int start = src.position();
+		try {
+			while(src.hasRemaining()) {
+				enc.encode(src, buffer);
+				if(!buffer.hasRemaining()) {
+					writeBuffer();
+				}
+			}
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		return src.position()-start;
+	}
+
+	/**
+	 * Getter.
+	 * @return boolean, true until the channel is closed.
+	 */
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Writes the EOF symbol and everything left in the buffer, then closes the underlying channel.
+	 * @throws IOException in case the channel cannot be written to.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(!open) {
+			return;
+		}
+		open = false;
+		try {
+			while(!enc.finish(buffer)) {
+				writeBuffer();
+			}
+			writeBuffer();
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Private method. Writes the buffer into the underlying channel and clears it.
+	 * @throws IOException in case the channel cannot be written to.
+	 */
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
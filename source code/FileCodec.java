@@ -0,0 +1,152 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * FileCodec class. Encodes files into .hf containers and decodes them back, reporting every failure as an exception
+ * instead of ending the process, so that many files can be processed in one run.
+ * An instance holds only its settings and may be used by any number of threads at once.
+ * Output is written into a sibling file with the .part extension, which is moved over the output file once complete
+ * and deleted on failure, so that a failed file never leaves a truncated output behind.
+ * Operate through dynamic methods "encode" and "decode".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class FileCodec {
+	private static final int BUFFER_SIZE = 1<<16;
+	private static final String PART_EXTENSION = ".part";
+	private final CodeTable table;
+	private final boolean adaptive;
+	private final int maxLength;
+	private final Dictionary dictionary;
+
+	/**
+	 * Constructor for the FileCodec class.
+	 * @param table: CodeTable, codewords every file is encoded with, null to build a tree for every file.
+	 * @param adaptive: boolean, true to encode with AdaptiveEncoder, the table is then ignored.
+	 * @param maxLength: int, limit of code lengths of trees built for the files, 0 for no limit.
+	 * @throws Exception in case the lengths of the table do not describe a prefix code.
+	 */
+	public FileCodec(CodeTable table, boolean adaptive, int maxLength) throws Exception {
+		this.table = table==null ? null : table.toCanonical();
+		this.adaptive = adaptive;
+		this.maxLength = maxLength;
+		dictionary = null;
+	}
+
+	/**
+	 * Constructor for the FileCodec class encoding every file with a shared dictionary.
+	 * Containers refer to the dictionary instead of holding its code table.
+	 * @param dictionary: Dictionary, dictionary every file is encoded with.
+	 */
+	public FileCodec(Dictionary dictionary) {
+		table = dictionary.getTable();
+		adaptive = false;
+		maxLength = 0;
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Call this method to encode a file into a container.
+	 * @param inputFile: String, name of the file to be encoded.
+	 * @param outputFile: String, name of the resulting container.
+	 * @return long, number of bytes written.
+	 * @throws Exception in case the files cannot be used or a byte has no codeword in the table.
+	 */
+	public long encode(String inputFile, String outputFile) throws Exception {
+		long length = Files.size(Paths.get(inputFile));
+		ChunkEncoder enc;
+		Container container;
+		if(adaptive) {
+			enc = new AdaptiveEncoder();
+			container = new Container(Container.MODE_ADAPTIVE, length, null);
+		} else {
+			CodeTable fileTable = table;
+			if(fileTable==null) {
+				long[] frequencies = new TreeBuilder(inputFile).buildFrequencies();
+				int[] lengths = maxLength==0 ? CodeLengthBuilder.build(frequencies)
+						: CodeLengthBuilder.build(frequencies, maxLength);
+				fileTable = CodeTable.canonical(lengths);
+			}
+			enc = new TableEncoder(fileTable);
+			if(dictionary!=null) {
+				container = new Container(length, dictionary);
+			} else {
+				container = new Container(Container.MODE_SINGLE, length, fileTable);
+			}
+		}
+		Path output = Paths.get(outputFile);
+		Path part = Paths.get(outputFile.concat(PART_EXTENSION));
+		try {
+			try(InputStream in = new FileInputStream(inputFile);
+					OutputStream out = new BufferedOutputStream(new FileOutputStream(part.toFile()), BUFFER_SIZE)) {
+				container.writeHeader(out);
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int read = in.read(buffer);
+				while(read>-1) {
+					enc.encode(buffer, 0, read);
+					out.write(enc.getOutput(), 0, enc.getOutputLength());
+					read = in.read(buffer);
+				}
+				enc.flush();
+				out.write(enc.getOutput(), 0, enc.getOutputLength());
+			}
+			moveIntoPlace(part, output);
+		} finally {
+			Files.deleteIfExists(part);
+		}
+		return Files.size(output);
+	}
+
+	/**
+	 * Call this method to decode a container of any mode.
+	 * @param inputFile: String, name of the container.
+	 * @param outputFile: String, name of the resulting file.
+	 * @return long, number of bytes written.
+	 * @throws Exception in case the files cannot be used or the container is corrupted.
+	 */
+	public long decode(String inputFile, String outputFile) throws Exception {
+		long written = 0;
+		Path part = Paths.get(outputFile.concat(PART_EXTENSION));
+		try {
+			try(InputStream in = new HuffmanInputStream(new BufferedInputStream(new FileInputStream(inputFile), BUFFER_SIZE));
+					OutputStream out = new FileOutputStream(part.toFile())) {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int read = in.read(buffer);
+				while(read>-1) {
+					out.write(buffer, 0, read);
+					written += read;
+					read = in.read(buffer);
+				}
+			}
+			moveIntoPlace(part, Paths.get(outputFile));
+		} finally {
+			Files.deleteIfExists(part);
+		}
+		return written;
+	}
+
+	/**
+	 * Private static method. Replaces the output file with the complete .part file, atomically where the file system
+	 * allows, so that the output file is never seen half written.
+	 * @param part: Path, the complete .part file.
+	 * @param output: Path, the output file.
+	 * @throws IOException in case the file cannot be moved.
+	 */
+	private static void moveIntoPlace(Path part, Path output) throws IOException {
+		try {
+			Files.move(part, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(part, output, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
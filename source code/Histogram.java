@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Histogram class. Counts occurrences of every byte value of a file.
+ * The file is memory-mapped in segments which are counted concurrently on a ForkJoinPool and merged afterwards.
+ * Every segment is counted into four interleaved sub-histograms, so that runs of the same byte do not make
+ * consecutive increments wait for each other.
+ * A sample of evenly spaced chunks can be counted instead of the whole file.
+ * Pairs of consecutive bytes, the order-1 histogram of ContextModel, are counted the same way.
+ * Operate through static methods "count", "sample" and "countPairs".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Histogram {
+	/**
+	 * Smallest segment handed to a thread, 1 MB.
+	 */
+	public static final int MIN_SEGMENT = 1<<20;
+	/**
+	 * Largest segment mapped at once, 1 GB.
+	 */
+	public static final int MAX_SEGMENT = 1<<30;
+
+	/**
+	 * Static method. Call this method to count every byte value of a file.
+	 * @param file: String, name of the file.
+	 * @param pool: ForkJoinPool, pool the segments are counted on.
+	 * @return long[], number of occurrences of each of the 256 byte values.
+	 * @throws IOException in case the file cannot be read from.
+	 */
+	public static long[] count(String file, ForkJoinPool pool) throws IOException {
+		long[] counts = new long[256];
+		try(FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size==0) {
+				return counts;
+			}
+			long segment = Math.max(MIN_SEGMENT, (size+4*pool.getParallelism()-1)/(4*pool.getParallelism()));
+			segment = Math.min(segment, MAX_SEGMENT);
+			ArrayList<ForkJoinTask<long[]>> tasks = new ArrayList<ForkJoinTask<long[]>>();
+			for(long position = 0; position<size; position += segment) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segment, size-position));
+				tasks.add(pool.submit(() -> count(buffer)));
+			}
+			for(ForkJoinTask<long[]> task: tasks) {
+				long[] partial = task.join();
+				for(int i = 0; i<256; i++) {
+					counts[i] += partial[i];
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Static method. Call this method to count every byte value of a sample of a file.
+	 * The sample consists of equally long chunks spread evenly over the file, the first one at its start
+	 * and the last one at its end. Chunks are read by positional reads, the rest of the file is not touched.
+	 * A single chunk is a prefix of the file. If the sample is not smaller than the file, the whole file is counted.
+	 * @param file: String, name of the file.
+	 * @param sampleSize: long, total number of bytes to be sampled.
+	 * @param chunks: int, number of chunks.
+	 * @return long[], number of occurrences of each of the 256 byte values within the sample.
+	 * @throws IOException in case the file cannot be read from.
+	 */
+	public static long[] sample(String file, long sampleSize, int chunks) throws IOException {
+		long[] counts = new long[256];
+		try(FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(sampleSize>=size) {
+				return count(file, ForkJoinPool.commonPool());
+			}
+			int chunk = (int) Math.min(MAX_SEGMENT, Math.max(1, sampleSize/chunks));
+			chunks = (int) Math.min(chunks, (size+chunk-1)/chunk);
+			ByteBuffer buffer = ByteBuffer.allocate(chunk);
+			for(int i = 0; i<chunks; i++) {
+				long position = chunks==1 ? 0 : i*((size-chunk)/(chunks-1));
+				buffer.clear();
+				while(buffer.hasRemaining()) {
+					int read = channel.read(buffer, position+buffer.position());
+					if(read<0) {
+						break;
+					}
+				}
+				byte[] bytes = buffer.array();
+				for(int j = 0; j<buffer.position(); j++) {
+					counts[bytes[j]&0xFF]++;
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Static method. Call this method to count every pair of consecutive bytes of a file.
+	 * The first byte of the file is counted as following ContextModel.INITIAL_CONTEXT. Every segment but the first
+	 * is mapped together with the byte before it, so that the pair across the boundary is counted exactly once.
+	 * @param file: String, name of the file.
+	 * @param pool: ForkJoinPool, pool the segments are counted on.
+	 * @return long[], number of occurrences of byte b following byte a at index 256*a+b.
+	 * @throws IOException in case the file cannot be read from.
+	 */
+	public static long[] countPairs(String file, ForkJoinPool pool) throws IOException {
+		long[] counts = new long[256*256];
+		try(FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size==0) {
+				return counts;
+			}
+			long segment = Math.max(MIN_SEGMENT, (size+4*pool.getParallelism()-1)/(4*pool.getParallelism()));
+			segment = Math.min(segment, MAX_SEGMENT);
+			ArrayList<ForkJoinTask<int[]>> tasks = new ArrayList<ForkJoinTask<int[]>>();
+			for(long position = 0; position<size; position += segment) {
+				long start = position==0 ? 0 : position-1;
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start,
+						Math.min(segment, size-position)+position-start);
+				boolean first = position==0;
+				tasks.add(pool.submit(() -> countPairs(buffer, first)));
+			}
+			for(ForkJoinTask<int[]> task: tasks) {
+				int[] partial = task.join();
+				for(int i = 0; i<counts.length; i++) {
+					counts[i] += partial[i];
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Static method. Counts every pair of consecutive bytes of a mapped segment. Run on the pool.
+	 * @param buffer: MappedByteBuffer, the segment, preceded by the last byte of the previous segment if there is one.
+	 * @param first: boolean, true if the segment starts the file.
+	 * @return int[], number of occurrences of byte b following byte a at index 256*a+b.
+	 */
+	static int[] countPairs(MappedByteBuffer buffer, boolean first) {
+		int[] counts = new int[256*256];
+		int length = buffer.limit();
+		int i = 0;
+		int previous = ContextModel.INITIAL_CONTEXT;
+		if(!first) {
+			previous = buffer.get(i++) & 0xFF;
+		}
+		for(; i<length; i++) {
+			int b = buffer.get(i) & 0xFF;
+			counts[(previous<<8) | b]++;
+			previous = b;
+		}
+		return counts;
+	}
+
+	/**
+	 * Static method. Counts every byte value of a mapped segment. Run on the pool.
+	 * Eight bytes are read at once and spread over four sub-histograms.
+	 * @param buffer: MappedByteBuffer, the segment.
+	 * @return long[], number of occurrences of each of the 256 byte values.
+	 */
+	static long[] count(MappedByteBuffer buffer) {
+		int[] sub = new int[4*256];
+		int length = buffer.limit();
+		int i = 0;
+		for(; i+8<=length; i += 8) {
+			long word = buffer.getLong(i);
+			sub[(int) word & 0xFF]++;
+			sub[256 + ((int) (word>>>8) & 0xFF)]++;
+			sub[512 + ((int) (word>>>16) & 0xFF)]++;
+			sub[768 + ((int) (word>>>24) & 0xFF)]++;
+			sub[(int) (word>>>32) & 0xFF]++;
+			sub[256 + ((int) (word>>>40) & 0xFF)]++;
+			sub[512 + ((int) (word>>>48) & 0xFF)]++;
+			sub[768 + (int) (word>>>56)]++;
+		}
+		for(; i<length; i++) {
+			sub[buffer.get(i) & 0xFF]++;
+		}
+		long[] counts = new long[256];
+		for(int b = 0; b<256; b++) {
+			counts[b] = (long) sub[b] + sub[256+b] + sub[512+b] + sub[768+b];
+		}
+		return counts;
+	}
+}
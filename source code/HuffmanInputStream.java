@@ -0,0 +1,221 @@
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * HuffmanInputStream class. Input stream filter that reads the original bytes of a .hf container,
+ * a single stream, a sequence of blocks, an adaptive or a context stream. The container header is read on the first call.
+ * Encoded bytes are read and decoded in chunks of a bounded size, so memory held by the stream does not depend
+ * on the length of the container. Bytes following the EOF symbol of a single stream may be consumed as well.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class HuffmanInputStream extends FilterInputStream {
+	private static final int CHUNK_SIZE = 1<<13;
+	private DataInputStream data;
+	private Container container;
+	private ChunkDecoder dec;
+	private final byte[] chunk = new byte[CHUNK_SIZE];
+	private final byte[] oneByte = new byte[1];
+	private int position;
+	private long blockRemaining;
+	private int blockLength;
+	private long decoded;
+	private boolean finished;
+
+	/**
+	 * Constructor for the HuffmanInputStream class.
+	 * @param in: InputStream, stream holding the container.
+	 */
+	public HuffmanInputStream(InputStream in) {
+		super(in);
+		data = new DataInputStream(in);
+	}
+
+	/**
+	 * Reads a single byte.
+	 * @return int, the byte as a value 0 to 255, -1 at the end of the original data.
+	 * @throws IOException in case the stream cannot be read from or the container is corrupted.
+	 */
+	@Override
+	public int read() throws IOException {
+		return read(oneByte, 0, 1)==-1 ? -1 : oneByte[0]&0xFF;
+	}
+
+	/**
+	 * Reads up to len original bytes. Blocks until at least one byte is decoded or the end of the data is reached.
+	 * @param b: byte[], array to be filled.
+	 * @param off: int, index of the first byte.
+	 * @param len: int, maximal number of bytes.
+	 * @return int, number of bytes read, -1 at the end of the original data.
+	 * @throws IOException in case the stream cannot be read from or the container is corrupted.
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(off<0 || len<0 || off+len>b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if(len==0) {
+			return 0;
+		}
+		while(dec==null || position==dec.getOutputLength()) {
+			if(finished || !fill()) {
+				return -1;
+			}
+		}
+		int count = Math.min(len, dec.getOutputLength()-position);
+		System.arraycopy(dec.getOutput(), position, b, off, count);
+		position += count;
+		return count;
+	}
+
+	/**
+	 * Skips up to n original bytes by decoding them.
+	 * @param n: long, number of bytes to skip.
+	 * @return long, number of bytes skipped.
+	 * @throws IOException in case the stream cannot be read from or the container is corrupted.
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		byte[] buffer = new byte[CHUNK_SIZE];
+		while(skipped<n) {
+			int read = read(buffer, 0, (int) Math.min(buffer.length, n-skipped));
+			if(read<0) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Returns the number of decoded bytes which can be read without blocking.
+	 * @return int, number of bytes decoded and not read yet.
+	 */
+	@Override
+	public int available() {
+		return dec==null ? 0 : dec.getOutputLength()-position;
+	}
+
+	/**
+	 * Marking is not supported.
+	 * @return boolean, false.
+	 */
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * Marking is not supported, does nothing.
+	 * @param readlimit: int, ignored.
+	 */
+	@Override
+	public synchronized void mark(int readlimit) {
+	}
+
+	/**
+	 * Marking is not supported.
+	 * @throws IOException always.
+	 */
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("Mark not supported.");
+	}
+
+	/**
+	 * Private method. Decodes the next chunk of encoded bytes, reading the container header
+	 * or the header of the next block first if needed.
+	 * @return boolean, false if the end of the original data was reached.
+	 * @throws IOException in case the stream cannot be read from or the container is corrupted.
+	 */
+	private boolean fill() throws IOException {
+		try {
+			if(container==null) {
+				container = Container.readHeader(in);
+				if(container.getMode()==Container.MODE_ADAPTIVE) {
+					dec = new AdaptiveDecoder();
+				} else if(container.getMode()==Container.MODE_CONTEXT) {
+					dec = new ContextDecoder(container.getModel());
+				} else {
+					dec = new TableDecoder(container.getTable());
+				}
+				if(container.getMode()==Container.MODE_BLOCKS && !nextBlock()) {
+					return false;
+				}
+			}
+			position = 0;
+			if(container.getMode()==Container.MODE_BLOCKS) {
+				if(blockRemaining==0) {
+					if(!dec.isFinished() || decoded!=blockLength) {
+						throw new Exception("Encoded file corrupted.");
+					}
+					dec.reset();
+					if(!nextBlock()) {
+						return false;
+					}
+				}
+				int length = (int) Math.min(chunk.length, blockRemaining);
+				data.readFully(chunk, 0, length);
+				blockRemaining -= length;
+				dec.decode(chunk, 0, length);
+				decoded += dec.getOutputLength();
+				if(decoded>blockLength) {
+					throw new Exception("Encoded file corrupted.");
+				}
+				return true;
+			}
+			if(dec.isFinished()) {
+				return finish();
+			}
+			int read = in.read(chunk);
+			if(read<0) {
+				throw new Exception("Encoded file truncated.");
+			}
+			dec.decode(chunk, 0, read);
+			decoded += dec.getOutputLength();
+			return true;
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Private method. Reads the header of the next block.
+	 * @return boolean, false if the terminating block was read.
+	 * @throws Exception in case the stream cannot be read from or the block header is corrupted.
+	 */
+	private boolean nextBlock() throws Exception {
+		blockLength = data.readInt();
+		if(blockLength==0) {
+			return finish();
+		}
+		long bitLength = data.readLong();
+		if(blockLength<0 || bitLength<=0 || bitLength>8L*Integer.MAX_VALUE) {
+			throw new Exception("Encoded file corrupted.");
+		}
+		blockRemaining = (bitLength+7)/8;
+		decoded = 0;
+		return true;
+	}
+
+	/**
+	 * Private method. Marks the end of the original data, checking its length if the container holds it.
+	 * Total length of a sequence of blocks is not tracked, every block is checked on its own.
+	 * @return boolean, false.
+	 * @throws Exception in case the number of decoded bytes differs from the original length.
+	 */
+	private boolean finish() throws Exception {
+		finished = true;
+		position = dec.getOutputLength();
+		long expected = container.getOriginalLength();
+		if(container.getMode()!=Container.MODE_BLOCKS && expected!=Container.UNKNOWN_LENGTH && decoded!=expected) {
+			throw new Exception("Encoded file corrupted, expected "+expected+" bytes, decoded "+decoded+".");
+		}
+		return false;
+	}
+}
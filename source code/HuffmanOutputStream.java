@@ -0,0 +1,214 @@
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * HuffmanOutputStream class. Output stream filter that writes a .hf container of everything written into it.
+ * The code table is either given up front, or built from the first SAMPLE_SIZE bytes written, which are held back
+ * until then. A table built from a sample gives every byte value a codeword, so bytes absent from the sample
+ * can still be written later. An adaptive stream needs no table and writes encoded bytes from the first call on.
+ * Memory held by the stream does not depend on the amount of data written through it.
+ * Call "finish" or "close" once all data has been written, the EOF symbol is written only then.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class HuffmanOutputStream extends FilterOutputStream {
+	/**
+	 * Number of bytes the code table is built from when no table is given.
+	 */
+	public static final int SAMPLE_SIZE = 1<<20;
+	private static final int CHUNK_SIZE = 1<<13;
+	private CodeTable table;
+	private ChunkEncoder enc;
+	private byte[] sample;
+	private int sampleLength;
+	private final byte[] oneByte = new byte[1];
+	private boolean finished;
+
+	/**
+	 * Constructor for the HuffmanOutputStream class. The code table is built from the first bytes written.
+	 * @param out: OutputStream, stream the container is written into.
+	 */
+	public HuffmanOutputStream(OutputStream out) {
+		this(out, false);
+	}
+
+	/**
+	 * Constructor for the HuffmanOutputStream class.
+	 * @param out: OutputStream, stream the container is written into.
+	 * @param adaptive: boolean, true to encode with AdaptiveEncoder, false to build the code table from the first bytes.
+	 */
+	public HuffmanOutputStream(OutputStream out, boolean adaptive) {
+		super(out);
+		if(!adaptive) {
+			sample = new byte[SAMPLE_SIZE];
+		}
+	}
+
+	/**
+	 * Constructor for the HuffmanOutputStream class.
+	 * @param out: OutputStream, stream the container is written into.
+	 * @param table: CodeTable, codewords to encode with. Only its code lengths are used, the codewords are canonical.
+	 * @throws IOException in case the lengths of the table do not describe a prefix code.
+	 */
+	public HuffmanOutputStream(OutputStream out, CodeTable table) throws IOException {
+		super(out);
+		try {
+			this.table = table.toCanonical();
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes a single byte.
+	 * @param b: int, the byte to be written in its lowest 8 bits.
+	 * @throws IOException in case the stream is finished or cannot be written to.
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		oneByte[0] = (byte) b;
+		write(oneByte, 0, 1);
+	}
+
+	/**
+	 * Writes len bytes, encoding them in chunks of a bounded size.
+	 * @param b: byte[], array holding the bytes.
+	 * @param off: int, index of the first byte.
+	 * @param len: int, number of bytes.
+	 * @throws IOException in case the stream is finished, cannot be written to or a byte has no codeword in the table.
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(finished) {
+			throw new IOException("Stream finished.");
+		}
+		if(off<0 || len<0 || off+len>b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if(enc==null && sample!=null) {
+			int taken = Math.min(len, sample.length-sampleLength);
+			System.arraycopy(b, off, sample, sampleLength, taken);
+			sampleLength += taken;
+			off += taken;
+			len -= taken;
+			if(sampleLength<sample.length) {
+				return;
+			}
+			buildTable(true);
+		}
+		start();
+		encode(b, off, len);
+	}
+
+	/**
+	 * Flushes the underlying stream. Bits which do not make a whole byte yet, as well as bytes held back
+	 * for the sample, stay in this stream until more data is written or it is finished.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Call this method to write the EOF symbol and complete the container without closing the underlying stream.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	public void finish() throws IOException {
+		if(finished) {
+			return;
+		}
+		if(enc==null && sample!=null) {
+			buildTable(false);
+		}
+		start();
+		try {
+			enc.flush();
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		out.write(enc.getOutput(), 0, enc.getOutputLength());
+		finished = true;
+		out.flush();
+	}
+
+	/**
+	 * Finishes the container and closes the underlying stream.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Private method. Builds the code table from the sample.
+	 * @param smoothed: boolean, true if more data will follow, so every byte value needs a codeword.
+	 * @throws IOException in case the table cannot be built.
+	 */
+	private void buildTable(boolean smoothed) throws IOException {
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		for(int i = 0; i<sampleLength; i++) {
+			frequencies[sample[i]&0xFF]++;
+		}
+		if(smoothed) {
+			for(int i = 0; i<256; i++) {
+				frequencies[i]++;
+			}
+		}
+		frequencies[CodeTable.EOF] = 1;
+		try {
+			table = CodeTable.canonical(CodeLengthBuilder.build(frequencies, CodeTable.MAX_CODE_LENGTH));
+		} catch (Exception e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Private method. Writes the container header and the bytes held back for the sample, if not done yet.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	private void start() throws IOException {
+		if(enc!=null) {
+			return;
+		}
+		if(table==null) {
+			new Container(Container.MODE_ADAPTIVE, Container.UNKNOWN_LENGTH, null).writeHeader(out);
+			enc = new AdaptiveEncoder();
+		} else {
+			new Container(Container.MODE_SINGLE, Container.UNKNOWN_LENGTH, table).writeHeader(out);
+			enc = new TableEncoder(table);
+		}
+		if(sample!=null) {
+			byte[] held = sample;
+			sample = null;
+			encode(held, 0, sampleLength);
+		}
+	}
+
+	/**
+	 * Private method. Encodes bytes in chunks and writes the encoded bytes.
+	 * @param b: byte[], array holding the bytes.
+	 * @param off: int, index of the first byte.
+	 * @param len: int, number of bytes.
+	 * @throws IOException in case the stream cannot be written to or a byte has no codeword in the table.
+	 */
+	private void encode(byte[] b, int off, int len) throws IOException {
+		while(len>0) {
+			int chunk = Math.min(len, CHUNK_SIZE);
+			try {
+				enc.encode(b, off, chunk);
+			} catch (Exception e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			out.write(enc.getOutput(), 0, enc.getOutputLength());
+			off += chunk;
+			len -= chunk;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedCodec class. Encodes and decodes files through memory mapping instead of stream reads and writes.
+ * Files are mapped in windows of at most WINDOW bytes, so files larger than 2 GB are handled as well.
+ * BufferEncoder and BufferDecoder resume across window boundaries.
+ * The encoder reads the mapped input and writes through a direct buffer, as the encoded length is not known
+ * in advance. The decoder knows the original length from the container header and writes into mapped windows
+ * of the output file, which is sized by the mapping.
+ * Operate through static methods "encode" and "decode".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class MappedCodec {
+	/**
+	 * Largest window mapped at once, 1 GB.
+	 */
+	public static final int WINDOW = 1<<30;
+	private static final int BUFFER_SIZE = 1<<20;
+
+	/**
+	 * Static method. Call this method to encode a file.
+	 * @param table: CodeTable, codewords to encode with. Must be canonical if a container is written.
+	 * @param inputFile: String, name of the file to be encoded.
+	 * @param outputFile: String, name of the resulting file.
+	 * @param container: boolean, true to write a container header, false to write only the encoded bits.
+	 * @return long, number of bytes written.
+	 * @throws Exception in case the files cannot be used or a byte has no codeword in the table.
+	 */
+	public static long encode(CodeTable table, String inputFile, String outputFile, boolean container) throws Exception {
+		try(FileChannel input = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+				FileChannel output = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = input.size();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			if(container) {
+				ByteArrayOutputStream header = new ByteArrayOutputStream();
+				new Container(Container.MODE_SINGLE, size, table).writeHeader(header);
+				buffer.put(header.toByteArray());
+			}
+			BufferEncoder enc = new BufferEncoder(table);
+			for(long position = 0; position<size; position += WINDOW) {
+				MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size-position));
+				while(window.hasRemaining()) {
+					enc.encode(window, buffer);
+					if(!buffer.hasRemaining()) {
+						writeBuffer(output, buffer);
+					}
+				}
+			}
+			while(!enc.finish(buffer)) {
+				writeBuffer(output, buffer);
+			}
+			writeBuffer(output, buffer);
+			return output.size();
+		}
+	}
+
+	/**
+	 * Static method. Call this method to decode a .hf container.
+	 * A single stream of known length, encoded with its own table or a dictionary, is decoded from mapped windows
+	 * of the container.
+	 * Blocks and streams written without their length are read through a DecodingChannel,
+	 * adaptive and context streams through a HuffmanInputStream.
+	 * @param inputFile: String, name of the container.
+	 * @param outputFile: String, name of the resulting file.
+	 * @return long, number of bytes written.
+	 * @throws Exception in case the files cannot be used or the container is corrupted.
+	 */
+	public static long decode(String inputFile, String outputFile) throws Exception {
+		try(FileChannel input = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+				FileChannel output = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Container container = Container.readHeader(Channels.newInputStream(input));
+			long length = container.getOriginalLength();
+			long written;
+			if((container.getMode()==Container.MODE_SINGLE || container.getMode()==Container.MODE_DICTIONARY)
+					&& length!=Container.UNKNOWN_LENGTH) {
+				written = decodeMapped(container.getTable(), input, output, length);
+			} else if(container.getMode()==Container.MODE_ADAPTIVE || container.getMode()==Container.MODE_CONTEXT) {
+				input.position(0);
+				written = decodeChannel(Channels.newChannel(new HuffmanInputStream(Channels.newInputStream(input))),
+						output, length);
+			} else {
+				input.position(0);
+				written = decodeChannel(new DecodingChannel(input), output, length);
+			}
+			if(length!=Container.UNKNOWN_LENGTH && written!=length) {
+				throw new Exception("Encoded file corrupted, expected "+length+" bytes, decoded "+written+".");
+			}
+			return written;
+		}
+	}
+
+	/**
+	 * Private static method. Decodes a single stream from mapped windows of the container into mapped windows
+	 * of the output file.
+	 * @param table: CodeTable, codewords the stream was encoded with.
+	 * @param input: FileChannel, the container, positioned at the end of its header.
+	 * @param output: FileChannel, the resulting file.
+	 * @param length: long, original length.
+	 * @return long, number of bytes decoded.
+	 * @throws Exception in case the files cannot be used or the stream is corrupted.
+	 */
+	private static long decodeMapped(CodeTable table, FileChannel input, FileChannel output, long length) throws Exception {
+		BufferDecoder dec = new BufferDecoder(table);
+		long inputSize = input.size();
+		long inputPosition = input.position();
+		MappedByteBuffer src = input.map(FileChannel.MapMode.READ_ONLY, inputPosition,
+				Math.min(WINDOW, inputSize-inputPosition));
+		long outputPosition = 0;
+		ByteBuffer dst = outputWindow(output, outputPosition, length);
+		while(!dec.isFinished()) {
+			if(!src.hasRemaining() && inputPosition+src.capacity()<inputSize) {
+				inputPosition += src.capacity();
+				src = input.map(FileChannel.MapMode.READ_ONLY, inputPosition, Math.min(WINDOW, inputSize-inputPosition));
+			}
+			if(!dst.hasRemaining()) {
+				outputPosition += dst.capacity();
+				dst = outputWindow(output, outputPosition, length);
+			}
+			if(dec.decode(src, dst)==0 && !dec.isFinished() && !src.hasRemaining() && dst.hasRemaining()) {
+				throw new Exception("Encoded file truncated.");
+			}
+		}
+		return outputPosition+dst.position();
+	}
+
+	/**
+	 * Private static method. Copies everything a decoding channel reads into the output file,
+	 * through mapped windows if the original length is known.
+	 * @param channel: ReadableByteChannel, channel of decoded bytes.
+	 * @param output: FileChannel, the resulting file.
+	 * @param length: long, original length, UNKNOWN_LENGTH if not known.
+	 * @return long, number of bytes decoded.
+	 * @throws Exception in case the files cannot be used or the container is corrupted.
+	 */
+	private static long decodeChannel(ReadableByteChannel channel, FileChannel output, long length) throws Exception {
+		if(length==Container.UNKNOWN_LENGTH) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			long written = 0;
+			while(channel.read(buffer)>=0) {
+				if(!buffer.hasRemaining()) {
+					written += buffer.position();
+					writeBuffer(output, buffer);
+				}
+			}
+			written += buffer.position();
+			writeBuffer(output, buffer);
+			return written;
+		}
+		long outputPosition = 0;
+		ByteBuffer dst = outputWindow(output, outputPosition, length);
+		while(channel.read(dst)>=0) {
+			if(!dst.hasRemaining()) {
+				outputPosition += dst.capacity();
+				dst = outputWindow(output, outputPosition, length);
+			}
+		}
+		return outputPosition+dst.position();
+	}
+
+	/**
+	 * Private static method. Maps the next window of the output file. Once the original length is reached,
+	 * a one byte buffer is returned instead, so that the decoder can go on to the EOF symbol
+	 * and surplus bytes are detected.
+	 * @param output: FileChannel, the resulting file.
+	 * @param position: long, position of the window.
+	 * @param length: long, original length.
+	 * @return ByteBuffer, the window.
+	 * @throws Exception in case the file cannot be mapped.
+	 */
+	private static ByteBuffer outputWindow(FileChannel output, long position, long length) throws Exception {
+		if(position>=length) {
+			return ByteBuffer.allocate(1);
+		}
+		return output.map(FileChannel.MapMode.READ_WRITE, position, Math.min(WINDOW, length-position));
+	}
+
+	/**
+	 * Private static method. Writes the buffer into the file and clears it.
+	 * @param channel: FileChannel, the file.
+	 * @param buffer: ByteBuffer, buffer to be written.
+	 * @throws Exception in case the file cannot be written to.
+	 */
+	private static void writeBuffer(FileChannel channel, ByteBuffer buffer) throws Exception {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,265 @@
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Metrics class. Collects the duration of every phase of a run of Encode or Decode together with sizes, throughput,
+ * bits per symbol and the longest codeword. Durations are kept with System.nanoTime alone.
+ * Only if events are enabled, or a JDK Flight Recorder is already running, e.g. one started with
+ * -XX:StartFlightRecording, every phase is also committed as an event named huffman.Phase and the whole run
+ * as huffman.Summary. The event classes live in a holder class loaded on first use, so that a run without
+ * recording neither registers nor creates any event.
+ * The summary is also available as a single line of JSON through "toJson".
+ * Operate through dynamic methods "begin", "end" and "commit".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Metrics {
+	private final String operation;
+	private final long startTime;
+	private final LinkedHashMap<String, Long> phases;
+	private final boolean events;
+	private String phase;
+	private long phaseStart;
+	private Object event;
+	private String mode;
+	private long originalBytes;
+	private long encodedBytes;
+	private int maxCodeLength;
+	private long elapsed;
+
+	/**
+	 * Holder of the Flight Recorder events. Loaded only when the first event is created.
+	 */
+	private static class Events {
+
+		/**
+		 * Flight Recorder event of a single phase.
+		 */
+		@Name("huffman.Phase")
+		@Label("Huffman Phase")
+		@Category("Huffman")
+		@Description("A phase of encoding or decoding a file.")
+		static class PhaseEvent extends Event {
+			@Label("Operation")
+			String operation;
+
+			@Label("Phase")
+			String phase;
+		}
+
+		/**
+		 * Flight Recorder event of a whole run.
+		 */
+		@Name("huffman.Summary")
+		@Label("Huffman Summary")
+		@Category("Huffman")
+		@Description("Sizes and throughput of encoding or decoding a file.")
+		static class SummaryEvent extends Event {
+			@Label("Operation")
+			String operation;
+
+			@Label("Mode")
+			String mode;
+
+			@Label("Original Bytes")
+			@DataAmount
+			long originalBytes;
+
+			@Label("Encoded Bytes")
+			@DataAmount
+			long encodedBytes;
+
+			@Label("Throughput in MB/s")
+			double throughput;
+
+			@Label("Bits per Symbol")
+			double bitsPerSymbol;
+
+			@Label("Longest Codeword")
+			int maxCodeLength;
+		}
+
+		/**
+		 * Static method. Begins the event of a phase.
+		 * @param operation: String, name of the run.
+		 * @param phase: String, name of the phase.
+		 * @return Object, the event.
+		 */
+		static Object begin(String operation, String phase) {
+			PhaseEvent event = new PhaseEvent();
+			event.operation = operation;
+			event.phase = phase;
+			event.begin();
+			return event;
+		}
+
+		/**
+		 * Static method. Commits the event of a phase.
+		 * @param event: Object, the event returned by begin.
+		 */
+		static void end(Object event) {
+			((PhaseEvent) event).commit();
+		}
+
+		/**
+		 * Static method. Commits the summary of a run.
+		 * @param metrics: Metrics, the run.
+		 */
+		static void summary(Metrics metrics) {
+			SummaryEvent summary = new SummaryEvent();
+			summary.operation = metrics.operation;
+			summary.mode = metrics.mode;
+			summary.originalBytes = metrics.originalBytes;
+			summary.encodedBytes = metrics.encodedBytes;
+			summary.throughput = metrics.getThroughput();
+			summary.bitsPerSymbol = metrics.getBitsPerSymbol();
+			summary.maxCodeLength = metrics.maxCodeLength;
+			summary.commit();
+		}
+	}
+
+	/**
+	 * Constructor for the Metrics class. The run starts now. Events are committed only if a Flight Recorder
+	 * is already running.
+	 * @param operation: String, name of the run, encode or decode.
+	 */
+	public Metrics(String operation) {
+		this(operation, false);
+	}
+
+	/**
+	 * Constructor for the Metrics class. The run starts now.
+	 * @param operation: String, name of the run, encode or decode.
+	 * @param events: boolean, true to commit Flight Recorder events even if no recorder is running yet.
+	 */
+	public Metrics(String operation, boolean events) {
+		this.operation = operation;
+		this.events = events || FlightRecorder.isInitialized();
+		startTime = System.nanoTime();
+		phases = new LinkedHashMap<String, Long>();
+		mode = "";
+	}
+
+	/**
+	 * Call this method when a phase starts. The previous phase, if any, ends. Durations of a phase begun
+	 * repeatedly are added up.
+	 * @param phase: String, name of the phase, e.g. histogram, tree, header, encode or flush.
+	 */
+	public void begin(String phase) {
+		end();
+		this.phase = phase;
+		if(events) {
+			event = Events.begin(operation, phase);
+		}
+		phaseStart = System.nanoTime();
+	}
+
+	/**
+	 * Call this method when the current phase ends. Does nothing if there is none.
+	 */
+	public void end() {
+		if(phase==null) {
+			return;
+		}
+		Long previous = phases.get(phase);
+		phases.put(phase, (previous==null ? 0 : previous)+System.nanoTime()-phaseStart);
+		if(event!=null) {
+			Events.end(event);
+		}
+		phase = null;
+		event = null;
+	}
+
+	/**
+	 * Call this method once the run is over. The current phase ends and the summary event is committed.
+	 */
+	public void commit() {
+		end();
+		elapsed = System.nanoTime()-startTime;
+		if(events) {
+			Events.summary(this);
+		}
+	}
+
+	/**
+	 * Setter.
+	 * @param mode: String, how the file is encoded, e.g. single, blocks, adaptive or sidecar.
+	 */
+	public void setMode(String mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Setter.
+	 * @param originalBytes: long, size of the file before encoding.
+	 * @param encodedBytes: long, size of the file after encoding, headers included.
+	 */
+	public void setSizes(long originalBytes, long encodedBytes) {
+		this.originalBytes = originalBytes;
+		this.encodedBytes = encodedBytes;
+	}
+
+	/**
+	 * Setter.
+	 * @param table: CodeTable, codewords the file is encoded with, null if there is none.
+	 */
+	public void setTable(CodeTable table) {
+		maxCodeLength = table==null ? 0 : table.getMaxLength();
+	}
+
+	/**
+	 * Setter.
+	 * @param model: ContextModel, code tables the file is encoded with in context mode.
+	 */
+	public void setModel(ContextModel model) {
+		maxCodeLength = model.getMaxLength();
+	}
+
+	/**
+	 * Getter.
+	 * @return double, megabytes of original data processed per second of the whole run.
+	 */
+	public double getThroughput() {
+		return elapsed==0 ? 0 : originalBytes*1000.0/elapsed;
+	}
+
+	/**
+	 * Getter.
+	 * @return double, average number of encoded bits per original byte.
+	 */
+	public double getBitsPerSymbol() {
+		return originalBytes==0 ? 0 : 8.0*encodedBytes/originalBytes;
+	}
+
+	/**
+	 * Call this method after commit to get the summary as a single line of JSON.
+	 * Durations are given in milliseconds.
+	 * @return String, the summary.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append(String.format(Locale.ROOT,
+				"{\"operation\":\"%s\",\"mode\":\"%s\",\"originalBytes\":%d,\"encodedBytes\":%d,\"ratio\":%.4f,"
+				+ "\"bitsPerSymbol\":%.4f,\"maxCodeLength\":%d,\"elapsedMs\":%.3f,\"throughputMBps\":%.1f,\"phasesMs\":{",
+				operation, mode, originalBytes, encodedBytes, getBitsPerSymbol()/8, getBitsPerSymbol(), maxCodeLength,
+				elapsed/1e6, getThroughput()));
+		boolean first = true;
+		for(Map.Entry<String, Long> entry: phases.entrySet()) {
+			if(!first) {
+				json.append(',');
+			}
+			json.append(String.format(Locale.ROOT, "\"%s\":%.3f", entry.getKey(), entry.getValue()/1e6));
+			first = false;
+		}
+		return json.append("}}").toString();
+	}
+}
@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ParallelDecoder class. Decodes a container of blocks written by ParallelEncoder using its block index.
+ * Blocks are handed to the threads of a ForkJoinPool and every block is written straight into its own region
+ * of the output file, which is sized up front from the original length in the container header.
+ * Operate through dynamic method "decode".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class ParallelDecoder {
+	private static final int FOOTER = 4+4;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Decoder and buffers of a thread of the pool, reused for every block the thread decodes.
+	 */
+	private static class Worker {
+		final TableDecoder dec;
+		byte[] encoded = new byte[0];
+		byte[] decoded = new byte[0];
+
+		/**
+		 * Constructor for the Worker class.
+		 * @param table: CodeTable, codewords of the container.
+		 * @throws Exception in case the codewords do not form a prefix code.
+		 */
+		Worker(CodeTable table) throws Exception {
+			dec = new TableDecoder(table);
+		}
+	}
+
+	/**
+	 * Constructor for the ParallelDecoder class.
+	 * @param pool: ForkJoinPool, pool the blocks are decoded on.
+	 */
+	public ParallelDecoder(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * The primary method for ParallelDecoder object.
+	 * @param inputFile: String, name of a container of blocks.
+	 * @param outputFile: String, name of the resulting file.
+	 * @return long, number of bytes written.
+	 * @throws Exception in case the files cannot be used, the container has no block index or it is corrupted.
+	 */
+	public long decode(String inputFile, String outputFile) throws Exception {
+		try(FileChannel input = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+				FileChannel output = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Container container = Container.readHeader(Channels.newInputStream(input));
+			if(container.getMode()!=Container.MODE_BLOCKS) {
+				throw new Exception("The container does not consist of blocks.");
+			}
+			long payloadStart = input.position();
+			long[][] index = readIndex(input, payloadStart, container.getOriginalLength());
+			long originalLength = 0;
+			if(index.length>0) {
+				originalLength = index[index.length-1][1] + index[index.length-1][2];
+			}
+			if(output.size()<originalLength) {
+				output.write(ByteBuffer.wrap(new byte[1]), originalLength-1);
+			}
+			CodeTable table = container.getTable();
+			ThreadLocal<Worker> workers = new ThreadLocal<Worker>();
+			ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+			for(long[] entry: index) {
+				tasks.add(pool.submit(() -> {
+					Worker worker = workers.get();
+					if(worker==null) {
+						worker = new Worker(table);
+						workers.set(worker);
+					}
+					decodeBlock(worker, input, output, payloadStart, entry);
+					return null;
+				}));
+			}
+			for(ForkJoinTask<?> task: tasks) {
+				task.join();
+			}
+			return originalLength;
+		}
+	}
+
+	/**
+	 * Static method. Call this method to find out whether a container of blocks ends with a block index.
+	 * Containers written before the index was introduced have to be decoded sequentially.
+	 * @param inputFile: String, name of the container.
+	 * @return boolean, true if the file ends with the magic bytes.
+	 * @throws IOException in case the file cannot be read from.
+	 */
+	public static boolean hasIndex(String inputFile) throws IOException {
+		try(FileChannel input = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ)) {
+			if(input.size()<FOOTER) {
+				return false;
+			}
+			ByteBuffer footer = ByteBuffer.allocate(FOOTER);
+			readFully(input, footer, input.size()-FOOTER);
+			return Arrays.equals(Arrays.copyOfRange(footer.array(), 4, FOOTER), Container.MAGIC);
+		}
+	}
+
+	/**
+	 * Private static method. Reads the block index from the end of the file.
+	 * Original length of every block is the distance to the original offset of the next one.
+	 * @param input: FileChannel, the container.
+	 * @param payloadStart: long, position of the end of the container header.
+	 * @param originalLength: long, original length from the container header, UNKNOWN_LENGTH if not known.
+	 * @return long[][], for every block the bit offset of its encoded data, its original offset and its original length.
+	 * @throws Exception in case the index is missing or corrupted.
+	 */
+	private static long[][] readIndex(FileChannel input, long payloadStart, long originalLength) throws Exception {
+		long size = input.size();
+		if(size-payloadStart<FOOTER) {
+			throw new Exception("Block index missing.");
+		}
+		ByteBuffer footer = ByteBuffer.allocate(FOOTER);
+		readFully(input, footer, size-FOOTER);
+		if(!Arrays.equals(Arrays.copyOfRange(footer.array(), 4, FOOTER), Container.MAGIC)) {
+			throw new Exception("Block index missing.");
+		}
+		int blocks = footer.getInt(0);
+		long indexStart = size-FOOTER-16L*blocks;
+		if(blocks<0 || indexStart<payloadStart) {
+			throw new Exception("Block index corrupted.");
+		}
+		ByteBuffer entries = ByteBuffer.allocate(16*blocks);
+		readFully(input, entries, indexStart);
+		long[][] index = new long[blocks][];
+		for(int i = 0; i<blocks; i++) {
+			long bitOffset = entries.getLong(16*i);
+			long originalOffset = entries.getLong(16*i+8);
+			long expectedOffset = i==0 ? 0 : index[i-1][1]+1;
+			if(bitOffset<8*ParallelEncoder.BLOCK_HEADER || bitOffset%8!=0 || bitOffset>8*(indexStart-payloadStart)
+					|| originalOffset<expectedOffset) {
+				throw new Exception("Block index corrupted at entry "+i+".");
+			}
+			index[i] = new long[] {bitOffset, originalOffset, 0};
+			if(i>0) {
+				index[i-1][2] = originalOffset-index[i-1][1];
+			}
+		}
+		if(blocks>0) {
+			long[] last = index[blocks-1];
+			if(originalLength==Container.UNKNOWN_LENGTH) {
+				ByteBuffer header = ByteBuffer.allocate(ParallelEncoder.BLOCK_HEADER);
+				readFully(input, header, payloadStart+last[0]/8-ParallelEncoder.BLOCK_HEADER);
+				last[2] = header.getInt(0);
+			} else {
+				last[2] = originalLength-last[1];
+			}
+			if(last[2]<=0) {
+				throw new Exception("Block index corrupted at entry "+(blocks-1)+".");
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Private static method. Decodes one block and writes it into its region of the output file. Run on the pool.
+	 * The block is decoded into an array of its original length, reused by the thread for the next block.
+	 * @param worker: Worker, decoder and buffers of the current thread.
+	 * @param input: FileChannel, the container.
+	 * @param output: FileChannel, the resulting file.
+	 * @param payloadStart: long, position of the end of the container header.
+	 * @param entry: long[], bit offset of the encoded data, original offset and original length of the block.
+	 * @throws Exception in case the files cannot be used or the block is corrupted.
+	 */
+	private static void decodeBlock(Worker worker, FileChannel input, FileChannel output, long payloadStart,
+			long[] entry) throws Exception {
+		long dataStart = payloadStart+entry[0]/8;
+		ByteBuffer header = ByteBuffer.allocate(ParallelEncoder.BLOCK_HEADER);
+		readFully(input, header, dataStart-ParallelEncoder.BLOCK_HEADER);
+		int originalLength = header.getInt(0);
+		long bitLength = header.getLong(4);
+		if(originalLength!=entry[2] || bitLength<=0 || bitLength>8L*Integer.MAX_VALUE) {
+			throw new Exception("Encoded file corrupted in block at bit offset "+entry[0]+".");
+		}
+		int byteLength = (int) ((bitLength+7)/8);
+		if(worker.encoded.length<byteLength) {
+			worker.encoded = new byte[byteLength];
+		}
+		if(worker.decoded.length<originalLength) {
+			worker.decoded = new byte[originalLength];
+		}
+		readFully(input, ByteBuffer.wrap(worker.encoded, 0, byteLength), dataStart);
+		TableDecoder dec = worker.dec;
+		dec.reset();
+		if(dec.decode(worker.encoded, 0, byteLength, worker.decoded, 0, originalLength)!=originalLength
+				|| !dec.isFinished()) {
+			throw new Exception("Encoded file corrupted in block at bit offset "+entry[0]+".");
+		}
+		ByteBuffer decoded = ByteBuffer.wrap(worker.decoded, 0, originalLength);
+		long position = entry[1];
+		while(decoded.hasRemaining()) {
+			position += output.write(decoded, position);
+		}
+	}
+
+	/**
+	 * Private static method. Fills the buffer from the given position of the file.
+	 * @param channel: FileChannel, the file.
+	 * @param buffer: ByteBuffer, buffer to be filled.
+	 * @param position: long, position of the first byte.
+	 * @throws IOException in case the file ends too soon or cannot be read from.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if(read<0) {
+				throw new IOException("Unexpected end of file.");
+			}
+			position += read;
+		}
+	}
+}
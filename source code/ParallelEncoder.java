@@ -0,0 +1,200 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ParallelEncoder class. Splits the input into fixed-size blocks and encodes them concurrently on a ForkJoinPool,
+ * all blocks sharing one immutable CodeTable. Blocks are written in their original order.
+ * Every encoded block is an independent stream terminated by the EOF symbol and padded to a whole byte,
+ * preceded by its original length and its length in bits. A block of original length 0 ends the sequence.
+ * It is followed by a block index, holding for every block the bit offset of its encoded data and the offset
+ * of its original bytes, then the number of blocks and the magic bytes, so that ParallelDecoder can find the blocks
+ * from the end of the file. Offsets of encoded data are counted from the end of the container header.
+ * Operate through dynamic method "encode".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class ParallelEncoder {
+	/**
+	 * Block size used unless specified otherwise, 4 MB.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1<<22;
+	/**
+	 * Smallest allowed block size, 64 KB.
+	 */
+	public static final int MIN_BLOCK_SIZE = 1<<16;
+	/**
+	 * Largest allowed block size, 64 MB.
+	 */
+	public static final int MAX_BLOCK_SIZE = 1<<26;
+	/**
+	 * Length of the original length and bit length preceding every block.
+	 */
+	public static final int BLOCK_HEADER = 12;
+	private static final int FLUSH_ROOM = 32;
+
+	private final CodeTable table;
+	private final int blockSize;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<TableEncoder> encoders;
+
+	/**
+	 * Constructor for the ParallelEncoder class.
+	 * @param table: CodeTable, codewords to encode with.
+	 * @param blockSize: int, number of original bytes per block.
+	 * @param pool: ForkJoinPool, pool the blocks are encoded on.
+	 * @throws Exception in case the block size is out of the allowed range.
+	 */
+	public ParallelEncoder(CodeTable table, int blockSize, ForkJoinPool pool) throws Exception {
+		if(blockSize<MIN_BLOCK_SIZE || blockSize>MAX_BLOCK_SIZE) {
+			throw new Exception("Block size must be between "+MIN_BLOCK_SIZE+" and "+MAX_BLOCK_SIZE+" bytes.");
+		}
+		this.table = table;
+		this.blockSize = blockSize;
+		this.pool = pool;
+		this.encoders = ThreadLocal.withInitial(() -> new TableEncoder(table));
+	}
+
+	/**
+	 * The primary method for ParallelEncoder object. Encodes everything the input stream holds.
+	 * At most twice as many blocks as the pool has threads are held in memory at once.
+	 * @param in: InputStream, stream of original bytes.
+	 * @param out: OutputStream, stream the blocks are written into.
+	 * @return long, number of original bytes encoded.
+	 * @throws Exception in case the streams cannot be used or a byte has no codeword in the table.
+	 */
+	public long encode(InputStream in, OutputStream out) throws Exception {
+		DataOutputStream data = new DataOutputStream(out);
+		ArrayDeque<ForkJoinTask<EncodedBlock>> pending = new ArrayDeque<ForkJoinTask<EncodedBlock>>();
+		LinkedList<long[]> index = new LinkedList<long[]>();
+		int window = 2*pool.getParallelism();
+		long total = 0;
+		while(true) {
+			byte[] block = new byte[blockSize];
+			int length = readBlock(in, block);
+			if(length==0) {
+				break;
+			}
+			total += length;
+			pending.add(pool.submit(() -> encodeBlock(block, length)));
+			if(pending.size()>=window) {
+				writeBlock(pending.poll().join(), data, index);
+			}
+		}
+		while(!pending.isEmpty()) {
+			writeBlock(pending.poll().join(), data, index);
+		}
+		data.writeInt(0);
+		for(long[] entry: index) {
+			data.writeLong(entry[0]);
+			data.writeLong(entry[1]);
+		}
+		data.writeInt(index.size());
+		data.write(Container.MAGIC);
+		data.flush();
+		return total;
+	}
+
+	/**
+	 * Private method. Writes an encoded block and records its entry of the block index.
+	 * @param block: EncodedBlock, the block.
+	 * @param data: DataOutputStream, stream to write into, counting bytes from the end of the container header.
+	 * @param index: LinkedList<long[]>, blocks written so far, bit offset of encoded data, original offset,
+	 * original length and encoded length.
+	 * @throws IOException in case the stream cannot be written to.
+	 */
+	private static void writeBlock(EncodedBlock block, DataOutputStream data, LinkedList<long[]> index) throws IOException {
+		long dataOffset = BLOCK_HEADER;
+		long originalOffset = 0;
+		if(!index.isEmpty()) {
+			long[] last = index.getLast();
+			dataOffset = last[0]/8 + last[3] + BLOCK_HEADER;
+			originalOffset = last[1] + last[2];
+		}
+		block.writeTo(data);
+		index.add(new long[] {8*dataOffset, originalOffset, block.originalLength, block.byteLength});
+	}
+
+	/**
+	 * Private method. Reads up to one block from the stream.
+	 * @param in: InputStream, stream of original bytes.
+	 * @param block: byte[], array to be filled.
+	 * @return int, number of bytes read, less than the block size only at the end of the stream.
+	 * @throws IOException in case the stream cannot be read from.
+	 */
+	private static int readBlock(InputStream in, byte[] block) throws IOException {
+		int length = 0;
+		while(length<block.length) {
+			int read = in.read(block, length, block.length-length);
+			if(read<0) {
+				break;
+			}
+			length += read;
+		}
+		return length;
+	}
+
+	/**
+	 * Private method. Encodes a single block, run on the pool.
+	 * Each thread of the pool reuses its own TableEncoder. The encoded bytes are written over the original ones
+	 * whenever they fit.
+	 * @param block: byte[], original bytes.
+	 * @param length: int, number of original bytes in the block.
+	 * @return EncodedBlock, the encoded block.
+	 * @throws Exception in case a byte has no codeword in the table.
+	 */
+	private EncodedBlock encodeBlock(byte[] block, int length) throws Exception {
+		TableEncoder enc = encoders.get();
+		enc.encode(block, 0, length);
+		int encoded = enc.getOutputLength();
+		byte[] bytes = block;
+		if(encoded+FLUSH_ROOM>block.length) {
+			bytes = new byte[encoded+FLUSH_ROOM];
+		}
+		System.arraycopy(enc.getOutput(), 0, bytes, 0, encoded);
+		enc.flush();
+		System.arraycopy(enc.getOutput(), 0, bytes, encoded, enc.getOutputLength());
+		encoded += enc.getOutputLength();
+		return new EncodedBlock(length, 8L*encoded-enc.getPadding(), bytes, encoded);
+	}
+
+	/**
+	 * EncodedBlock class. Result of encoding a single block.
+	 */
+	static class EncodedBlock {
+		final int originalLength;
+		final long bitLength;
+		final byte[] bytes;
+		final int byteLength;
+
+		/**
+		 * Constructor for the EncodedBlock class.
+		 * @param originalLength: int, number of original bytes.
+		 * @param bitLength: long, number of encoded bits including the EOF symbol.
+		 * @param bytes: byte[], array holding the encoded bytes.
+		 * @param byteLength: int, number of encoded bytes.
+		 */
+		EncodedBlock(int originalLength, long bitLength, byte[] bytes, int byteLength) {
+			this.originalLength = originalLength;
+			this.bitLength = bitLength;
+			this.bytes = bytes;
+			this.byteLength = byteLength;
+		}
+
+		/**
+		 * Writes the block preceded by its original length and its length in bits.
+		 * @param out: DataOutputStream, stream to write into.
+		 * @throws IOException in case the stream cannot be written to.
+		 */
+		void writeTo(DataOutputStream out) throws IOException {
+			out.writeInt(originalLength);
+			out.writeLong(bitLength);
+			out.write(bytes, 0, byteLength);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+
+/**
+ * TableCache class. Thread-safe cache of code tables parsed from .tree files, so that a tree file used for many
+ * files is parsed only once. Entries are keyed by the real path of the tree file together with its size and
+ * modification time, so a changed file is parsed again. The cache holds at most a given number of tables
+ * and evicts the least recently used one. CodeTable is immutable and builds its DecodingTable only once,
+ * so a cached table is shared by any number of encoders and decoders.
+ * A process-wide instance is available through "getShared". Its counters can be committed periodically
+ * as a Flight Recorder event named huffman.TableCache, see "recordEvents".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class TableCache {
+	/**
+	 * Number of tables held by the shared instance.
+	 */
+	public static final int DEFAULT_CAPACITY = 64;
+	private static final TableCache SHARED = new TableCache(DEFAULT_CAPACITY);
+
+	private final LinkedHashMap<String, CodeTable> tables;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Holder of the Flight Recorder event. Loaded only when the event is registered.
+	 */
+	private static class Events {
+
+		/**
+		 * Flight Recorder event of the counters of a cache.
+		 */
+		@Name("huffman.TableCache")
+		@Label("Huffman Table Cache")
+		@Category("Huffman")
+		@Description("Tables held and requests answered by the cache of parsed .tree files.")
+		@Period("10 s")
+		static class CacheEvent extends Event {
+			@Label("Tables")
+			int tables;
+
+			@Label("Hits")
+			long hits;
+
+			@Label("Misses")
+			long misses;
+
+			@Label("Evictions")
+			long evictions;
+		}
+
+		/**
+		 * Static method. Registers the event, committed with the counters of the cache while a recording is running.
+		 * @param cache: TableCache, the cache.
+		 */
+		static void register(TableCache cache) {
+			FlightRecorder.addPeriodicEvent(CacheEvent.class, () -> {
+				CacheEvent event = new CacheEvent();
+				synchronized(cache) {
+					event.tables = cache.tables.size();
+					event.hits = cache.hits;
+					event.misses = cache.misses;
+					event.evictions = cache.evictions;
+				}
+				event.commit();
+			});
+		}
+	}
+
+	/**
+	 * Constructor for the TableCache class.
+	 * @param capacity: int, largest number of tables held at once.
+	 */
+	public TableCache(int capacity) {
+		tables = new LinkedHashMap<String, CodeTable>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CodeTable> eldest) {
+				if(size()>capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Static method. Getter.
+	 * @return TableCache, the process-wide instance.
+	 */
+	public static TableCache getShared() {
+		return SHARED;
+	}
+
+	/**
+	 * The primary method for TableCache object. Returns the table of a .tree file, parsing the file only if it is
+	 * not cached or has changed since. Files are parsed outside of the lock, so a slow parse does not hold up
+	 * other threads.
+	 * @param treeFile: String, name of the .tree file, nested nodes or canonical code lengths.
+	 * @return CodeTable, codewords of the tree.
+	 * @throws Exception in case the file cannot be read from or does not hold a valid tree.
+	 */
+	public CodeTable get(String treeFile) throws Exception {
+		String key = key(treeFile);
+		synchronized(this) {
+			CodeTable table = tables.get(key);
+			if(table!=null) {
+				hits++;
+				return table;
+			}
+			misses++;
+		}
+		CodeTable table = CodeTable.fromTreeFile(Files.readAllBytes(Paths.get(treeFile)));
+		synchronized(this) {
+			CodeTable cached = tables.putIfAbsent(key, table);
+			return cached==null ? table : cached;
+		}
+	}
+
+	/**
+	 * Private static method. Builds the key of a file from its real path, size and modification time.
+	 * @param treeFile: String, name of the file.
+	 * @return String, the key.
+	 * @throws IOException in case the file does not exist.
+	 */
+	private static String key(String treeFile) throws IOException {
+		Path path = Paths.get(treeFile).toRealPath();
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		return path+"|"+attributes.size()+"|"+attributes.lastModifiedTime().toMillis();
+	}
+
+	/**
+	 * Call this method once to have the counters committed every 10 seconds as a huffman.TableCache event
+	 * while a Flight Recorder is running, e.g. one started with -XX:StartFlightRecording. Meant for long running
+	 * processes such as Daemon.
+	 */
+	public void recordEvents() {
+		Events.register(this);
+	}
+
+	/**
+	 * Call this method to drop all tables. Counters are kept.
+	 */
+	public synchronized void clear() {
+		tables.clear();
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of tables held.
+	 */
+	public synchronized int size() {
+		return tables.size();
+	}
+
+	/**
+	 * Getter.
+	 * @return long, number of requests answered from the cache.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Getter.
+	 * @return long, number of requests that parsed the file.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Getter.
+	 * @return long, number of tables evicted to make room for others.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+}
@@ -0,0 +1,296 @@
+/**
+ * TableDecoder class. Create an instance of to decode a file encoded with Encoder class.
+ * Bits are gathered in a 64 bit reservoir and resolved one or two symbols per lookup in a DecodingTable.
+ * Decoded bytes are written straight into a byte array.
+ * Operate through dynamic method "decode", then read the result through "getOutput" and "getOutputLength".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class TableDecoder implements ChunkDecoder {
+	private static final int MASK = (1<<DecodingTable.TABLE_BITS) - 1;
+	private final int[] children;
+	private final int[] entries;
+	private long bitBuffer;
+	private int bitCount;
+	private int walkNode;
+	private boolean finished;
+	private byte[] input;
+	private int inputPosition;
+	private int inputEnd;
+	private byte[] output;
+	private int outputLength;
+
+	/**
+	 * Constructor for the TableDecoder class.
+	 * @param table: CodeTable, codewords the data was encoded with.
+	 * @throws Exception in case the codewords do not form a prefix code.
+	 */
+	public TableDecoder(CodeTable table) throws Exception {
+		DecodingTable decodingTable = table.getDecodingTable();
+		children = decodingTable.children;
+		entries = decodingTable.entries;
+		output = new byte[0];
+	}
+
+	/**
+	 * The primary method for TableDecoder object. Supply this method with consecutive chunks of the encoded file.
+	 * Bytes decoded from the chunk and any bits left over from previous chunks are available through getOutput
+	 * until the next call. Input supplied after EOF symbol has been decoded is ignored.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @throws Exception in case the encoded data is corrupted.
+	 */
+	@Override
+	public void decode(byte[] in, int off, int len) throws Exception {
+		outputLength = 0;
+		if(finished) {
+			return;
+		}
+		if(output.length<getMaxOutput(len)) {
+			output = new byte[getMaxOutput(len)];
+		}
+		outputLength = decode(in, off, len, output, 0);
+	}
+
+	/**
+	 * Call this method to decode a chunk straight into an array of the caller, see decode(byte[], int, int).
+	 * Nothing is allocated, so a long-running decoder puts no pressure on the garbage collector.
+	 * The end of the stream is reported by isFinished.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @param out: byte[], array the decoded bytes are written into, with room for getMaxOutput(len) bytes.
+	 * @param outOff: int, index the first decoded byte is written at.
+	 * @return int, number of bytes decoded.
+	 * @throws Exception in case the encoded data is corrupted or out has too little room.
+	 */
+	@Override
+	public int decode(byte[] in, int off, int len, byte[] out, int outOff) throws Exception {
+		if(finished) {
+			return 0;
+		}
+		if(out.length-outOff<getMaxOutput(len)) {
+			throw new Exception("Output array too small.");
+		}
+		return decodeBounded(in, off, len, out, outOff, out.length);
+	}
+
+	/**
+	 * Call this method to decode a chunk straight into an array of the caller whose number of decoded bytes
+	 * is known, e.g. a block. Only outLen bytes of room are needed, however many codewords the chunk may hold.
+	 * Nothing is allocated. The end of the stream is reported by isFinished.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @param out: byte[], array the decoded bytes are written into.
+	 * @param outOff: int, index the first decoded byte is written at.
+	 * @param outLen: int, largest number of bytes to be decoded.
+	 * @return int, number of bytes decoded.
+	 * @throws Exception in case the encoded data is corrupted or holds more than outLen bytes before EOF.
+	 */
+	public int decode(byte[] in, int off, int len, byte[] out, int outOff, int outLen) throws Exception {
+		if(finished) {
+			return 0;
+		}
+		if(outOff<0 || outLen<0 || outLen>out.length-outOff) {
+			throw new Exception("Output array too small.");
+		}
+		return decodeBounded(in, off, len, out, outOff, outOff+outLen);
+	}
+
+	/**
+	 * Private method. Decodes a chunk into out, writing no further than outEnd.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @param out: byte[], array the decoded bytes are written into.
+	 * @param outOff: int, index the first decoded byte is written at.
+	 * @param outEnd: int, index after the last byte that may be written.
+	 * @return int, number of bytes decoded.
+	 * @throws Exception in case the encoded data is corrupted or does not fit.
+	 */
+	private int decodeBounded(byte[] in, int off, int len, byte[] out, int outOff, int outEnd) throws Exception {
+		input = in;
+		inputPosition = off;
+		inputEnd = off+len;
+		int written = outOff;
+		while(!finished) {
+			if(walkNode!=0) {
+				int symbol = walk();
+				if(symbol<0) {
+					break;
+				}
+				if(symbol==CodeTable.EOF) {
+					finished = true;
+					break;
+				}
+				if(written==outEnd) {
+					throw new Exception("Encoded file corrupted.");
+				}
+				out[written++] = (byte) symbol;
+				continue;
+			}
+			if(bitCount<DecodingTable.TABLE_BITS) {
+				refill();
+				if(bitCount<DecodingTable.TABLE_BITS) {
+					int entry = entries[(int) (bitBuffer<<(DecodingTable.TABLE_BITS-bitCount)) & MASK];
+					if(entry==DecodingTable.INVALID || entry>>>28==0 || ((entry>>>23)&31)>bitCount) {
+						int symbol = walk();
+						if(symbol<0) {
+							break;
+						}
+						if(symbol==CodeTable.EOF) {
+							finished = true;
+							break;
+						}
+						if(written==outEnd) {
+							throw new Exception("Encoded file corrupted.");
+						}
+						out[written++] = (byte) symbol;
+						continue;
+					}
+					if(((entry>>>18)&31)>bitCount) {
+						int firstUsed = (entry>>>23)&31;
+						entry = (entry&0x1FF) | (firstUsed<<18) | (firstUsed<<23) | (1<<28);
+					}
+					written = apply(entry, out, written, outEnd);
+					continue;
+				}
+			}
+			int entry = entries[(int) (bitBuffer>>>(bitCount-DecodingTable.TABLE_BITS)) & MASK];
+			if(entry==DecodingTable.INVALID) {
+				throw new Exception("Encoded file corrupted.");
+			}
+			if(entry>>>28==0) {
+				bitCount -= DecodingTable.TABLE_BITS;
+				walkNode = entry;
+				continue;
+			}
+			written = apply(entry, out, written, outEnd);
+		}
+		input = null;
+		return written-outOff;
+	}
+
+	/**
+	 * Getter. Every byte holds at most eight codewords, the bit reservoir carries up to 64 more bits.
+	 * @param len: int, number of bytes in a chunk.
+	 * @return int, largest number of bytes decoding a chunk of the given length may produce.
+	 */
+	@Override
+	public int getMaxOutput(int len) {
+		return 8*len+64;
+	}
+
+	/**
+	 * Private method. Consumes the bits of an entry holding one or two symbols and writes the symbols.
+	 * If there is room for the first symbol only, the bits of the second one are left for the next lookup.
+	 * @param entry: int, entry of the primary table.
+	 * @param out: byte[], output array.
+	 * @param written: int, number of bytes written so far.
+	 * @param outEnd: int, index after the last byte that may be written.
+	 * @return int, number of bytes written after the entry has been applied.
+	 * @throws Exception in case there is no room for the first symbol.
+	 */
+	private int apply(int entry, byte[] out, int written, int outEnd) throws Exception {
+		int first = entry & 0x1FF;
+		if(first==CodeTable.EOF) {
+			bitCount -= (entry>>>23)&31;
+			finished = true;
+			return written;
+		}
+		if(written==outEnd) {
+			throw new Exception("Encoded file corrupted.");
+		}
+		out[written++] = (byte) first;
+		if(entry>>>28==2) {
+			if(written==outEnd) {
+				bitCount -= (entry>>>23)&31;
+				return written;
+			}
+			out[written++] = (byte) (entry>>>9);
+		}
+		bitCount -= (entry>>>18)&31;
+		return written;
+	}
+
+	/**
+	 * Private method. Moves whole bytes from the input into the bit reservoir while there is room.
+	 */
+	private void refill() {
+		while(bitCount<=56 && inputPosition<inputEnd) {
+			bitBuffer = (bitBuffer<<8) | (input[inputPosition++]&0xFF);
+			bitCount += 8;
+		}
+	}
+
+	/**
+	 * Private method. Walks the flattened tree one bit at a time, starting at walkNode.
+	 * Used for codewords longer than the primary table and for the last few bits of a chunk.
+	 * @return int, decoded symbol, or -1 if the chunk ran out of bits. The walk is resumed by the next call.
+	 * @throws Exception in case the encoded data is corrupted.
+	 */
+	private int walk() throws Exception {
+		int node = walkNode;
+		while(true) {
+			if(bitCount==0) {
+				refill();
+				if(bitCount==0) {
+					walkNode = node;
+					return -1;
+				}
+			}
+			bitCount--;
+			int next = children[2*node + (int) ((bitBuffer>>>bitCount)&1)];
+			if(next<0) {
+				walkNode = 0;
+				return ~next;
+			}
+			if(next==0) {
+				throw new Exception("Encoded file corrupted.");
+			}
+			node = next;
+		}
+	}
+
+	/**
+	 * Call this method to prepare the decoder for a new encoded stream. Bits left over from the previous one are dropped.
+	 */
+	@Override
+	public void reset() {
+		bitBuffer = 0;
+		bitCount = 0;
+		walkNode = 0;
+		finished = false;
+		outputLength = 0;
+	}
+
+	/**
+	 * Getter.
+	 * @return boolean, true once the EOF symbol has been decoded.
+	 */
+	@Override
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Getter.
+	 * @return byte[], array holding bytes decoded by the last call of decode. Only the first getOutputLength()
+	 * bytes are valid.
+	 */
+	@Override
+	public byte[] getOutput() {
+		return output;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes decoded by the last call of decode.
+	 */
+	@Override
+	public int getOutputLength() {
+		return outputLength;
+	}
+}
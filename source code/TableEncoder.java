@@ -0,0 +1,179 @@
+/**
+ * TableEncoder class. Create an instance of to encode a file that can be decoded with Decoder or TableDecoder class.
+ * Codewords are taken from primitive arrays indexed by the byte and packed into a 64 bit accumulator,
+ * which is emptied into a byte array. No objects are allocated per encoded byte.
+ * Operate through dynamic methods "encode" and "flush", then read the result through "getOutput" and "getOutputLength".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class TableEncoder implements ChunkEncoder {
+	private final int[] lengths;
+	private final long[] codes;
+	private final int maxLength;
+	private long bitBuffer;
+	private int bitCount;
+	private byte[] output;
+	private int outputLength;
+	private int padding;
+
+	/**
+	 * Constructor for the TableEncoder class.
+	 * @param table: CodeTable, codewords to encode with.
+	 */
+	public TableEncoder(CodeTable table) {
+		lengths = new int[CodeTable.SYMBOLS];
+		codes = new long[CodeTable.SYMBOLS];
+		for(int symbol = 0; symbol<CodeTable.SYMBOLS; symbol++) {
+			lengths[symbol] = table.getLength(symbol);
+			codes[symbol] = table.getCode(symbol);
+		}
+		maxLength = table.getMaxLength();
+		output = new byte[0];
+	}
+
+	/**
+	 * The primary method for TableEncoder object. Supply this method with consecutive chunks of the file.
+	 * Whole bytes of encoded data are available through getOutput until the next call,
+	 * bits which do not make a whole byte yet are kept for the next call.
+	 * @param in: byte[], array holding the chunk.
+	 * @param off: int, index of the first byte of the chunk.
+	 * @param len: int, number of bytes in the chunk.
+	 * @throws Exception in case a byte of the chunk has no codeword in the table.
+	 */
+	@Override
+	public void encode(byte[] in, int off, int len) throws Exception {
+		ensureCapacity(len);
+		byte[] out = output;
+		int written = 0;
+		int[] lengths = this.lengths;
+		long[] codes = this.codes;
+		long buffer = bitBuffer;
+		int count = bitCount;
+		int end = off+len;
+		for(int i = off; i<end; i++) {
+			int symbol = in[i]&0xFF;
+			int length = lengths[symbol];
+			if(length==0 || length>32) {
+				bitBuffer = buffer;
+				bitCount = count;
+				written = putLong(symbol, out, written);
+				buffer = bitBuffer;
+				count = bitCount;
+				continue;
+			}
+			buffer = (buffer<<length) | codes[symbol];
+			count += length;
+			if(count>=32) {
+				count -= 32;
+				int word = (int) (buffer>>>count);
+				out[written] = (byte) (word>>>24);
+				out[written+1] = (byte) (word>>>16);
+				out[written+2] = (byte) (word>>>8);
+				out[written+3] = (byte) word;
+				written += 4;
+			}
+		}
+		bitBuffer = buffer;
+		bitCount = count;
+		outputLength = written;
+	}
+
+	/**
+	 * This method should be called after the last chunk has been encoded. It encodes the EOF symbol
+	 * and appends 0s to make a whole byte. The remaining bytes are available through getOutput.
+	 * @throws Exception in case the table holds no codeword for the EOF symbol.
+	 */
+	@Override
+	public void flush() throws Exception {
+		ensureCapacity(1);
+		int written = putLong(CodeTable.EOF, output, 0);
+		while(bitCount>=8) {
+			bitCount -= 8;
+			output[written++] = (byte) (bitBuffer>>>bitCount);
+		}
+		padding = 0;
+		if(bitCount>0) {
+			output[written++] = (byte) (bitBuffer<<(8-bitCount));
+			padding = 8-bitCount;
+			bitCount = 0;
+		}
+		outputLength = written;
+	}
+
+	/**
+	 * Private method. Slow path for codewords longer than 32 bits and symbols without a codeword.
+	 * @param symbol: int, symbol to be encoded.
+	 * @param out: byte[], output array.
+	 * @param written: int, number of bytes written so far.
+	 * @return int, number of bytes written after the codeword has been added.
+	 * @throws Exception in case the symbol has no codeword.
+	 */
+	private int putLong(int symbol, byte[] out, int written) throws Exception {
+		int length = lengths[symbol];
+		if(length==0) {
+			throw new Exception("Byte "+symbol+" is not present in the tree.");
+		}
+		long code = codes[symbol];
+		if(length>32) {
+			written = put(code>>>32, length-32, out, written);
+			return put(code&0xFFFFFFFFL, 32, out, written);
+		}
+		return put(code, length, out, written);
+	}
+
+	/**
+	 * Private method. Adds up to 32 bits to the accumulator and empties it below 32 bits.
+	 * @param code: long, bits to be added, held in the lowest bits.
+	 * @param length: int, number of bits to be added.
+	 * @param out: byte[], output array.
+	 * @param written: int, number of bytes written so far.
+	 * @return int, number of bytes written after the bits have been added.
+	 */
+	private int put(long code, int length, byte[] out, int written) {
+		bitBuffer = (bitBuffer<<length) | code;
+		bitCount += length;
+		while(bitCount>=32) {
+			bitCount -= 8;
+			out[written++] = (byte) (bitBuffer>>>bitCount);
+		}
+		return written;
+	}
+
+	/**
+	 * Private method. Makes sure the output array can hold the encoding of len bytes.
+	 * @param len: int, number of bytes to be encoded.
+	 */
+	private void ensureCapacity(int len) {
+		long needed = ((long) len*maxLength)/8 + 2*8 + 8;
+		if(output.length<needed) {
+			output = new byte[(int) needed];
+		}
+	}
+
+	/**
+	 * Getter.
+	 * @return byte[], array holding bytes encoded by the last call of encode or flush. Only the first
+	 * getOutputLength() bytes are valid.
+	 */
+	@Override
+	public byte[] getOutput() {
+		return output;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of bytes encoded by the last call of encode or flush.
+	 */
+	@Override
+	public int getOutputLength() {
+		return outputLength;
+	}
+
+	/**
+	 * Getter.
+	 * @return int, number of 0s appended by the last call of flush to make a whole byte.
+	 */
+	public int getPadding() {
+		return padding;
+	}
+}
@@ -0,0 +1,123 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.stream.Stream;
+
+/**
+ * Train class. The main class to be run in order to train a Dictionary on a corpus of sample files.
+ * The dictionary is saved into a registry directory, where Decode finds it when decoding files encoded
+ * with Encode -dictionary: or Batch -dictionary:.
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class Train {
+	private static int maxLength;
+	private static boolean force;
+	private static String directory = DictionaryRegistry.getShared().getDirectory();
+
+	/**
+	 * The main method of the Train class. Call from terminal.
+	 * @param args: String[], passed from console.
+	 */
+	public static void main(String[] args) {
+		long startTime = System.currentTimeMillis();
+		args = parseOptions(args);
+		if(args.length<3) {
+			System.out.println(
+					"This command takes the name of the dictionary, its version and names of sample files or directories.\n"
+					+ "The name may hold letters, digits, '.', '_' and '-' but not \"..\", the version is a number between 0 and "
+					+ Dictionary.MAX_VERSION+".\n"
+					+ "Directories are searched recursively, .hf files are skipped.\n"
+					+ "The dictionary is saved as <name>-<version>"+Dictionary.EXTENSION+" into the registry directory.\n"
+					+ "\n"
+					+ "Options may be placed anywhere among the arguments:\n"
+					+ "    -registry:<dir>    directory the dictionary is saved into. Set by the huffman.dictionaries\n"
+					+ "                       system property, dictionaries by default.\n"
+					+ "    -maxLength:<bits>  limit codewords of the dictionary to the given length.\n"
+					+ "    -force             replace an existing dictionary of the same name and version. Files encoded\n"
+					+ "                       with it can no longer be decoded.");
+			return;
+		}
+		try {
+			int version = Integer.parseInt(args[1]);
+			Dictionary.checkName(args[0]);
+			Path output = Paths.get(directory, Dictionary.getFileName(args[0], version));
+			if(!force && Files.exists(output)) {
+				throw new Exception("Dictionary "+output+" already exists. Files encoded with it could no longer be decoded,"
+						+ " train a new version instead or give -force to replace it.");
+			}
+			ArrayList<String> files = collectFiles(args);
+			long bytes = 0;
+			for(String file: files) {
+				bytes += Files.size(Paths.get(file));
+			}
+			Dictionary dictionary = Dictionary.train(args[0], version, files, maxLength);
+			Files.createDirectories(Paths.get(directory));
+			dictionary.write(output.toString());
+			System.out.println(String.format("Dictionary %s version %d trained on %d files of %d bytes, saved into %s.",
+					dictionary.getName(), dictionary.getVersion(), files.size(), bytes, output));
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid version: "+args[1]);
+			System.exit(1);
+		} catch (Exception e) {
+			System.out.println(e);
+			System.exit(126);
+		}
+		long timeElapsed = System.currentTimeMillis() - startTime;
+		System.out.println(timeElapsed+" miliseconds elapsed.");
+	}
+
+	/**
+	 * Private static method. Lists the sample files named by the arguments.
+	 * @param args: String[], the name and version followed by names of files or directories.
+	 * @return ArrayList<String>, names of the files.
+	 * @throws IOException in case a directory cannot be read from.
+	 */
+	private static ArrayList<String> collectFiles(String[] args) throws IOException {
+		ArrayList<String> files = new ArrayList<String>();
+		for(int i = 2; i<args.length; i++) {
+			if(!new File(args[i]).isDirectory()) {
+				files.add(args[i]);
+				continue;
+			}
+			try(Stream<Path> paths = Files.walk(Paths.get(args[i]))) {
+				paths.filter(Files::isRegularFile).map(Path::toString)
+						.filter(name -> !name.endsWith(".hf")).sorted().forEach(files::add);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Private method. Removes recognised options from the arguments and sets the corresponding fields.
+	 * @param args: String[], arguments passed from console.
+	 * @return String[], the remaining arguments.
+	 */
+	private static String[] parseOptions(String[] args) {
+		LinkedList<String> remaining = new LinkedList<String>();
+		for(String arg: args) {
+			if(arg.startsWith("-registry:")) {
+				directory = arg.substring(10);
+			} else if(arg.equals("-force")) {
+				force = true;
+			} else if(arg.startsWith("-maxLength:")) {
+				try {
+					maxLength = Integer.parseInt(arg.substring(11));
+				} catch (NumberFormatException e) {
+					maxLength = -1;
+				}
+				if(maxLength<1 || maxLength>CodeTable.MAX_CODE_LENGTH) {
+					System.out.println("Maximum code length must be between 1 and "+CodeTable.MAX_CODE_LENGTH+".");
+					System.exit(1);
+				}
+			} else {
+				remaining.add(arg);
+			}
+		}
+		return remaining.toArray(new String[0]);
+	}
+}
@@ -1,61 +1,116 @@
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.util.Arrays;
-import java.util.HashMap;
-
-/**
- * TreeBuilder class. This class is used to build a tree from a file full of content.
- * Operate through the "buildTree" method.
- * @author Zdenek Plesek
- *
- */
-public class TreeBuilder {
-	HashMap<Integer, TreeNode> counts;
-	private BufferedInputStream in;
-	
-	/**
-	 * Constructor for the TreeBuilder class.s
-	 * @param target: String, name of the file from which the tree is meant to be build.
-	 * @throws FileNotFoundException in case the source file cannot be opened.
-	 */
-	public TreeBuilder(String target) throws FileNotFoundException {
-		in = new BufferedInputStream(new FileInputStream(target));
-		counts = new HashMap<Integer, TreeNode>();
-	}
-	
-	/**
-	 * Call this method to build the Huffman tree.
-	 * @return the root node of the Huffman tree.
-	 * @throws Exception in case the file cannot be read from.
-	 */
-	public TreeNode buildTree() throws Exception {
-		Integer read = in.read();
-		TreeNode tn;
-		while(read>-1) {
-			if(counts.containsKey(read)) {
-				counts.get(read).occured();
-			} else {
-				tn = new TreeNode(read);
-				tn.occured();
-				counts.put(read, tn);
-			}
-			read = in.read();
-		}
-		tn = new TreeNode(-1);
-		counts.put(Integer.MIN_VALUE, tn);
-		tn.occured();
-		TreeNode[] nodes = new TreeNode[0];
-		nodes = (TreeNode[]) counts.values().toArray(nodes);
-		int unsortedNodes = nodes.length;
-		while(unsortedNodes>1) {
-			Arrays.sort(nodes, new nodesComparator());
-			tn = new TreeNode(nodes[unsortedNodes-2], nodes[unsortedNodes-1]);
-			nodes[unsortedNodes-2] = tn;
-			nodes[unsortedNodes-1] = new TreeNode();
-			unsortedNodes--;
-		}
-		nodes[0].makeAddress();
-		return nodes[0];
-	}
-}
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * TreeBuilder class. This class is used to build a tree from a file full of content.
+ * Operate through the "buildTree", "buildCodeTree", "buildCodeLengths", "buildFrequencies", "buildSampledFrequencies"
+ * or "buildContextFrequencies" methods.
+ * @author Zdenek Plesek
+ *
+ */
+public class TreeBuilder {
+	private String target;
+	
+	/**
+	 * Constructor for the TreeBuilder class.s
+	 * @param target: String, name of the file from which the tree is meant to be build.
+	 * @throws FileNotFoundException in case the source file cannot be opened.
+	 */
+	public TreeBuilder(String target) throws FileNotFoundException {
+		if(!new File(target).isFile()) {
+			throw new FileNotFoundException(target);
+		}
+		this.target = target;
+	}
+	
+	/**
+	 * Call this method to build the Huffman tree.
+	 * The tree holds canonical codewords of the code lengths computed by buildCodeLengths, except that
+	 * a final node of '-' and its sibling EOF are exchanged, so the tree is the one its .tree file describes,
+	 * see CodeTree.forTreeFile. Final nodes hold bytes within <0;255> range and -1 for EOF.
+	 * @return the root node of the Huffman tree.
+	 * @throws Exception in case the file cannot be read from.
+	 */
+	public TreeNode buildTree() throws Exception {
+		return buildCodeTree().forTreeFile().toTreeNode();
+	}
+	
+	/**
+	 * Call this method to build the Huffman tree as a CodeTree, without any TreeNode objects.
+	 * The tree holds canonical codewords of the code lengths computed by buildCodeLengths.
+	 * @return CodeTree, the Huffman tree.
+	 * @throws Exception in case the file cannot be read from.
+	 */
+	public CodeTree buildCodeTree() throws Exception {
+		return CodeTable.canonical(buildCodeLengths()).getCodeTree();
+	}
+	
+	/**
+	 * Call this method to obtain only the code lengths of the Huffman tree. Codewords can be reconstructed
+	 * from them with CodeTable.canonical.
+	 * Lengths are computed by CodeLengthBuilder, so equal files always result in equal lengths.
+	 * @return int[], code length of each of the 257 symbols, EOF being the last one.
+	 * @throws Exception in case the file cannot be read from.
+	 */
+	public int[] buildCodeLengths() throws Exception {
+		return CodeLengthBuilder.build(buildFrequencies());
+	}
+	
+	/**
+	 * Call this method to count occurrences of all symbols.
+	 * Occurrences of bytes are counted by Histogram, which maps the file into memory and counts its segments
+	 * on all cores. EOF occurs once.
+	 * @return long[], occurrences of each of the 257 symbols, EOF being the last one.
+	 * @throws Exception in case the file cannot be read from.
+	 */
+	public long[] buildFrequencies() throws Exception {
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		System.arraycopy(Histogram.count(target, ForkJoinPool.commonPool()), 0, frequencies, 0, 256);
+		frequencies[CodeTable.EOF] = 1;
+		return frequencies;
+	}
+	
+	/**
+	 * Call this method to count occurrences of all symbols in the context of every byte value, for ContextModel.
+	 * Pairs of consecutive bytes are counted by Histogram.countPairs. EOF occurs once, in the context of the last byte.
+	 * @return long[][], occurrences of each of the 257 symbols after each of the 256 byte values.
+	 * @throws Exception in case the file cannot be read from.
+	 */
+	public long[][] buildContextFrequencies() throws Exception {
+		long[] pairs = Histogram.countPairs(target, ForkJoinPool.commonPool());
+		long[][] frequencies = new long[ContextModel.CONTEXTS][CodeTable.SYMBOLS];
+		for(int context = 0; context<ContextModel.CONTEXTS; context++) {
+			System.arraycopy(pairs, context<<8, frequencies[context], 0, 256);
+		}
+		int last = ContextModel.INITIAL_CONTEXT;
+		try(RandomAccessFile file = new RandomAccessFile(target, "r")) {
+			if(file.length()>0) {
+				file.seek(file.length()-1);
+				last = file.read();
+			}
+		}
+		frequencies[last][CodeTable.EOF] = 1;
+		return frequencies;
+	}
+	
+	/**
+	 * Call this method to estimate occurrences of all symbols from a sample of the file, see Histogram.sample.
+	 * Every byte value gets one more occurrence than it has in the sample, so that bytes missing from the sample
+	 * still get a codeword. EOF occurs once.
+	 * @param sampleSize: long, total number of bytes to be sampled.
+	 * @param chunks: int, number of chunks the sample is taken in, 1 for a prefix of the file.
+	 * @return long[], smoothed occurrences of each of the 257 symbols within the sample, EOF being the last one.
+	 * @throws Exception in case the file cannot be read from.
+	 */
+	public long[] buildSampledFrequencies(long sampleSize, int chunks) throws Exception {
+		long[] frequencies = new long[CodeTable.SYMBOLS];
+		long[] counts = Histogram.sample(target, sampleSize, chunks);
+		for(int i = 0; i<256; i++) {
+			frequencies[i] = counts[i]+1;
+		}
+		frequencies[CodeTable.EOF] = 1;
+		return frequencies;
+	}
+}
@@ -0,0 +1,194 @@
+import java.nio.ByteBuffer;
+
+/**
+ * TreeParser class. Parses the whole content of a .tree file of nested nodes in a single pass, straight into
+ * a CodeTree, without creating any TreeNode objects or boxing any byte. Open internal nodes are kept on an
+ * explicit stack. A corrupted file is reported together with the offset of the offending byte.
+ * EOF is written as "----", which may also be read as two final nodes holding '-'. As with TreeRebuilder,
+ * whenever four hyphens are waiting to be interpreted, they are taken as EOF, so both parse every file the same.
+ * Writers therefore put EOF before a sibling '-', see CodeTree.forTreeFile.
+ * Unlike TreeRebuilder, a tree consisting of a single final node is accepted, and bytes other than
+ * '{', '}' and '-' outside of final nodes are reported instead of being skipped.
+ * Operate through static method "parse".
+ * @author Zdenek Plesek
+ * @version 1.0
+ */
+public class TreeParser {
+	private static final int MAX_INTERNAL = CodeTable.SYMBOLS-1;
+	private static final int LOOKAHEAD = 4;
+
+	private final ByteBuffer content;
+	private final int start;
+	private final int[] children = new int[2*MAX_INTERNAL];
+	private final int[] stack = new int[MAX_INTERNAL];
+	private final boolean[] seen = new boolean[CodeTable.SYMBOLS];
+	private int top;
+	private int internal;
+	private int rootSymbol = CodeTree.NONE;
+	private boolean handleContent;
+	private int hyphens;
+
+	/**
+	 * Private constructor. Use the static method "parse".
+	 * @param content: ByteBuffer, the content between its position and limit.
+	 */
+	private TreeParser(ByteBuffer content) {
+		this.content = content;
+		start = content.position();
+	}
+
+	/**
+	 * Static method. Parses content of a .tree file written by TreeNode.generateOutputContent or CodeTree.toTreeFile.
+	 * @param content: byte[], content of the .tree file.
+	 * @return CodeTree, the tree.
+	 * @throws Exception in case the .tree file is corrupted, with the offset of the first wrong byte.
+	 */
+	public static CodeTree parse(byte[] content) throws Exception {
+		return parse(ByteBuffer.wrap(content));
+	}
+
+	/**
+	 * Static method. Parses content of a .tree file held between position and limit of a buffer.
+	 * The position of the buffer is not changed. Offsets in error messages are counted from the position.
+	 * @param content: ByteBuffer, content of the .tree file.
+	 * @return CodeTree, the tree.
+	 * @throws Exception in case the .tree file is corrupted, with the offset of the first wrong byte.
+	 */
+	public static CodeTree parse(ByteBuffer content) throws Exception {
+		return new TreeParser(content).parse();
+	}
+
+	/**
+	 * Private method. Scans the content. A byte is interpreted only once the three bytes after it are known,
+	 * unless it is one of four hyphens in a row, which are interpreted as EOF together.
+	 * @return CodeTree, the tree.
+	 * @throws Exception in case the content is corrupted.
+	 */
+	private CodeTree parse() throws Exception {
+		int end = content.limit();
+		int next = start;
+		for(int i = start; i<end; i++) {
+			if(content.get(i)=='-') {
+				hyphens++;
+			}
+			if(hyphens==LOOKAHEAD) {
+				attach(~CodeTable.EOF, i-LOOKAHEAD+1);
+				hyphens = 0;
+				next = i+1;
+				continue;
+			}
+			if(i-next+1>=LOOKAHEAD) {
+				interpret(next);
+				next++;
+			}
+		}
+		while(next<end) {
+			interpret(next);
+			next++;
+		}
+		if(handleContent) {
+			throw corrupted(end, "final node without content");
+		}
+		if(top>0) {
+			throw corrupted(end, "node opened but not closed");
+		}
+		if(rootSymbol!=CodeTree.NONE) {
+			return CodeTree.single(rootSymbol);
+		}
+		if(internal==0) {
+			throw corrupted(end, "no node");
+		}
+		return CodeTree.breadthFirst(children, internal);
+	}
+
+	/**
+	 * Private method. Interprets a single byte.
+	 * @param index: int, index of the byte in the buffer.
+	 * @throws Exception in case the byte is not expected.
+	 */
+	private void interpret(int index) throws Exception {
+		int b = content.get(index);
+		if(handleContent) {
+			handleContent = false;
+			if(b=='-') {
+				hyphens--;
+			}
+			attach(~(b&0xFF), index);
+			return;
+		}
+		switch(b) {
+		case '{':
+			if(internal==MAX_INTERNAL) {
+				throw corrupted(index, "more nodes than "+CodeTable.SYMBOLS+" symbols need");
+			}
+			if(top==0 && (internal>0 || rootSymbol!=CodeTree.NONE)) {
+				throw corrupted(index, "node outside of the tree");
+			}
+			int node = internal++;
+			if(top>0) {
+				attach(node, index);
+			}
+			stack[top++] = node;
+			break;
+		case '-':
+			handleContent = true;
+			hyphens--;
+			break;
+		case '}':
+			if(top==0) {
+				throw corrupted(index, "'}' without a matching '{'");
+			}
+			int closed = stack[--top];
+			if(children[2*closed]==0 || children[2*closed+1]==0) {
+				throw corrupted(index, "node with fewer than two children");
+			}
+			break;
+		default:
+			throw corrupted(index, String.format("unexpected byte 0x%02X", b&0xFF));
+		}
+	}
+
+	/**
+	 * Private method. Makes a node the next child of the innermost open node, or the root.
+	 * @param node: int, index of an internal node, or ~symbol of a final node.
+	 * @param index: int, index of the byte the node starts at.
+	 * @throws Exception in case the node has no place in the tree.
+	 */
+	private void attach(int node, int index) throws Exception {
+		if(node<0) {
+			int symbol = ~node;
+			if(seen[symbol]) {
+				throw corrupted(index, symbol==CodeTable.EOF ? "EOF held twice" : "byte "+symbol+" held twice");
+			}
+			seen[symbol] = true;
+			if(top>CodeTable.MAX_CODE_LENGTH) {
+				throw corrupted(index, "codeword longer than "+CodeTable.MAX_CODE_LENGTH+" bits");
+			}
+		}
+		if(top==0) {
+			if(node>=0 || internal>0 || rootSymbol!=CodeTree.NONE) {
+				throw corrupted(index, "node outside of the tree");
+			}
+			rootSymbol = ~node;
+			return;
+		}
+		int parent = stack[top-1];
+		if(children[2*parent]==0) {
+			children[2*parent] = node;
+		} else if(children[2*parent+1]==0) {
+			children[2*parent+1] = node;
+		} else {
+			throw corrupted(index, "node with more than two children");
+		}
+	}
+
+	/**
+	 * Private method. Creates the exception reporting a corrupted file.
+	 * @param index: int, index of the offending byte in the buffer.
+	 * @param reason: String, what is wrong.
+	 * @return Exception, the exception.
+	 */
+	private Exception corrupted(int index, String reason) {
+		return new Exception("Tree file (.tree) corrupted at byte "+(index-start)+": "+reason+".");
+	}
+}